@@ -2,9 +2,7 @@ package files;
 
 import com.google.common.graph.EndpointPair;
 import graph.bfa.BFA;
-import graph.bfa.BFABuilder;
 import graph.bfa.EventTransition;
-import graph.fa.FAState;
 import graph.nodes.State;
 
 import java.util.*;
@@ -47,26 +45,4 @@ class BFAJson {
         }
         return list.toArray(EventTransitionJson[]::new);
     }
-
-    /**
-     * Converts the JsonBFA into a BFA by invoking its builder.
-     */
-    BFA toBFA() {
-        BFABuilder builder = new BFABuilder(name);
-
-        // map stateName to FAState
-        Map<String, State> namesToStates = new HashMap<>();
-        for (String name : states) {
-            namesToStates.putIfAbsent(name, new FAState(name));
-        }
-
-        builder.putStates(new HashSet<State>(namesToStates.values()));
-        builder.putInitialState(namesToStates.get(initialState));
-
-        for (EventTransitionJson t : transitions) {
-            builder.putTransition(namesToStates.get(t.source), namesToStates.get(t.target), t.toEventTransition());
-        }
-
-        return builder.build();
-    }
 }
@@ -2,7 +2,6 @@ package files;
 
 import com.google.common.graph.EndpointPair;
 import graph.BFAnetwork.BFANetwork;
-import graph.BFAnetwork.BFANetworkBuilder;
 import graph.BFAnetwork.Link;
 import graph.bfa.BFA;
 
@@ -53,30 +52,4 @@ class BFANetworkJson {
         Set<BFA> bfas = bfaNet.getBFAs();
         return bfas.stream().map(BFAJson::new).toArray(BFAJson[]::new);
     }
-
-
-    /**
-     * Converts the BFANetworkJson into a BFANetwork by invoking its builder.
-     */
-    BFANetwork toBFANetwork() {
-        BFANetworkBuilder builder = new BFANetworkBuilder();
-
-        // map bfaName to BFA
-        Map<String, BFA> namesToBfas = new HashMap<>();
-        for (BFAJson bfa : bfas) {
-            namesToBfas.putIfAbsent(bfa.name, bfa.toBFA());
-        }
-
-        // add the network nodes
-        for (BFA bfa : namesToBfas.values()) {
-            builder.putBFA(bfa);
-        }
-
-        // add the network links
-        for (LinkJson l : links) {
-            builder.putLink(namesToBfas.get(l.source), namesToBfas.get(l.target), l.toLink());
-        }
-
-        return builder.build();
-    }
 }
@@ -22,6 +22,8 @@ public class Benchmark {
     public static final String OF_STATE = "of state ";
     public static final String DIAGNOSTICIAN = "Computation of the diagnostician";
     public static final String USING_DIAGNOSTICIAN = " using the diagnostician";
+    public static final String AS_FAULT_SETS = " as sets of faults";
+    public static final String FROM_CACHE = " from the cache of closures";
 
     LocalDateTime date;
     String description;
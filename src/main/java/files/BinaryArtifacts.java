@@ -0,0 +1,536 @@
+package files;
+
+import graph.BFAnetwork.BFANetwork;
+import graph.BFAnetwork.BSState;
+import graph.BFAnetwork.BSTransition;
+import graph.BFAnetwork.DBSState;
+import graph.BFAnetwork.DSCTransition;
+import graph.BFAnetwork.Diagnostician;
+import graph.BFAnetwork.Link;
+import graph.bfa.BFA;
+import graph.fa.FA;
+import graph.fa.FABuilder;
+import graph.fa.FAState;
+import graph.nodes.State;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * This class writes the artifacts computed from a BFANetwork (its behavioral
+ * space, its decorated space of closures and its diagnostician) in a compact
+ * binary format, and reads them back, so that they don't have to be computed
+ * again each time the network is loaded.
+ *
+ * An artifact starts with a header made of a magic number, the version of the
+ * format and the kind of the artifact, followed by the table of the strings it
+ * contains (names, labels and decorations), each one stored once. The rest of
+ * the artifact refers to strings by their position in the table and to states
+ * by their position in the list of states of their automaton, and the
+ * transitions are stored as the adjacency lists of their sources. Every integer
+ * is written as a varint, i.e. in groups of 7 bits from the least significant
+ * one, each group in a byte whose highest bit tells whether more follow, so
+ * that small numbers take a single byte.
+ *
+ * The behavioral space refers to the BFAs, to their states and to the links of
+ * the network by name, while the decorated space of closures and the
+ * diagnostician refer to the states of the behavioral space by name, so they
+ * are read given the objects they refer to, and the states read are the same
+ * (or equal to the) ones they were computed from.
+ */
+public final class BinaryArtifacts {
+
+    private static final int MAGIC = 0x42464141; // "BFAA"
+    private static final int VERSION = 1;
+
+    private static final int BEHAVIORAL_SPACE = 1;
+    private static final int DECORATED_SPACE_OF_CLOSURES = 2;
+    private static final int DIAGNOSTICIAN = 3;
+
+    // flags of a state
+    private static final int ACCEPTANCE = 1;
+    private static final int FINAL = 2;
+
+    private BinaryArtifacts() {
+    }
+
+    /**
+     * Write {@code behavioralSpace} to {@code out}. Each state is written with
+     * the state of every BFA and the content of every link, which must be the
+     * same BFAs and links for all the states.
+     */
+    public static void writeBehavioralSpace(FA<BSState, BSTransition> behavioralSpace, OutputStream out)
+            throws IOException {
+        Output output = new Output();
+        List<BSState> states = statesOf(behavioralSpace);
+        BSState initialState = behavioralSpace.getInitialState();
+        List<BFA> bfas = new ArrayList<>(initialState.getBfas().keySet());
+        bfas.sort(Comparator.comparing(BFA::getName));
+        List<Link> links = new ArrayList<>(initialState.getLinks().keySet());
+        links.sort(Comparator.comparing(Link::getName));
+
+        output.writeString(behavioralSpace.getName());
+        output.writeVarint(bfas.size());
+        for (BFA bfa : bfas) {
+            output.writeString(bfa.getName());
+        }
+        output.writeVarint(links.size());
+        for (Link link : links) {
+            output.writeString(link.getName());
+        }
+        output.writeVarint(states.size());
+        for (BSState s : states) {
+            if (s.getBfas().size() != bfas.size() || s.getLinks().size() != links.size())
+                throw new IllegalArgumentException("The state " + s.getName()
+                        + " doesn't refer to the same BFAs and links as the initial state.");
+            output.writeString(s.getName());
+            output.writeVarint(flags(behavioralSpace, s));
+            for (BFA bfa : bfas) {
+                output.writeString(s.getBfas().get(bfa).getName());
+            }
+            for (Link link : links) {
+                output.writeString(s.getLinks().get(link));
+            }
+        }
+        output.writeVarint(states.indexOf(initialState));
+        Map<BSState, Integer> ids = idsOf(states);
+        for (BSState s : states) {
+            Set<BSTransition> transitions = behavioralSpace.getNetwork().outEdges(s);
+            output.writeVarint(transitions.size());
+            for (BSTransition t : transitions) {
+                output.writeVarint(ids.get(behavioralSpace.getNetwork().incidentNodes(t).target()));
+                writeBSTransition(output, t);
+            }
+        }
+        output.writeTo(out, BEHAVIORAL_SPACE);
+    }
+
+    /**
+     * Read a behavioral space of the network {@code bfaNetwork} from {@code in},
+     * which is read to its end.
+     *
+     * @throws IOException if {@code in} doesn't contain a behavioral space in
+     *                     this format, or if it refers to BFAs, states or links
+     *                     not in {@code bfaNetwork}
+     */
+    public static FA<BSState, BSTransition> readBehavioralSpace(InputStream in, BFANetwork bfaNetwork)
+            throws IOException {
+        Input input = new Input(in, BEHAVIORAL_SPACE);
+        FABuilder<BSState, BSTransition> builder = new FABuilder<>();
+        builder.name(input.readString());
+
+        Map<String, BFA> bfasByName = new HashMap<>();
+        for (BFA bfa : bfaNetwork.getBFAs()) {
+            bfasByName.put(bfa.getName(), bfa);
+        }
+        BFA[] bfas = new BFA[input.readVarint()];
+        List<Map<String, State>> bfaStates = new ArrayList<>(bfas.length); // states of each BFA, by name
+        for (int i = 0; i < bfas.length; i++) {
+            bfas[i] = resolve(bfasByName, input.readString(), "BFA");
+            Map<String, State> statesByName = new HashMap<>();
+            for (State s : bfas[i].getStates()) {
+                statesByName.put(s.getName(), s);
+            }
+            bfaStates.add(statesByName);
+        }
+        Map<String, Link> linksByName = new HashMap<>();
+        for (Link link : bfaNetwork.getLinks()) {
+            linksByName.put(link.getName(), link);
+        }
+        Link[] links = new Link[input.readVarint()];
+        for (int i = 0; i < links.length; i++) {
+            links[i] = resolve(linksByName, input.readString(), "link");
+        }
+
+        BSState[] states = new BSState[input.readVarint()];
+        for (int i = 0; i < states.length; i++) {
+            String name = input.readString();
+            int flags = input.readVarint();
+            Map<BFA, State> bfaMap = new HashMap<>();
+            for (int j = 0; j < bfas.length; j++) {
+                bfaMap.put(bfas[j], resolve(bfaStates.get(j), input.readString(), "state of " + bfas[j].getName()));
+            }
+            Map<Link, String> linkMap = new HashMap<>();
+            for (Link link : links) {
+                linkMap.put(link, input.readString());
+            }
+            states[i] = new BSState(name, bfaMap, linkMap);
+            putState(builder, states[i], flags);
+        }
+        builder.putInitialState(states[input.readIndex(states.length)]);
+        for (BSState s : states) {
+            int degree = input.readVarint();
+            for (int k = 0; k < degree; k++) {
+                BSState target = states[input.readIndex(states.length)];
+                builder.putTransition(s, target, readBSTransition(input));
+            }
+        }
+        return build(builder);
+    }
+
+    /**
+     * Write {@code decoratedSpaceOfClosures} to {@code out}. The states of the
+     * closures are written as references to the states of the behavioral space
+     * they decorate, by name.
+     */
+    public static void writeDecoratedSpaceOfClosures(
+            FA<FA<DBSState, BSTransition>, DSCTransition> decoratedSpaceOfClosures, OutputStream out)
+            throws IOException {
+        Output output = new Output();
+        List<FA<DBSState, BSTransition>> closures = statesOf(decoratedSpaceOfClosures);
+
+        output.writeString(decoratedSpaceOfClosures.getName());
+        output.writeVarint(closures.size());
+        for (FA<DBSState, BSTransition> closure : closures) {
+            List<DBSState> states = statesOf(closure);
+            output.writeString(closure.getName());
+            output.writeVarint(flags(decoratedSpaceOfClosures, closure));
+            output.writeVarint(states.size());
+            for (DBSState s : states) {
+                output.writeString(s.getName());
+                output.writeString(s.getDecoration());
+                output.writeVarint(flags(closure, s));
+            }
+            output.writeVarint(states.indexOf(closure.getInitialState()));
+            Map<DBSState, Integer> ids = idsOf(states);
+            for (DBSState s : states) {
+                Set<BSTransition> transitions = closure.getNetwork().outEdges(s);
+                output.writeVarint(transitions.size());
+                for (BSTransition t : transitions) {
+                    output.writeVarint(ids.get(closure.getNetwork().incidentNodes(t).target()));
+                    writeBSTransition(output, t);
+                }
+            }
+        }
+        output.writeVarint(closures.indexOf(decoratedSpaceOfClosures.getInitialState()));
+        Map<FA<DBSState, BSTransition>, Integer> ids = idsOf(closures);
+        for (FA<DBSState, BSTransition> closure : closures) {
+            Set<DSCTransition> transitions = decoratedSpaceOfClosures.getNetwork().outEdges(closure);
+            output.writeVarint(transitions.size());
+            for (DSCTransition t : transitions) {
+                output.writeVarint(ids.get(decoratedSpaceOfClosures.getNetwork().incidentNodes(t).target()));
+                writeDSCTransition(output, t);
+            }
+        }
+        output.writeTo(out, DECORATED_SPACE_OF_CLOSURES);
+    }
+
+    /**
+     * Read the decorated space of closures of {@code behavioralSpace} from
+     * {@code in}, which is read to its end. The states of the closures decorate
+     * the states of {@code behavioralSpace}, and their transitions are the ones
+     * of {@code behavioralSpace}, as when the space is computed.
+     *
+     * @throws IOException if {@code in} doesn't contain a decorated space of
+     *                     closures in this format, or if it refers to states not
+     *                     in {@code behavioralSpace}
+     */
+    public static FA<FA<DBSState, BSTransition>, DSCTransition> readDecoratedSpaceOfClosures(InputStream in,
+            FA<BSState, BSTransition> behavioralSpace) throws IOException {
+        Input input = new Input(in, DECORATED_SPACE_OF_CLOSURES);
+        Map<String, BSState> bsStates = statesByName(behavioralSpace);
+        FABuilder<FA<DBSState, BSTransition>, DSCTransition> builder = new FABuilder<>();
+        builder.name(input.readString());
+
+        List<FA<DBSState, BSTransition>> closures = new ArrayList<>();
+        int closuresCount = input.readVarint();
+        for (int c = 0; c < closuresCount; c++) {
+            FABuilder<DBSState, BSTransition> closureBuilder = new FABuilder<>();
+            closureBuilder.name(input.readString());
+            int closureFlags = input.readVarint();
+            DBSState[] states = new DBSState[input.readVarint()];
+            for (int i = 0; i < states.length; i++) {
+                BSState s = resolve(bsStates, input.readString(), "state of the behavioral space");
+                states[i] = new DBSState(s, input.readString());
+                putState(closureBuilder, states[i], input.readVarint());
+            }
+            closureBuilder.putInitialState(states[input.readIndex(states.length)]);
+            for (DBSState s : states) {
+                int degree = input.readVarint();
+                for (int k = 0; k < degree; k++) {
+                    DBSState target = states[input.readIndex(states.length)];
+                    BSTransition t = readBSTransition(input);
+                    closureBuilder.putTransition(s, target,
+                            transitionOf(behavioralSpace, s.getBSState(), target.getBSState(), t));
+                }
+            }
+            FA<DBSState, BSTransition> closure = build(closureBuilder);
+            closures.add(closure);
+            putState(builder, closure, closureFlags);
+        }
+        builder.putInitialState(closures.get(input.readIndex(closures.size())));
+        for (FA<DBSState, BSTransition> closure : closures) {
+            int degree = input.readVarint();
+            for (int k = 0; k < degree; k++) {
+                FA<DBSState, BSTransition> target = closures.get(input.readIndex(closures.size()));
+                builder.putTransition(closure, target, readDSCTransition(input));
+            }
+        }
+        return build(builder);
+    }
+
+    /**
+     * Write {@code diagnostician} to {@code out}. The states of the behavioral
+     * space in the diagnosis of each state are written by name.
+     */
+    public static void writeDiagnostician(Diagnostician diagnostician, OutputStream out) throws IOException {
+        Output output = new Output();
+        FA<FAState, DSCTransition> fa = diagnostician.getFa();
+        List<FAState> states = statesOf(fa);
+
+        output.writeString(fa.getName());
+        output.writeVarint(states.size());
+        for (FAState s : states) {
+            output.writeString(s.getName());
+            output.writeVarint(flags(fa, s));
+            Map<DBSState, String> diagnosis = diagnostician.getDiagnosis().getOrDefault(s, Collections.emptyMap());
+            output.writeVarint(diagnosis.size());
+            for (Map.Entry<DBSState, String> entry : diagnosis.entrySet()) {
+                output.writeString(entry.getKey().getName());
+                output.writeString(entry.getKey().getDecoration());
+                output.writeString(entry.getValue());
+            }
+        }
+        output.writeVarint(states.indexOf(fa.getInitialState()));
+        Map<FAState, Integer> ids = idsOf(states);
+        for (FAState s : states) {
+            Set<DSCTransition> transitions = fa.getNetwork().outEdges(s);
+            output.writeVarint(transitions.size());
+            for (DSCTransition t : transitions) {
+                output.writeVarint(ids.get(fa.getNetwork().incidentNodes(t).target()));
+                writeDSCTransition(output, t);
+            }
+        }
+        output.writeTo(out, DIAGNOSTICIAN);
+    }
+
+    /**
+     * Read a diagnostician from {@code in}, which is read to its end. The
+     * diagnosis of each state refers to the states of {@code behavioralSpace},
+     * or, if it is null, to states of the behavioral space having just a name.
+     *
+     * @throws IOException if {@code in} doesn't contain a diagnostician in this
+     *                     format, or if it refers to states not in
+     *                     {@code behavioralSpace}
+     */
+    public static Diagnostician readDiagnostician(InputStream in, FA<BSState, BSTransition> behavioralSpace)
+            throws IOException {
+        Input input = new Input(in, DIAGNOSTICIAN);
+        Map<String, BSState> bsStates = behavioralSpace == null ? null : statesByName(behavioralSpace);
+        FABuilder<FAState, DSCTransition> builder = new FABuilder<>();
+        builder.name(input.readString());
+
+        Map<FAState, Map<DBSState, String>> diagnosis = new HashMap<>();
+        FAState[] states = new FAState[input.readVarint()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = new FAState(input.readString());
+            putState(builder, states[i], input.readVarint());
+            int entries = input.readVarint();
+            if (entries == 0)
+                continue;
+            Map<DBSState, String> diagnosisOfS = new HashMap<>();
+            for (int k = 0; k < entries; k++) {
+                String name = input.readString();
+                BSState s = bsStates == null ? new BSState(name, Collections.emptyMap(), Collections.emptyMap())
+                        : resolve(bsStates, name, "state of the behavioral space");
+                diagnosisOfS.put(new DBSState(s, input.readString()), input.readString());
+            }
+            diagnosis.put(states[i], diagnosisOfS);
+        }
+        builder.putInitialState(states[input.readIndex(states.length)]);
+        for (FAState s : states) {
+            int degree = input.readVarint();
+            for (int k = 0; k < degree; k++) {
+                FAState target = states[input.readIndex(states.length)];
+                builder.putTransition(s, target, readDSCTransition(input));
+            }
+        }
+        return new Diagnostician(build(builder), diagnosis);
+    }
+
+    private static void writeBSTransition(Output output, BSTransition t) throws IOException {
+        output.writeString(t.getName());
+        output.writeString(t.getRelevanceLabel());
+        output.writeString(t.getObservabilityLabel());
+    }
+
+    private static BSTransition readBSTransition(Input input) throws IOException {
+        return new BSTransition(input.readString(), input.readString(), input.readString());
+    }
+
+    private static void writeDSCTransition(Output output, DSCTransition t) throws IOException {
+        output.writeString(t.getName());
+        output.writeString(t.getSymbol());
+        output.writeString(t.getObservabilityLabel());
+    }
+
+    private static DSCTransition readDSCTransition(Input input) throws IOException {
+        return new DSCTransition(input.readString(), input.readString(), input.readString());
+    }
+
+    /**
+     * Return the transition of {@code behavioralSpace} from {@code source} to
+     * {@code target} with the same name and labels as {@code read}, or
+     * {@code read} itself if there isn't any.
+     */
+    private static BSTransition transitionOf(FA<BSState, BSTransition> behavioralSpace, BSState source,
+            BSState target, BSTransition read) {
+        for (BSTransition t : behavioralSpace.getNetwork().edgesConnecting(source, target)) {
+            if (Objects.equals(t.getName(), read.getName())
+                    && Objects.equals(t.getRelevanceLabel(), read.getRelevanceLabel())
+                    && Objects.equals(t.getObservabilityLabel(), read.getObservabilityLabel()))
+                return t;
+        }
+        return read;
+    }
+
+    private static <S extends State> List<S> statesOf(FA<S, ?> fa) {
+        return new ArrayList<>(fa.getStates());
+    }
+
+    private static <S> Map<S, Integer> idsOf(List<S> states) {
+        Map<S, Integer> ids = new HashMap<>(2 * states.size());
+        for (int i = 0; i < states.size(); i++) {
+            ids.put(states.get(i), i);
+        }
+        return ids;
+    }
+
+    private static Map<String, BSState> statesByName(FA<BSState, BSTransition> behavioralSpace) {
+        Map<String, BSState> states = new HashMap<>();
+        for (BSState s : behavioralSpace.getStates()) {
+            states.put(s.getName(), s);
+        }
+        return states;
+    }
+
+    private static <S extends State> int flags(FA<S, ?> fa, S s) {
+        return (fa.isAcceptance(s) ? ACCEPTANCE : 0) | (fa.isFinal(s) ? FINAL : 0);
+    }
+
+    private static <S extends State> void putState(FABuilder<S, ?> builder, S s, int flags) {
+        builder.putState(s);
+        if ((flags & ACCEPTANCE) != 0)
+            builder.putAcceptanceState(s);
+        if ((flags & FINAL) != 0)
+            builder.putFinalState(s);
+    }
+
+    private static <T> T resolve(Map<String, T> byName, String name, String what) throws IOException {
+        T t = byName.get(name);
+        if (t == null)
+            throw new IOException("Unknown " + what + " " + name + ".");
+        return t;
+    }
+
+    /**
+     * Build the automaton read, which must be valid.
+     */
+    private static <S extends State, T extends graph.fa.Transition> FA<S, T> build(FABuilder<S, T> builder)
+            throws IOException {
+        try {
+            return builder.build();
+        } catch (IllegalStateException e) {
+            throw new IOException("The automaton read is not valid.", e);
+        }
+    }
+
+    /**
+     * The body of an artifact being written, with the table of the strings it
+     * refers to. The header and the table are written before the body, when the
+     * whole artifact is known.
+     */
+    private static final class Output {
+        private final Map<String, Integer> strings = new LinkedHashMap<>(); // position in the table, from 1
+        private final ByteArrayOutputStream body = new ByteArrayOutputStream();
+
+        void writeVarint(int value) throws IOException {
+            BinaryArtifacts.writeVarint(body, value);
+        }
+
+        /**
+         * Write a reference to {@code s} in the table, where 0 stands for null.
+         */
+        void writeString(String s) throws IOException {
+            writeVarint(s == null ? 0 : strings.computeIfAbsent(s, k -> strings.size() + 1));
+        }
+
+        void writeTo(OutputStream out, int kind) throws IOException {
+            DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+            data.writeInt(MAGIC);
+            BinaryArtifacts.writeVarint(data, VERSION);
+            BinaryArtifacts.writeVarint(data, kind);
+            BinaryArtifacts.writeVarint(data, strings.size());
+            for (String s : strings.keySet()) {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                BinaryArtifacts.writeVarint(data, bytes.length);
+                data.write(bytes);
+            }
+            body.writeTo(data);
+            data.flush();
+        }
+    }
+
+    /**
+     * An artifact being read, whose header and table of strings have already
+     * been read.
+     */
+    private static final class Input {
+        private final DataInputStream in;
+        private final String[] strings;
+
+        Input(InputStream in, int kind) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(in));
+            if (this.in.readInt() != MAGIC)
+                throw new IOException("Not an artifact of a BFANetwork.");
+            int version = readVarint();
+            if (version != VERSION)
+                throw new IOException("Unsupported version " + version + " of the format.");
+            if (readVarint() != kind)
+                throw new IOException("Unexpected kind of artifact.");
+            strings = new String[readVarint()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[readVarint()];
+                this.in.readFully(bytes);
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+        }
+
+        int readVarint() throws IOException {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                int b = in.readUnsignedByte();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0)
+                    return value;
+            }
+            throw new IOException("Malformed varint.");
+        }
+
+        /**
+         * Read a position in [0, {@code bound}).
+         */
+        int readIndex(int bound) throws IOException {
+            int index = readVarint();
+            if (index < 0 || index >= bound)
+                throw new IOException("Index " + index + " out of bounds.");
+            return index;
+        }
+
+        String readString() throws IOException {
+            int index = readVarint();
+            if (index < 0 || index > strings.length)
+                throw new IOException("Unknown string " + index + ".");
+            return index == 0 ? null : strings[index - 1];
+        }
+    }
+
+    private static void writeVarint(OutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+}
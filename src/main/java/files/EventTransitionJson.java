@@ -1,9 +1,5 @@
 package files;
 
-import graph.bfa.EventTransition;
-
-import java.util.Set;
-
 class EventTransitionJson {
     String name;
     String source;
@@ -22,16 +18,4 @@ class EventTransitionJson {
         this.observabilityLabel = observabilityLabel;
         this.relevanceLabel = relevanceLabel;
     }
-
-    /**
-     * Converts the EventTransitionJson into an EventTransition by invoking its builder.
-     */
-    EventTransition toEventTransition() {
-        return new EventTransition.Builder(name)
-                .inEvent(inEvent)
-                .outEvents(Set.of(outEvents))
-                .observabilityLabel(observabilityLabel)
-                .relevanceLabel(relevanceLabel)
-                .build();
-    }
 }
@@ -2,8 +2,6 @@ package files;
 
 import com.google.common.graph.EndpointPair;
 import graph.fa.FA;
-import graph.fa.FABuilder;
-import graph.fa.FAState;
 import graph.fa.Transition;
 import graph.nodes.State;
 
@@ -72,34 +70,4 @@ class FAJson {
         }
         return list.toArray(TransitionJson[]::new);
     }
-
-    /**
-     * Converts the JsonFA into a FA by invoking its builder.
-     */
-    FA<FAState, Transition> toFA() {
-        FABuilder builder = new FABuilder<FAState, Transition>();
-
-        // map stateName to FAState
-        Map<String, FAState> namesToStates = new HashMap<>();
-        for (String name : states) {
-            namesToStates.putIfAbsent(name, new FAState(name));
-        }
-
-        builder.putStates(new HashSet<FAState>(namesToStates.values()));
-        builder.putInitialState(namesToStates.get(initialState));
-
-        for (String s : finalStates) {
-            builder.putFinalState(namesToStates.get(s));
-        }
-
-        for (String s : acceptanceStates) {
-            builder.putAcceptanceState(namesToStates.get(s));
-        }
-
-        for (TransitionJson t : transitions) {
-            builder.putTransition(namesToStates.get(t.source), namesToStates.get(t.target), new Transition(t.symbol));
-        }
-
-        return builder.build();
-    }
 }
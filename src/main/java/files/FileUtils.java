@@ -3,7 +3,13 @@ package files;
 import com.google.common.io.Files;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.stream.JsonReader;
 import graph.BFAnetwork.BFANetwork;
+import graph.BFAnetwork.BSState;
+import graph.BFAnetwork.BSTransition;
+import graph.BFAnetwork.DBSState;
+import graph.BFAnetwork.DSCTransition;
+import graph.BFAnetwork.Diagnostician;
 import graph.bfa.BFA;
 import graph.fa.FA;
 import graph.fa.FAState;
@@ -11,6 +17,10 @@ import graph.fa.Transition;
 import graph.nodes.State;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -31,7 +41,11 @@ import static files.Benchmark.*;
  * For example, the structure of a project could be:
  *
  * project_name/ FAs/ fa1.json fa2.json BFAs/ bfa1.json bfa2.json
- * bfa_network.json
+ * bfa_network.json cache/ behavioral_space.bin space_of_closures.bin
+ * diagnostician.bin
+ *
+ * The files in "cache/" hold the artifacts computed from the network, in the
+ * format of {@link BinaryArtifacts}.
  */
 public class FileUtils {
 
@@ -39,6 +53,10 @@ public class FileUtils {
     private static final String BFA_DIR = "BFAs/";
     private static final String BFANETWORK_JSON = "bfa_network.json";
     private static final String BENCHMARKS_JSON = "benchmarks.json";
+    private static final String CACHE_DIR = "cache/";
+    private static final String BEHAVIORAL_SPACE_BIN = "behavioral_space.bin";
+    private static final String DSC_BIN = "space_of_closures.bin";
+    private static final String DIAGNOSTICIAN_BIN = "diagnostician.bin";
     private static final String CURRENT_DIR = "";
     private static final String FILES_ROOT = "files/";
 
@@ -145,6 +163,30 @@ public class FileUtils {
         jsonToFile(json, CURRENT_DIR, BFANETWORK_JSON);
     }
 
+    /**
+     * Store {@code behavioralSpace} in the file "{@code BEHAVIORAL_SPACE_BIN}"
+     * inside the {@code CACHE_DIR} directory of the project.
+     */
+    public void storeBehavioralSpace(FA<BSState, BSTransition> behavioralSpace) {
+        binaryToFile(BEHAVIORAL_SPACE_BIN, out -> BinaryArtifacts.writeBehavioralSpace(behavioralSpace, out));
+    }
+
+    /**
+     * Store {@code decoratedSpaceOfClosures} in the file "{@code DSC_BIN}" inside
+     * the {@code CACHE_DIR} directory of the project.
+     */
+    public void storeDecoratedSpaceOfClosures(FA<FA<DBSState, BSTransition>, DSCTransition> decoratedSpaceOfClosures) {
+        binaryToFile(DSC_BIN, out -> BinaryArtifacts.writeDecoratedSpaceOfClosures(decoratedSpaceOfClosures, out));
+    }
+
+    /**
+     * Store {@code diagnostician} in the file "{@code DIAGNOSTICIAN_BIN}" inside
+     * the {@code CACHE_DIR} directory of the project.
+     */
+    public void storeDiagnostician(Diagnostician diagnostician) {
+        binaryToFile(DIAGNOSTICIAN_BIN, out -> BinaryArtifacts.writeDiagnostician(diagnostician, out));
+    }
+
     /**
      * Store {@code benchmarks} in a file in json format. The file will be called
      * "{@code BENCHMARKS_JSON}" where {@code BENCHMARKS_JSON} is a predefined
@@ -215,6 +257,19 @@ public class FileUtils {
         storeBenchmarks(bms);
     }
 
+    /**
+     * Store the benchmark of the computation of the decorated space of closures,
+     * taking the closures from a cache that may already hold some of them.
+     * Duration has to be in ns.
+     */
+    public void storeCachedDSCBenchmark(long duration) {
+        List<Benchmark> bms = loadBenchmarks();
+        String desc = DSC + FROM_CACHE;
+        Benchmark b = new Benchmark(LocalDateTime.now(), desc, duration);
+        bms.add(b);
+        storeBenchmarks(bms);
+    }
+
     /**
      * Store the benchmark of the computation of the diagnostician. Duration has to
      * be in ns.
@@ -241,6 +296,19 @@ public class FileUtils {
         storeBenchmarks(bms);
     }
 
+    /**
+     * Store the benchmark of the computation of the diagnosis relating to a linear
+     * observation as sets of faults, using the diagnostician of fault-sets.
+     * Duration has to be in ns.
+     */
+    public void storeFaultSetDiagnosisOfLinObsBenchmark(long duration, ArrayList<String> linObs, String diagnosis) {
+        List<Benchmark> bms = loadBenchmarks();
+        String desc = DIAGNOSIS_CALC + OF_LINOBS + linObs.toString() + AS_FAULT_SETS + ".\n" + DIAGNOSIS + diagnosis;
+        Benchmark b = new Benchmark(LocalDateTime.now(), desc, duration);
+        bms.add(b);
+        storeBenchmarks(bms);
+    }
+
     /**
      * load the FA which is encoded as a json file in the project directory under
      * the {FA_DIR} directory.
@@ -249,16 +317,11 @@ public class FileUtils {
      *             ".json" must NOT be included in the name
      */
     public FA<FAState, Transition> loadFA(String name) throws IOException {
-        File file = getFile(FA_DIR, name.concat(".json"));
-        try (Reader reader = new FileReader(file)) {
-            FAJson faJson = gson.fromJson(reader, FAJson.class);
-            if (faJson != null) {
-                return faJson.toFA();
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+        try (JsonReader reader = jsonReader(getFile(FA_DIR, name.concat(".json")))) {
+            return StreamingJsonLoader.readFA(reader);
+        } catch (IllegalStateException e) {
+            throw new IOException(e);
         }
-        throw new IOException();
     }
 
     /**
@@ -266,26 +329,68 @@ public class FileUtils {
      * the {BFA_DIR} directory.
      */
     public BFA loadBFA(String name) throws IOException {
-        File file = getFile(BFA_DIR, name.concat(".json"));
-        Reader reader = new FileReader(file);
-        BFAJson bfaJson = gson.fromJson(reader, BFAJson.class);
-        if (bfaJson != null) {
-            return bfaJson.toBFA();
+        try (JsonReader reader = jsonReader(getFile(BFA_DIR, name.concat(".json")))) {
+            return StreamingJsonLoader.readBFA(reader);
+        } catch (IllegalStateException e) {
+            throw new IOException(e);
         }
-        throw new IOException();
     }
 
     /**
      * load the BFANetwork which is encoded as a json file in the project directory
      */
     public BFANetwork loadBFANetwork() throws IOException {
-        File file = getFile(CURRENT_DIR, BFANETWORK_JSON);
-        Reader reader = new FileReader(file);
-        BFANetworkJson netJson = gson.fromJson(reader, BFANetworkJson.class);
-        if (netJson != null) {
-            return netJson.toBFANetwork();
+        try (JsonReader reader = jsonReader(getFile(CURRENT_DIR, BFANETWORK_JSON))) {
+            return StreamingJsonLoader.readBFANetwork(reader);
+        } catch (IllegalStateException e) {
+            throw new IOException(e);
         }
-        throw new IOException();
+    }
+
+    /**
+     * load the behavioral space of {@code bfaNetwork} stored by
+     * {@link #storeBehavioralSpace(FA)}.
+     *
+     * @throws IOException if it hasn't been stored, or if it is older than the
+     *                     network
+     */
+    public FA<BSState, BSTransition> loadBehavioralSpace(BFANetwork bfaNetwork) throws IOException {
+        return binaryFromFile(BEHAVIORAL_SPACE_BIN, in -> BinaryArtifacts.readBehavioralSpace(in, bfaNetwork));
+    }
+
+    /**
+     * load the decorated space of closures of {@code behavioralSpace} stored by
+     * {@link #storeDecoratedSpaceOfClosures(FA)}.
+     *
+     * @throws IOException if it hasn't been stored, or if it is older than the
+     *                     network
+     */
+    public FA<FA<DBSState, BSTransition>, DSCTransition> loadDecoratedSpaceOfClosures(
+            FA<BSState, BSTransition> behavioralSpace) throws IOException {
+        return binaryFromFile(DSC_BIN, in -> BinaryArtifacts.readDecoratedSpaceOfClosures(in, behavioralSpace));
+    }
+
+    /**
+     * load the diagnostician of {@code behavioralSpace} stored by
+     * {@link #storeDiagnostician(Diagnostician)}.
+     *
+     * @throws IOException if it hasn't been stored, or if it is older than the
+     *                     network
+     */
+    public Diagnostician loadDiagnostician(FA<BSState, BSTransition> behavioralSpace) throws IOException {
+        return binaryFromFile(DIAGNOSTICIAN_BIN, in -> BinaryArtifacts.readDiagnostician(in, behavioralSpace));
+    }
+
+    /**
+     * Open {@code file} for reading json with a buffered reader, accepting the
+     * same (lenient) syntax as {@link Gson#fromJson(Reader, Class)}. Json files
+     * are read and written in UTF-8.
+     */
+    private static JsonReader jsonReader(File file) throws IOException {
+        JsonReader reader = new JsonReader(
+                java.nio.file.Files.newBufferedReader(file.toPath(), StandardCharsets.UTF_8));
+        reader.setLenient(true);
+        return reader;
     }
 
     /**
@@ -312,13 +417,60 @@ public class FileUtils {
      */
     private void jsonToFile(String json, String directory, String fileName) {
         File file = getFile(directory, fileName);
-        try (Writer fw = new FileWriter(file)) {
+        try (Writer fw = java.nio.file.Files.newBufferedWriter(file.toPath(), StandardCharsets.UTF_8)) {
             fw.write(json);
         } catch (IOException e) {
             e.printStackTrace();
         }
     }
 
+    /**
+     * Write an artifact into the file "{@code CACHE_DIR}/{fileName}". The
+     * artifact is written to a temporary file first, which then replaces the
+     * previous one, so that an interrupted write doesn't leave a truncated
+     * artifact behind.
+     */
+    private void binaryToFile(String fileName, ArtifactWriter writer) {
+        Path dir = Paths.get(path + CACHE_DIR);
+        Path temp = dir.resolve(fileName + ".tmp");
+        try {
+            java.nio.file.Files.createDirectories(dir);
+            try (OutputStream out = java.nio.file.Files.newOutputStream(temp)) {
+                writer.write(out);
+            }
+            java.nio.file.Files.move(temp, dir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | IllegalArgumentException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Read the artifact in the file "{@code CACHE_DIR}/{fileName}", unless it is
+     * older than the network it has been computed from (which may have been
+     * changed since).
+     */
+    private <A> A binaryFromFile(String fileName, ArtifactReader<A> reader) throws IOException {
+        Path file = Paths.get(path + CACHE_DIR + fileName);
+        Path network = Paths.get(path + BFANETWORK_JSON);
+        if (java.nio.file.Files.exists(network) && java.nio.file.Files.getLastModifiedTime(file)
+                .compareTo(java.nio.file.Files.getLastModifiedTime(network)) < 0)
+            throw new IOException(file + " is older than " + network + ".");
+        try (InputStream in = java.nio.file.Files.newInputStream(file)) {
+            return reader.read(in);
+        }
+    }
+
+    @FunctionalInterface
+    private interface ArtifactWriter {
+        void write(OutputStream out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface ArtifactReader<A> {
+        A read(InputStream in) throws IOException;
+    }
+
     /**
      * Returns a File given {@code directory} (which is its position) and its
      * {@code fileName}. If any of the folder in the path does not exists, then it
@@ -1,7 +1,5 @@
 package files;
 
-import graph.BFAnetwork.Link;
-
 class LinkJson {
     String name;
     String source;
@@ -12,12 +10,4 @@ class LinkJson {
         this.source = source;
         this.target = target;
     }
-
-
-    /**
-     * Converts the EventTransitionJson into an EventTransition by invoking its builder.
-     */
-    Link toLink() {
-        return new Link(name);
-    }
 }
@@ -0,0 +1,307 @@
+package files;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import graph.BFAnetwork.BFANetwork;
+import graph.BFAnetwork.BFANetworkBuilder;
+import graph.BFAnetwork.Link;
+import graph.bfa.BFA;
+import graph.bfa.BFABuilder;
+import graph.bfa.EventTransition;
+import graph.fa.FA;
+import graph.fa.FABuilder;
+import graph.fa.FAState;
+import graph.fa.Transition;
+
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * This class loads FAs, BFAs and BFANetworks from their json format (the one
+ * written through {@link FAJson}, {@link BFAJson} and {@link BFANetworkJson})
+ * while parsing it: each state, transition and link is put into the builder as
+ * soon as it is read, instead of deserializing the whole file into arrays of
+ * json objects and then converting them, so that no intermediate copy of the
+ * automaton is kept in memory.
+ *
+ * The fields of a json object can come in any order, so states are created the
+ * first time their name is read (whether in the list of states or as an
+ * endpoint of a transition), and links are kept aside only if they are read
+ * before the BFAs they connect.
+ */
+final class StreamingJsonLoader {
+
+    private StreamingJsonLoader() {
+    }
+
+    /**
+     * Read a FA in the format of {@link FAJson}.
+     */
+    static FA<FAState, Transition> readFA(JsonReader reader) throws IOException {
+        FABuilder<FAState, Transition> builder = new FABuilder<>();
+        Map<String, FAState> states = new HashMap<>();
+        beginDocument(reader);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    builder.name(nextString(reader));
+                    break;
+                case "states":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        builder.putState(state(states, reader.nextString()));
+                    }
+                    reader.endArray();
+                    break;
+                case "initialState":
+                    builder.putInitialState(state(states, reader.nextString()));
+                    break;
+                case "acceptanceStates":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        builder.putAcceptanceState(state(states, reader.nextString()));
+                    }
+                    reader.endArray();
+                    break;
+                case "finalStates":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        builder.putFinalState(state(states, reader.nextString()));
+                    }
+                    reader.endArray();
+                    break;
+                case "transitions":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readTransition(reader, builder, states);
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    /**
+     * Read a transition in the format of {@link TransitionJson} and put it into
+     * {@code builder}.
+     */
+    private static void readTransition(JsonReader reader, FABuilder<FAState, Transition> builder,
+            Map<String, FAState> states) throws IOException {
+        String source = null;
+        String target = null;
+        String symbol = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "source":
+                    source = nextString(reader);
+                    break;
+                case "target":
+                    target = nextString(reader);
+                    break;
+                case "symbol":
+                    symbol = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        builder.putTransition(state(states, source), state(states, target), new Transition(symbol));
+    }
+
+    /**
+     * Read a BFA in the format of {@link BFAJson}.
+     */
+    static BFA readBFA(JsonReader reader) throws IOException {
+        beginDocument(reader);
+        return readBFAObject(reader);
+    }
+
+    private static BFA readBFAObject(JsonReader reader) throws IOException {
+        BFABuilder builder = new BFABuilder(null);
+        Map<String, FAState> states = new HashMap<>();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    builder.name(nextString(reader));
+                    break;
+                case "states":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        builder.putState(state(states, reader.nextString()));
+                    }
+                    reader.endArray();
+                    break;
+                case "initialState":
+                    builder.putInitialState(state(states, reader.nextString()));
+                    break;
+                case "transitions":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        readEventTransition(reader, builder, states);
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return builder.build();
+    }
+
+    /**
+     * Read a transition in the format of {@link EventTransitionJson} and put it
+     * into {@code builder}.
+     */
+    private static void readEventTransition(JsonReader reader, BFABuilder builder, Map<String, FAState> states)
+            throws IOException {
+        String name = null;
+        String source = null;
+        String target = null;
+        String inEvent = null;
+        Set<String> outEvents = new HashSet<>();
+        String observabilityLabel = null;
+        String relevanceLabel = null;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    name = nextString(reader);
+                    break;
+                case "source":
+                    source = nextString(reader);
+                    break;
+                case "target":
+                    target = nextString(reader);
+                    break;
+                case "inEvent":
+                    inEvent = nextString(reader);
+                    break;
+                case "outEvents":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        outEvents.add(reader.nextString());
+                    }
+                    reader.endArray();
+                    break;
+                case "observabilityLabel":
+                    observabilityLabel = nextString(reader);
+                    break;
+                case "relevanceLabel":
+                    relevanceLabel = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        EventTransition transition = new EventTransition.Builder(name).inEvent(inEvent).outEvents(outEvents)
+                .observabilityLabel(observabilityLabel).relevanceLabel(relevanceLabel).build();
+        builder.putTransition(state(states, source), state(states, target), transition);
+    }
+
+    /**
+     * Read a BFANetwork in the format of {@link BFANetworkJson}.
+     */
+    static BFANetwork readBFANetwork(JsonReader reader) throws IOException {
+        BFANetworkBuilder builder = new BFANetworkBuilder();
+        Map<String, BFA> bfas = new HashMap<>();
+        List<String[]> pendingLinks = new ArrayList<>(); // links read before their BFAs: name, source, target
+        beginDocument(reader);
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "bfas":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        BFA bfa = readBFAObject(reader);
+                        if (bfas.putIfAbsent(bfa.getName(), bfa) == null)
+                            builder.putBFA(bfa);
+                    }
+                    reader.endArray();
+                    break;
+                case "links":
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        String[] link = readLink(reader);
+                        if (bfas.containsKey(link[1]) && bfas.containsKey(link[2]))
+                            builder.putLink(bfas.get(link[1]), bfas.get(link[2]), new Link(link[0]));
+                        else
+                            pendingLinks.add(link);
+                    }
+                    reader.endArray();
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        for (String[] link : pendingLinks) {
+            builder.putLink(bfas.get(link[1]), bfas.get(link[2]), new Link(link[0]));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Read a link in the format of {@link LinkJson}.
+     *
+     * @return its name, source and target
+     */
+    private static String[] readLink(JsonReader reader) throws IOException {
+        String[] link = new String[3];
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "name":
+                    link[0] = nextString(reader);
+                    break;
+                case "source":
+                    link[1] = nextString(reader);
+                    break;
+                case "target":
+                    link[2] = nextString(reader);
+                    break;
+                default:
+                    reader.skipValue();
+            }
+        }
+        reader.endObject();
+        return link;
+    }
+
+    /**
+     * Check that the document isn't null. An empty document (like the json files
+     * created but never written) makes {@link JsonReader#peek()} throw an
+     * {@link java.io.EOFException}.
+     */
+    private static void beginDocument(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL)
+            throw new IOException("The document is null.");
+    }
+
+    /**
+     * @return the next string, or null if the next value is null
+     */
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
+
+    /**
+     * Return the state named {@code name}, creating it the first time.
+     */
+    private static FAState state(Map<String, FAState> states, String name) {
+        return states.computeIfAbsent(name, FAState::new);
+    }
+}
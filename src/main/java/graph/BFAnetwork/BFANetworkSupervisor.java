@@ -1,17 +1,31 @@
 package graph.BFAnetwork;
 
+import com.google.common.base.Throwables;
 import com.google.common.collect.MoreCollectors;
-import com.google.common.collect.Sets;
 import com.google.common.graph.*;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
 import java.util.stream.Collectors;
 
+import graph.StronglyConnectedComponents;
 import graph.fa.*;
 import graph.bfa.BFA;
 import graph.bfa.EventTransition;
 import graph.nodes.State;
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static graph.fa.Constants.EPS;
@@ -27,6 +41,21 @@ import static graph.fa.Constants.EPS;
 
 public final class BFANetworkSupervisor {
 
+    /**
+     * The minimum number of states of a behavioral space whose silent closures are
+     * decorated in parallel by default
+     */
+    public static final int PARALLEL_THRESHOLD = 256;
+
+    /**
+     * The diagnosis written by
+     * {@link #linearDiagnoses(CompiledDiagnostician, BufferedReader, Writer, int)}
+     * for the linear observations which are not inherent to the diagnostician
+     */
+    public static final String NOT_INHERENT = "!";
+    // number of observations read ahead for each thread by the batch diagnosis
+    private static final int BATCH_READ_AHEAD = 4;
+
     private BFANetworkSupervisor() {
     }
 
@@ -299,6 +328,70 @@ public final class BFANetworkSupervisor {
         return fa;
     }
 
+    /**
+     * Create the behavioral space related to an uncertain observation, i.e. the
+     * product of the behavioral space with the observation automaton
+     * {@code observation}, generalizing
+     * {@link #getBehavioralSpaceForLinearObservation(BFANetwork, List)}: the
+     * observation index of each state is the state of the observation automaton
+     * reached so far. Only the states reachable from the initial one are
+     * explored, and they are looked up in a map, so that each of them is
+     * created once.
+     *
+     * @throws InvalidAlgorithmParameterException if the behavioral space can't be
+     *                                            built, e.g. because no final state
+     *                                            is consistent with the observation
+     */
+    public static final FA<LOBSState, BSTransition> getBehavioralSpaceForObservation(BFANetwork bfaNetwork,
+            ObservationAutomaton observation) throws InvalidAlgorithmParameterException {
+        FABuilder<LOBSState, BSTransition> faBuilder = new FABuilder<>();
+        LOBSState networkState = getBFANetworkLOBSState(bfaNetwork);
+        networkState.setObservationIndex(observation.getInitialState());
+        faBuilder.putInitialState(networkState);
+        if (observation.isAcceptance(networkState.getObservationIndex()) && networkState.isFinal())
+            faBuilder.putFinalState(networkState).putAcceptanceState(networkState);
+
+        Map<LOBSState, LOBSState> states = new HashMap<>();
+        states.put(networkState, networkState);
+        Deque<LOBSState> toExplore = new ArrayDeque<>(List.of(networkState));
+        while (!toExplore.isEmpty()) {
+            LOBSState state = toExplore.remove();
+            rollbackBFANetwork(state);
+            for (BFA bfa : bfaNetwork.getBFAs()) {
+                for (EventTransition transition : getTransitionsEnabledInBfa(bfaNetwork, bfa)) {
+                    String label = transition.getObservabilityLabel();
+                    int[] targets = label.equals("") ? new int[] { state.getObservationIndex() }
+                            : observation.getTargets(state.getObservationIndex(), label);
+                    if (targets.length == 0)
+                        continue;
+                    executeTransition(bfaNetwork, bfa, transition);
+                    for (int target : targets) {
+                        LOBSState newState = getBFANetworkLOBSState(bfaNetwork);
+                        newState.setObservationIndex(target);
+                        LOBSState existent = states.putIfAbsent(newState, newState);
+                        if (existent == null) {
+                            existent = newState;
+                            if (observation.isAcceptance(target) && newState.isFinal())
+                                faBuilder.putFinalState(newState).putAcceptanceState(newState);
+                            faBuilder.putState(newState);
+                            toExplore.add(newState);
+                        }
+                        faBuilder.putTransition(state, existent, new BSTransition(transition.getName(),
+                                transition.getRelevanceLabel(), transition.getObservabilityLabel()));
+                    }
+                    rollbackBFANetwork(state);
+                }
+            }
+        }
+        rollbackBFANetwork(networkState);
+
+        try {
+            return faBuilder.build();
+        } catch (Exception e) {
+            throw new InvalidAlgorithmParameterException();
+        }
+    }
+
     /**
      * Removes the states of the provided FA from which it can't be reached a final
      * state.
@@ -308,36 +401,31 @@ public final class BFANetworkSupervisor {
      * @return true if at least one state has been removed, false otherwise
      */
     public static <S extends State> boolean pruneFA(FA<S, ?> fa) {
+        // a final state can be reached from a component if it contains one, or if
+        // it can be reached from one of the following components
+        StronglyConnectedComponents<S> components = StronglyConnectedComponents.of(fa.getNetwork());
+        boolean[] coreachable = new boolean[components.getComponentsCount()];
         Set<S> toRemove = new HashSet<>();
-        for (S s : fa.getStates()) {
-            Set<S> reachableNodes = reachableNodes(fa.getNetwork(), s); // get the set of nodes reachable from s
-            // if (reachableNodes.stream().noneMatch(S::isFinal))
-            if (Collections.disjoint(reachableNodes, fa.getFinalStates())) {
-                toRemove.add(s);
+        for (int c = components.getComponentsCount() - 1; c >= 0; c--) {
+            coreachable[c] = components.getNodes(c).stream().anyMatch(fa.getFinalStates()::contains);
+            for (int next : components.getSuccessors(c)) {
+                coreachable[c] |= coreachable[next];
             }
+            if (!coreachable[c])
+                toRemove.addAll(components.getNodes(c));
         }
         toRemove.forEach(s -> fa.getNetwork().removeNode(s));
         return toRemove.isEmpty() ? false : true;
     }
 
     /**
-     * Returns the nodes in {@code network} that are reachable from {@code n}.
+     * Compute the strongly connected components of {@code behavioralSpace}
+     * considering only its non-observable transitions, i.e. the components the
+     * silent closures are made of.
      */
-    private static <N> Set<N> reachableNodes(Network<N, ?> network, N n) {
-        checkArgument(network.nodes().contains(n), "Node %s is not an element of this network.", n);
-        Queue<N> queue = new ArrayDeque<>();
-        Set<N> visited = new HashSet<>();
-        visited.add(n);
-        queue.add(n);
-        while (!queue.isEmpty()) {
-            N current = queue.remove();
-            for (N neighbor : network.successors(current)) {
-                if (visited.add(neighbor)) {
-                    queue.add(neighbor);
-                }
-            }
-        }
-        return visited;
+    public static <S extends State> StronglyConnectedComponents<S> silentComponents(
+            FA<S, BSTransition> behavioralSpace) {
+        return StronglyConnectedComponents.of(behavioralSpace.getNetwork(), t -> !t.hasObservabilityLabel());
     }
 
     /**
@@ -355,6 +443,38 @@ public final class BFANetworkSupervisor {
      * @return a FA corresponding to the silent closure of {@code state}
      */
     public static <S extends State> FA<S, BSTransition> silentClosure(FA<S, BSTransition> behavioralSpace, S state) {
+        checkEntryState(behavioralSpace, state);
+
+        // find nodes reachable through non-observable transitions, without
+        // visiting the rest of the behavioral space
+        MutableNetwork<S, BSTransition> network = behavioralSpace.getNetwork();
+        Set<S> nodes = new HashSet<>();
+        Queue<S> queue = new ArrayDeque<>();
+        nodes.add(state);
+        queue.add(state);
+        while (!queue.isEmpty()) {
+            for (BSTransition t : network.outEdges(queue.remove())) {
+                S target = network.incidentNodes(t).target();
+                if (!t.hasObservabilityLabel() && nodes.add(target))
+                    queue.add(target);
+            }
+        }
+        return silentClosure(behavioralSpace, state, nodes);
+    }
+
+    /**
+     * Compute the silent closure of {@code state} relative to
+     * {@code behavioralSpace}, given the strongly connected components of its
+     * non-observable transitions (see {@link #silentComponents(FA)}). Computing
+     * them once allows to extract many closures visiting only their components.
+     */
+    public static <S extends State> FA<S, BSTransition> silentClosure(FA<S, BSTransition> behavioralSpace, S state,
+            StronglyConnectedComponents<S> silentComponents) {
+        checkEntryState(behavioralSpace, state);
+        return silentClosure(behavioralSpace, state, silentComponents.reachableNodes(state));
+    }
+
+    private static <S extends State> void checkEntryState(FA<S, BSTransition> behavioralSpace, S state) {
         checkArgument(behavioralSpace.getStates().contains(state), "State %s does not belong to behavioral space %s",
                 state, behavioralSpace);
         // check that state has at least one incoming observable transition
@@ -362,32 +482,36 @@ public final class BFANetworkSupervisor {
                 behavioralSpace.getNetwork().inEdges(state).stream().anyMatch(BSTransition::hasObservabilityLabel)
                         || behavioralSpace.isInitial(state),
                 "The provided state is neither initial, nor has any incoming observable transition");
+    }
 
-        MutableNetwork<S, BSTransition> network = Graphs.copyOf(behavioralSpace.getNetwork());
-
-        // collect and remove observable transitions
-        Set<BSTransition> observableTransitions = network.edges().stream().filter(BSTransition::hasObservabilityLabel)
-                .collect(Collectors.toSet());
-        observableTransitions.forEach(t -> network.removeEdge(t));
-
-        // find nodes reachable through non-observable transitions (since those
-        // transitions have just been removed)
-        Set<S> nodes = reachableNodes(network, state);
-
-        // keep only transitions between nodes both reachable from state
-        MutableNetwork<S, BSTransition> inducedSubgraph = Graphs.inducedSubgraph(network, nodes);
-
+    /**
+     * Build the silent closure of {@code state} made of {@code nodes}, the states
+     * reachable from {@code state} through non-observable transitions. Only the
+     * transitions leaving {@code nodes} are visited, so the cost is proportional
+     * to the size of the closure rather than to the size of the behavioral space.
+     */
+    private static <S extends State> FA<S, BSTransition> silentClosure(FA<S, BSTransition> behavioralSpace, S state,
+            Set<S> nodes) {
+        MutableNetwork<S, BSTransition> network = behavioralSpace.getNetwork();
+        MutableNetwork<S, BSTransition> closureNetwork = NetworkBuilder.from(network)
+                .expectedNodeCount(nodes.size()).build();
         // collect all final and exit states into acceptance states
-        Set<S> finalStates = Sets.intersection(inducedSubgraph.nodes(), behavioralSpace.getFinalStates());
-        Set<S> exitStates = inducedSubgraph.nodes().stream().filter(
-                s -> behavioralSpace.getNetwork().outEdges(s).stream().anyMatch(BSTransition::hasObservabilityLabel))
-                .collect(Collectors.toSet());
-
-        Set<S> acceptanceStates = Sets.union(finalStates, exitStates);
-
-        FA<S, BSTransition> silentClosure = new FA<>(state.getName(), inducedSubgraph, state, acceptanceStates,
-                finalStates);
-        return silentClosure;
+        Set<S> finalStates = new HashSet<>();
+        Set<S> acceptanceStates = new HashSet<>();
+        for (S s : nodes) {
+            closureNetwork.addNode(s);
+            if (behavioralSpace.isFinal(s)) {
+                finalStates.add(s);
+                acceptanceStates.add(s);
+            }
+            for (BSTransition t : network.outEdges(s)) {
+                if (t.hasObservabilityLabel())
+                    acceptanceStates.add(s);
+                else
+                    closureNetwork.addEdge(s, network.incidentNodes(t).target(), t);
+            }
+        }
+        return new FA<>(state.getName(), closureNetwork, state, acceptanceStates, finalStates);
     }
 
     /**
@@ -398,7 +522,25 @@ public final class BFANetworkSupervisor {
      *         the corresponding decorations
      */
     public static FA<DBSState, BSTransition> decoratedSilentClosure(FA<BSState, BSTransition> silentClosure) {
-        Map<BSState, String> acceptedLanguages = AcceptedLanguages.reduceFAtoMapOfRegex(silentClosure);
+        return decoratedSilentClosure(silentClosure, LanguageExtractor.DEFAULT);
+    }
+
+    /**
+     * Decorate the silent closure {@code silentClosure}, computing the decorations
+     * with the algorithm {@code extractor}.
+     */
+    public static FA<DBSState, BSTransition> decoratedSilentClosure(FA<BSState, BSTransition> silentClosure,
+            LanguageExtractor extractor) {
+        return decoratedSilentClosure(silentClosure,
+                AcceptedLanguages.reduceFAtoMapOfRegex(silentClosure, extractor));
+    }
+
+    /**
+     * Decorate the silent closure {@code silentClosure} with the languages
+     * {@code acceptedLanguages} of its acceptance states, already computed.
+     */
+    static FA<DBSState, BSTransition> decoratedSilentClosure(FA<BSState, BSTransition> silentClosure,
+            Map<BSState, String> acceptedLanguages) {
         MutableNetwork<BSState, BSTransition> network = silentClosure.getNetwork();
 
         FABuilder<DBSState, BSTransition> faBuilder = new FABuilder<>();
@@ -408,7 +550,11 @@ public final class BFANetworkSupervisor {
         Map<BSState, DBSState> states = new HashMap<>();
 
         for (BSState s : silentClosure.getStates()) {
-            DBSState decState = new DBSState(s, acceptedLanguages.get(s));
+            // an acceptance state whose language hasn't been computed can only be
+            // reached through the empty path
+            String decoration = silentClosure.isAcceptance(s) ? acceptedLanguages.getOrDefault(s, EPS)
+                    : acceptedLanguages.get(s);
+            DBSState decState = new DBSState(s, decoration);
             states.put(s, decState);
             if (silentClosure.isInitial(s))
                 faBuilder.putInitialState(decState);
@@ -444,28 +590,88 @@ public final class BFANetworkSupervisor {
     }
 
     /**
-     * Compute the decorated space of closures from a behavioral space
+     * Compute the decorated space of closures from a behavioral space. Silent
+     * closures are decorated in parallel with one thread per available processor,
+     * unless the behavioral space has less than {@link #PARALLEL_THRESHOLD}
+     * states: on small spaces starting the threads costs more than decorating the
+     * closures.
      *
      * @return a finite automata, whose nodes are silent closures
      */
     public static FA<FA<DBSState, BSTransition>, DSCTransition> decoratedSpaceOfClosures(
             FA<BSState, BSTransition> behavioralSpace) {
-        // collect states that are valid entry states for a silent closure.
-        Set<BSState> entryPoints = behavioralSpace.getStates().stream().filter(
-                s -> behavioralSpace.getNetwork().inEdges(s).stream().anyMatch(BSTransition::hasObservabilityLabel))
-                .collect(Collectors.toSet());
-        entryPoints.add(behavioralSpace.getInitialState());
+        return decoratedSpaceOfClosures(new ClosureCache(behavioralSpace));
+    }
 
-        // build a Map <EntryState, SilentClosure>
-        Map<BSState, FA<DBSState, BSTransition>> decoratedSilentClosures = new HashMap<>();
-        for (BSState s : entryPoints) {
-            FA<BSState, BSTransition> silentClosure = BFANetworkSupervisor.silentClosure(behavioralSpace, s);
-            decoratedSilentClosures.put(s, BFANetworkSupervisor.decoratedSilentClosure(silentClosure));
+    /**
+     * Compute the decorated space of closures of the behavioral space of
+     * {@code cache}, taking the silent closures from {@code cache}, with the same
+     * number of threads as {@link #decoratedSpaceOfClosures(FA)}.
+     *
+     * @return a finite automata, whose nodes are silent closures
+     */
+    public static FA<FA<DBSState, BSTransition>, DSCTransition> decoratedSpaceOfClosures(ClosureCache cache) {
+        int parallelism = cache.getBehavioralSpace().getStates().size() < PARALLEL_THRESHOLD ? 1
+                : Runtime.getRuntime().availableProcessors();
+        return decoratedSpaceOfClosures(cache, parallelism);
+    }
+
+    /**
+     * Compute the decorated space of closures from a behavioral space. Since each
+     * silent closure is independent from the others, closures and their outgoing
+     * transitions are computed in parallel by {@code parallelism} threads, each one
+     * with its own builders, then they are merged into the space in alphabetical
+     * order of their entry states, so that the result doesn't depend on the
+     * scheduling of the threads.
+     *
+     * @param parallelism the number of threads; if 1, closures are computed by the
+     *                    calling thread
+     * @return a finite automata, whose nodes are silent closures
+     */
+    public static FA<FA<DBSState, BSTransition>, DSCTransition> decoratedSpaceOfClosures(
+            FA<BSState, BSTransition> behavioralSpace, int parallelism) {
+        return decoratedSpaceOfClosures(new ClosureCache(behavioralSpace), parallelism);
+    }
+
+    /**
+     * Compute the decorated space of closures of the behavioral space of
+     * {@code cache}, taking the silent closures from {@code cache}.
+     *
+     * @param parallelism the number of threads; if 1, closures are computed by the
+     *                    calling thread
+     * @return a finite automata, whose nodes are silent closures
+     */
+    public static FA<FA<DBSState, BSTransition>, DSCTransition> decoratedSpaceOfClosures(ClosureCache cache,
+            int parallelism) {
+        FA<BSState, BSTransition> behavioralSpace = cache.getBehavioralSpace();
+        checkArgument(parallelism > 0, "The number of threads must be positive, but it is %s", parallelism);
+        // collect states that are valid entry states for a silent closure.
+        List<BSState> entryPoints = behavioralSpace.getStates().stream()
+                .filter(s -> behavioralSpace.isInitial(s) || behavioralSpace.getNetwork().inEdges(s).stream()
+                        .anyMatch(BSTransition::hasObservabilityLabel))
+                .sorted(Comparator.comparing(BSState::getName)).collect(Collectors.toList());
+
+        DecoratedClosure[] closures = new DecoratedClosure[entryPoints.size()];
+        ClosuresTask task = new ClosuresTask(cache, entryPoints, closures, 0, closures.length, parallelism > 1);
+        if (parallelism == 1) {
+            task.compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
         }
 
         // build the decorated space of closures
+        Map<BSState, FA<DBSState, BSTransition>> decoratedSilentClosures = new HashMap<>();
+        for (int i = 0; i < closures.length; i++) {
+            decoratedSilentClosures.put(entryPoints.get(i), closures[i].closure);
+        }
         FABuilder<FA<DBSState, BSTransition>, DSCTransition> faBuilder = new FABuilder();
-        for (FA<DBSState, BSTransition> sc1 : decoratedSilentClosures.values()) {
+        for (DecoratedClosure dc : closures) {
+            FA<DBSState, BSTransition> sc1 = dc.closure;
             // check if it is the initial silent closure
             if (behavioralSpace.isInitial(sc1.getInitialState().getBSState())) {
                 faBuilder.putInitialState(sc1);
@@ -475,25 +681,91 @@ public final class BFANetworkSupervisor {
             if (!sc1.getFinalStates().isEmpty()) {
                 faBuilder.putAcceptanceState(sc1);
             }
+            for (int k = 0; k < dc.transitions.size(); k++) {
+                faBuilder.putTransition(sc1, decoratedSilentClosures.get(dc.targets.get(k)), dc.transitions.get(k));
+            }
+        }
+        return faBuilder.build();
+    }
+
+    /**
+     * A decorated silent closure, together with the observable transitions
+     * leaving it and the entry states they lead to.
+     */
+    private static final class DecoratedClosure {
+        private final FA<DBSState, BSTransition> closure;
+        private final List<BSState> targets = new ArrayList<>();
+        private final List<DSCTransition> transitions = new ArrayList<>();
+
+        DecoratedClosure(FA<DBSState, BSTransition> closure) {
+            this.closure = closure;
+        }
+    }
+
+    /**
+     * The task decorating the silent closures of the entry states in
+     * [from, to). If it is parallel, it splits the range in halves until a single
+     * closure is left; otherwise it decorates the whole range in the thread
+     * running it, even if that thread belongs to some other ForkJoinPool.
+     */
+    private static final class ClosuresTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final ClosureCache cache;
+        private final FA<BSState, BSTransition> behavioralSpace;
+        private final List<BSState> entryPoints;
+        private final DecoratedClosure[] closures;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        ClosuresTask(ClosureCache cache, List<BSState> entryPoints, DecoratedClosure[] closures, int from, int to,
+                boolean parallel) {
+            this.cache = cache;
+            this.behavioralSpace = cache.getBehavioralSpace();
+            this.entryPoints = entryPoints;
+            this.closures = closures;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            if (parallel && to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ClosuresTask(cache, entryPoints, closures, from, mid, true),
+                        new ClosuresTask(cache, entryPoints, closures, mid, to, true));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                closures[i] = decorate(entryPoints.get(i));
+            }
+        }
+
+        private DecoratedClosure decorate(BSState entry) {
+            DecoratedClosure dc = new DecoratedClosure(cache.decoratedSilentClosure(entry));
 
-            // find states of sc1 with observable outgoing transitions
-            Set<DBSState> exitStates = sc1.getAcceptanceStates().stream().filter(s -> behavioralSpace.getNetwork()
-                    .outEdges(s.getBSState()).stream().anyMatch(BSTransition::hasObservabilityLabel))
-                    .collect(Collectors.toSet());
+            // find states of the closure with observable outgoing transitions
+            List<DBSState> exitStates = dc.closure.getAcceptanceStates().stream()
+                    .filter(s -> behavioralSpace.getNetwork().outEdges(s.getBSState()).stream()
+                            .anyMatch(BSTransition::hasObservabilityLabel))
+                    .sorted(Comparator.comparing(DBSState::getName)).collect(Collectors.toList());
 
-            // find observable transitions from each exit state of sc1 and build the space
+            // find observable transitions from each exit state
             for (DBSState source : exitStates) {
                 for (BSTransition t : behavioralSpace.getNetwork().outEdges(source.getBSState())) {
                     if (t.hasObservabilityLabel()) {
-                        BSState target = behavioralSpace.getNetwork().incidentNodes(t).target();
-                        FA<DBSState, BSTransition> sc2 = decoratedSilentClosures.get(target);
-                        faBuilder.putTransition(sc1, sc2,
-                                new DSCTransition(t.getName(),source.getDecoration() + t.getRelevanceLabel(), t.getObservabilityLabel()));
+                        String symbol = RegExSimplifier.simplify(RegExes.concat(
+                                RegExes.parse(source.getDecoration()), RegExes.parse(t.getRelevanceLabel())))
+                                .toString();
+                        dc.targets.add(behavioralSpace.getNetwork().incidentNodes(t).target());
+                        dc.transitions.add(new DSCTransition(t.getName(), symbol, t.getObservabilityLabel()));
                     }
                 }
             }
+            return dc;
         }
-        return faBuilder.build();
     }
 
     /**
@@ -539,42 +811,6 @@ public final class BFANetworkSupervisor {
         return new Diagnostician(fa, diagnosis);
     }
 
-    private static String concatenateRegEx(String r1, String r2) {
-        if (r1.equals(""))
-            return r2;
-        else if (r2.equals(""))
-            return r1;
-        if (r1.contains("|"))
-            r1 = "(" + r1 + ")";
-        if (r2.contains("|"))
-            r2 = "(" + r2 + ")";
-        return r1 + r2;
-        /*
-         * else if (r1.length() == 1 && r2.length() == 1) return r1 + r2; else if
-         * (r1.length() == 1) return r1 + "(" + r2 + ")"; else if (r2.length() == 1)
-         * return "(" + r1 + ")" + r2; return r1 + "(" + r2 + ")";
-         */
-    }
-
-    private static String disjointRegEx(String r1, String r2) {
-        if (r1.equals(r2))
-            return r1;
-        if (r1.contains("|"))
-            r1 = "(" + r1 + ")";
-        if (r2.contains("|"))
-            r2 = "(" + r2 + ")";
-        return r1 + "|" + r2;
-        /*
-         * else if (r1.length() == 1 && r2.length() == 1) return r1 + "|" + r2; else if
-         * (r1.length() == 1 && r2.length() > 1) return r1 + "|(" + r2 + ")"; else if
-         * (r2.length() == 1 && r1.length() > 1) return "(" + r1 + ")|" + r2; else if
-         * (r1.equals("")) return "|(" + r2 + ")"; else if (r2.equals("")) return "(" +
-         * r1 + ")|";
-         * 
-         * return "(" + r1 + ")|(" + r2 + ")";
-         */
-    }
-
     /**
      * Computes the linear diagnosis relating to the linear observation @code
      * linObs} of a behavioral network, given its diagnostician
@@ -588,27 +824,22 @@ public final class BFANetworkSupervisor {
             throws InvalidAlgorithmParameterException {
         FA<FAState, DSCTransition> fa = diagnostician.getFa();
         FAState x0 = fa.getInitialState();
-        Map<FAState, String> X = new HashMap<>();
-        X.put(x0, EPS);
+        Map<FAState, RegEx> X = new HashMap<>();
+        X.put(x0, RegExes.epsilon());
+        // decorations of the transitions, parsed only once
+        Map<DSCTransition, RegEx> symbols = new HashMap<>();
         for (String o : linObs) {
-            Map<FAState, String> Xnew = new HashMap<>();
+            Map<FAState, RegEx> Xnew = new HashMap<>();
             for (FAState x1 : X.keySet()) {
-                String r1 = X.get(x1);
+                RegEx r1 = X.get(x1);
                 // get observable transitions from x1
                 Set<DSCTransition> outTransitions = fa.getNetwork().outEdges(x1).stream()
                         .filter(t -> t.getObservabilityLabel().equals(o)).collect(Collectors.toSet());
                 for (DSCTransition t : outTransitions) {
                     FAState x2 = fa.getNetwork().incidentNodes(t).target();
-                    String r2 = concatenateRegEx(r1, t.getSymbol());
-                    // String r2 = "(" + r1 + ")(" + t.getSymbol() + ")"; // line 6 of algorithm of
-                    // page 85
-                    if (Xnew.containsKey(x2)) {
-                        r2 = disjointRegEx(Xnew.get(x2), r2);
-                        // r2 = "(" + Xnew.get(x2) + ")|(" + r2 + ")";
-                        Xnew.replace(x2, r2);
-                    } else {
-                        Xnew.put(x2, r2);
-                    }
+                    // line 6 of algorithm of page 85
+                    RegEx r2 = RegExes.concat(r1, symbols.computeIfAbsent(t, s -> RegExes.parse(s.getSymbol())));
+                    Xnew.merge(x2, r2, RegExes::union);
                 }
             }
             X = Xnew;
@@ -621,15 +852,497 @@ public final class BFANetworkSupervisor {
             throw new InvalidAlgorithmParameterException();
         }
 
-        StringBuilder sb = new StringBuilder();
-
+        List<RegEx> alternatives = new ArrayList<>();
         for (FAState x : X.keySet()) {
-            sb.append("(" + X.get(x) + ")(" + diagnostician.getDiagnosisOf(x) + ")|");
+            alternatives.add(RegExes.concat(X.get(x), RegExes.parse(diagnostician.getDiagnosisOf(x))));
         }
-        sb.setLength(sb.length() - 1);
-        String res = sb.toString().replaceAll("null", "");
-        return res;
+        return RegExSimplifier.simplify(RegExes.union(alternatives)).toString();
+    }
 
+    /**
+     * Computes the linear diagnosis relating to the linear observation
+     * {@code linObs} using the compiled form of a diagnostician.
+     *
+     * @return A string representing the diagnosis of the provided linear
+     *         observation
+     * @throws InvalidAlgorithmParameterException if the linear observation is not
+     *                                            inherent to the diagnostician
+     */
+    public static String linearDiagnosis(CompiledDiagnostician diagnostician, List<String> linObs)
+            throws InvalidAlgorithmParameterException {
+        return linearDiagnosisRegEx(diagnostician, linObs).toString();
+    }
+
+    /**
+     * Computes the linear diagnosis relating to the linear observation
+     * {@code linObs} using the compiled form of a diagnostician. The belief set
+     * (states reached so far, each one with the diagnosis accumulated along the
+     * way) is kept in arrays that are allocated once and swapped at each
+     * observation, so that advancing it doesn't involve the graph data
+     * structures. Diagnoses are hash-consed regular expressions: extending them
+     * with a new observation takes constant time, regardless of the length of
+     * the observation. The resulting diagnosis is simplified only once, at the
+     * end.
+     *
+     * @return the regular expression representing the diagnosis of the provided
+     *         linear observation
+     * @throws InvalidAlgorithmParameterException if the linear observation is not
+     *                                            inherent to the diagnostician
+     */
+    public static RegEx linearDiagnosisRegEx(CompiledDiagnostician diagnostician, List<String> linObs)
+            throws InvalidAlgorithmParameterException {
+        int n = diagnostician.getStatesCount();
+        int[] X = new int[n]; // states in the current belief set
+        RegEx[] R = new RegEx[n]; // R[i] is the diagnosis accumulated to reach X[i]
+        int[] Xnew = new int[n];
+        RegEx[] Rnew = new RegEx[n];
+        int[] position = new int[n]; // position of each state in Xnew, valid if stamp[state] == step
+        int[] stamp = new int[n];
+        Arrays.fill(stamp, -1);
+
+        int size = 1;
+        X[0] = diagnostician.getInitialState();
+        R[0] = RegExes.epsilon();
+        for (int step = 0; step < linObs.size(); step++) {
+            int label = diagnostician.getLabelId(linObs.get(step));
+            if (label < 0)
+                throw new InvalidAlgorithmParameterException();
+            int newSize = 0;
+            for (int i = 0; i < size; i++) {
+                int x1 = X[i];
+                int end = diagnostician.endTransition(x1, label);
+                for (int t = diagnostician.firstTransition(x1, label); t < end; t++) {
+                    int x2 = diagnostician.getTransitionTarget(t);
+                    RegEx r2 = RegExes.concat(R[i], diagnostician.getTransitionDecoration(t));
+                    if (stamp[x2] == step) {
+                        Rnew[position[x2]] = RegExes.union(Rnew[position[x2]], r2);
+                    } else {
+                        stamp[x2] = step;
+                        position[x2] = newSize;
+                        Xnew[newSize] = x2;
+                        Rnew[newSize++] = r2;
+                    }
+                }
+            }
+            // swap the buffers
+            int[] tmpX = X;
+            X = Xnew;
+            Xnew = tmpX;
+            RegEx[] tmpR = R;
+            R = Rnew;
+            Rnew = tmpR;
+            size = newSize;
+        }
+
+        List<RegEx> alternatives = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (diagnostician.isAcceptance(X[i])) {
+                alternatives.add(RegExes.concat(R[i], diagnostician.getDiagnosisOf(X[i])));
+            }
+        }
+        if (alternatives.isEmpty()) {
+            throw new InvalidAlgorithmParameterException();
+        }
+        return RegExSimplifier.simplify(RegExes.union(alternatives));
+    }
+
+    /**
+     * Computes the linear diagnoses relating to the linear observations
+     * {@code linObs} using the compiled form of a diagnostician, with one thread
+     * per available processor.
+     *
+     * @return the diagnoses of the provided linear observations, in the same
+     *         order, each one empty if the linear observation is not inherent to
+     *         the diagnostician
+     */
+    public static List<Optional<String>> linearDiagnoses(CompiledDiagnostician diagnostician,
+            List<? extends List<String>> linObs) {
+        return linearDiagnoses(diagnostician, linObs, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Computes the linear diagnoses relating to the linear observations
+     * {@code linObs} using the compiled form of a diagnostician. Since a compiled
+     * diagnostician is immutable, the observations are diagnosed in parallel by
+     * {@code parallelism} threads sharing it, and each diagnosis is stored at the
+     * position of its observation, so that the result doesn't depend on the
+     * scheduling of the threads.
+     *
+     * @param parallelism the number of threads; if 1, observations are diagnosed
+     *                    by the calling thread
+     * @return the diagnoses of the provided linear observations, in the same
+     *         order, each one empty if the linear observation is not inherent to
+     *         the diagnostician
+     */
+    public static List<Optional<String>> linearDiagnoses(CompiledDiagnostician diagnostician,
+            List<? extends List<String>> linObs, int parallelism) {
+        checkArgument(parallelism > 0, "The number of threads must be positive, but it is %s", parallelism);
+        String[] diagnoses = new String[linObs.size()];
+        DiagnosesTask task = new DiagnosesTask(diagnostician, linObs, diagnoses, 0, diagnoses.length,
+                parallelism > 1);
+        if (parallelism == 1) {
+            task.compute();
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                pool.invoke(task);
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return Arrays.stream(diagnoses).map(Optional::ofNullable).collect(Collectors.toList());
+    }
+
+    /**
+     * The task diagnosing the linear observations in [from, to). If it is
+     * parallel, it splits the range in halves until a single observation is left;
+     * otherwise it diagnoses the whole range in the thread running it, like
+     * {@link ClosuresTask}.
+     */
+    private static final class DiagnosesTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CompiledDiagnostician diagnostician;
+        private final List<? extends List<String>> linObs;
+        private final String[] diagnoses;
+        private final int from;
+        private final int to;
+        private final boolean parallel;
+
+        DiagnosesTask(CompiledDiagnostician diagnostician, List<? extends List<String>> linObs, String[] diagnoses,
+                int from, int to, boolean parallel) {
+            this.diagnostician = diagnostician;
+            this.linObs = linObs;
+            this.diagnoses = diagnoses;
+            this.from = from;
+            this.to = to;
+            this.parallel = parallel;
+        }
+
+        @Override
+        protected void compute() {
+            if (parallel && to - from > 1) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new DiagnosesTask(diagnostician, linObs, diagnoses, from, mid, true),
+                        new DiagnosesTask(diagnostician, linObs, diagnoses, mid, to, true));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    diagnoses[i] = linearDiagnosis(diagnostician, linObs.get(i));
+                } catch (InvalidAlgorithmParameterException e) {
+                    diagnoses[i] = null;
+                }
+            }
+        }
+    }
+
+    /**
+     * Computes the linear diagnoses relating to the linear observations read from
+     * {@code observations}, one for each line with the labels separated by
+     * blanks, using the compiled form of a diagnostician, and writes them to
+     * {@code diagnoses}, one for each line in the same order, or
+     * {@link #NOT_INHERENT} for the linear observations which are not inherent to
+     * the diagnostician. The observations are diagnosed by {@code parallelism}
+     * threads while they are read: a diagnosis is written as soon as it and
+     * those of the preceding observations are complete, and at most a few
+     * observations for each thread are read ahead, so that arbitrarily long
+     * inputs can be processed.
+     *
+     * @param parallelism the number of threads
+     * @throws IOException if the observations can't be read or the diagnoses
+     *                     can't be written
+     */
+    public static void linearDiagnoses(CompiledDiagnostician diagnostician, BufferedReader observations,
+            Writer diagnoses, int parallelism) throws IOException {
+        checkArgument(parallelism > 0, "The number of threads must be positive, but it is %s", parallelism);
+        ExecutorService executor = Executors.newFixedThreadPool(parallelism);
+        Deque<Future<String>> pending = new ArrayDeque<>();
+        try {
+            String line;
+            while ((line = observations.readLine()) != null) {
+                String trimmed = line.trim();
+                List<String> linObs = trimmed.isEmpty() ? List.of() : List.of(trimmed.split("\\s+"));
+                pending.add(executor.submit(() -> {
+                    try {
+                        return linearDiagnosis(diagnostician, linObs);
+                    } catch (InvalidAlgorithmParameterException e) {
+                        return NOT_INHERENT;
+                    }
+                }));
+                if (pending.size() >= BATCH_READ_AHEAD * parallelism)
+                    write(pending.remove(), diagnoses);
+            }
+            while (!pending.isEmpty()) {
+                write(pending.remove(), diagnoses);
+            }
+            diagnoses.flush();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static void write(Future<String> diagnosis, Writer diagnoses) throws IOException {
+        try {
+            diagnoses.write(diagnosis.get());
+            diagnoses.write(System.lineSeparator());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException();
+        } catch (ExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Computes the linear diagnosis relating to the linear observation
+     * {@code linObs} using the determinization of a diagnostician.
+     *
+     * @return A string representing the diagnosis of the provided linear
+     *         observation
+     * @throws InvalidAlgorithmParameterException if the linear observation is not
+     *                                            inherent to the diagnostician
+     */
+    public static String linearDiagnosis(DeterministicDiagnostician diagnostician, List<String> linObs)
+            throws InvalidAlgorithmParameterException {
+        return linearDiagnosisRegEx(diagnostician, linObs).toString();
+    }
+
+    /**
+     * Computes the linear diagnosis relating to the linear observation
+     * {@code linObs} using the determinization of a diagnostician. The belief
+     * set is a single state of the deterministic diagnostician, and the diagnosis
+     * accumulated to reach each of its members is kept in an array that is
+     * allocated once and swapped at each observation, like in
+     * {@link #linearDiagnosisRegEx(CompiledDiagnostician, List)}; there is no
+     * need to check whether a member has already been reached, since the
+     * decorations reaching it are grouped in the transition.
+     *
+     * @return the regular expression representing the diagnosis of the provided
+     *         linear observation
+     * @throws InvalidAlgorithmParameterException if the linear observation is not
+     *                                            inherent to the diagnostician
+     */
+    public static RegEx linearDiagnosisRegEx(DeterministicDiagnostician diagnostician, List<String> linObs)
+            throws InvalidAlgorithmParameterException {
+        int n = diagnostician.getMaxMembersCount();
+        RegEx[] R = new RegEx[n]; // R[i] is the diagnosis accumulated to reach the i-th member of x
+        RegEx[] Rnew = new RegEx[n];
+
+        int x = diagnostician.getInitialState();
+        R[0] = RegExes.epsilon();
+        for (String o : linObs) {
+            int label = diagnostician.getLabelId(o);
+            int x2 = label < 0 ? -1 : diagnostician.getTarget(x, label);
+            if (x2 < 0)
+                throw new InvalidAlgorithmParameterException();
+            for (int j = 0; j < diagnostician.getMembersCount(x2); j++) {
+                int end = diagnostician.firstDecoration(x, label, j + 1);
+                RegEx r2 = null;
+                for (int d = diagnostician.firstDecoration(x, label, j); d < end; d++) {
+                    RegEx r = RegExes.concat(R[diagnostician.getDecorationSource(x, label, d)],
+                            diagnostician.getDecoration(x, label, d));
+                    r2 = r2 == null ? r : RegExes.union(r2, r);
+                }
+                Rnew[j] = r2;
+            }
+            // swap the buffers
+            RegEx[] tmpR = R;
+            R = Rnew;
+            Rnew = tmpR;
+            x = x2;
+        }
+
+        if (!diagnostician.isAcceptance(x)) {
+            throw new InvalidAlgorithmParameterException();
+        }
+        List<RegEx> alternatives = new ArrayList<>();
+        for (int i = 0; i < diagnostician.getMembersCount(x); i++) {
+            RegEx diagnosis = diagnostician.getDiagnosisOf(x, i);
+            if (diagnosis != null) {
+                alternatives.add(RegExes.concat(R[i], diagnosis));
+            }
+        }
+        return RegExSimplifier.simplify(RegExes.union(alternatives));
     }
 
-}
\ No newline at end of file
+    /**
+     * Computes the linear diagnosis relating to the linear observation
+     * {@code linObs} as a set of fault-sets, i.e. forgetting the order in which
+     * relevance labels occur. The belief set is advanced like in
+     * {@link #linearDiagnosisRegEx(CompiledDiagnostician, List)}, but the
+     * fault-sets reaching the same state are merged by union, so the size of
+     * the belief set is bounded by the number of combinations of faults rather
+     * than growing with the observation.
+     *
+     * @return the set of fault-sets of the trajectories producing the provided
+     *         linear observation
+     * @throws InvalidAlgorithmParameterException if the linear observation is not
+     *                                            inherent to the diagnostician
+     */
+    public static FaultSets linearDiagnosis(FaultSetDiagnostician diagnostician, List<String> linObs)
+            throws InvalidAlgorithmParameterException {
+        int n = diagnostician.getStatesCount();
+        FaultSets[] X = new FaultSets[n]; // X[x] are the fault-sets reaching x, null if x isn't reached
+        FaultSets[] Xnew = new FaultSets[n];
+        X[diagnostician.getInitialState()] = FaultSets.NO_FAULTS;
+        for (String o : linObs) {
+            int label = diagnostician.getLabelId(o);
+            if (label < 0)
+                throw new InvalidAlgorithmParameterException();
+            Arrays.fill(Xnew, null);
+            for (int x1 = 0; x1 < n; x1++) {
+                if (X[x1] == null)
+                    continue;
+                int end = diagnostician.endTransition(x1, label);
+                for (int t = diagnostician.firstTransition(x1, label); t < end; t++) {
+                    int x2 = diagnostician.getTransitionTarget(t);
+                    FaultSets f2 = X[x1].product(diagnostician.getTransitionFaults(t));
+                    Xnew[x2] = Xnew[x2] == null ? f2 : Xnew[x2].union(f2);
+                }
+            }
+            FaultSets[] tmp = X;
+            X = Xnew;
+            Xnew = tmp;
+        }
+
+        FaultSets diagnosis = FaultSets.NONE;
+        boolean accepted = false;
+        for (int x = 0; x < n; x++) {
+            if (X[x] != null && diagnostician.isAcceptance(x)) {
+                diagnosis = diagnosis.union(X[x].product(diagnostician.getDiagnosisOf(x)));
+                accepted = true;
+            }
+        }
+        if (!accepted) {
+            throw new InvalidAlgorithmParameterException();
+        }
+        return diagnosis;
+    }
+
+    /**
+     * The name of the state of {@link #productWithObservation} where the
+     * trajectories consistent with the observation end
+     */
+    private static final String END_OF_OBSERVATION = "end";
+
+    /**
+     * Compute the product of the compiled form of a diagnostician with the
+     * observation automaton {@code observation}. A state of the product is a pair
+     * of a state of the diagnostician and a state of the observation automaton
+     * (named after both, separated by a blank); a transition of the diagnostician
+     * labelled with an observation and a transition of the observation automaton
+     * labelled with the same observation make a transition of the product,
+     * decorated with the decoration of the former. Each pair where both the
+     * diagnostician and the observation may end has a further transition,
+     * decorated with the diagnosis of the state of the diagnostician, to a single
+     * acceptance state (named {@value #END_OF_OBSERVATION}), so that the language
+     * accepted by the product is the diagnosis of the uncertain observation.
+     *
+     * The product is explored from the initial pair, so only the pairs reachable
+     * from it are created, each one once.
+     *
+     * @return the product, whose transitions have the decorations as symbols
+     * @throws InvalidAlgorithmParameterException if no linear observation of the
+     *                                            observation is inherent to the
+     *                                            diagnostician
+     */
+    public static FA<FAState, Transition> productWithObservation(CompiledDiagnostician diagnostician,
+            ObservationAutomaton observation) throws InvalidAlgorithmParameterException {
+        FABuilder<FAState, Transition> faBuilder = new FABuilder<>();
+        FAState end = new StateBuilder(END_OF_OBSERVATION).build();
+        faBuilder.putState(end).putAcceptanceState(end).putFinalState(end);
+
+        Map<Long, FAState> states = new HashMap<>();
+        Deque<Long> toExplore = new ArrayDeque<>();
+        long initial = pair(diagnostician.getInitialState(), observation.getInitialState());
+        FAState initialState = new StateBuilder(pairName(diagnostician, observation, initial)).build();
+        states.put(initial, initialState);
+        faBuilder.putInitialState(initialState);
+        toExplore.add(initial);
+        while (!toExplore.isEmpty()) {
+            long pair = toExplore.remove();
+            FAState state = states.get(pair);
+            int x = (int) (pair >>> 32);
+            int o = (int) pair;
+            if (diagnostician.isAcceptance(x) && observation.isAcceptance(o)) {
+                faBuilder.putTransition(state, end,
+                        new Transition(RegExes.toString(diagnostician.getDiagnosisOf(x))));
+            }
+            // all the transitions leaving x, whatever their label
+            int endTransition = diagnostician.endTransition(x, diagnostician.getLabelsCount() - 1);
+            for (int t = diagnostician.firstTransition(x, 0); t < endTransition; t++) {
+                int x2 = diagnostician.getTransitionTarget(t);
+                for (int o2 : observation.getTargets(o, diagnostician.getLabel(diagnostician.getTransitionLabel(t)))) {
+                    long pair2 = pair(x2, o2);
+                    FAState state2 = states.get(pair2);
+                    if (state2 == null) {
+                        state2 = new StateBuilder(pairName(diagnostician, observation, pair2)).build();
+                        states.put(pair2, state2);
+                        faBuilder.putState(state2);
+                        toExplore.add(pair2);
+                    }
+                    faBuilder.putTransition(state, state2,
+                            new Transition(diagnostician.getTransitionDecoration(t).toString()));
+                }
+            }
+        }
+        try {
+            // the end of the observation is isolated if it can't be reached
+            return faBuilder.build();
+        } catch (IllegalStateException e) {
+            throw new InvalidAlgorithmParameterException();
+        }
+    }
+
+    private static long pair(int x, int o) {
+        return (long) x << 32 | o;
+    }
+
+    private static String pairName(CompiledDiagnostician diagnostician, ObservationAutomaton observation,
+            long pair) {
+        return diagnostician.getStateName((int) (pair >>> 32)) + " " + observation.getStateName((int) pair);
+    }
+
+    /**
+     * Computes the diagnosis relating to the uncertain observation
+     * {@code observation}, i.e. the alternative between the diagnoses of its
+     * linear observations, using the compiled form of a diagnostician.
+     *
+     * @return A string representing the diagnosis of the provided observation
+     * @throws InvalidAlgorithmParameterException if no linear observation of the
+     *                                            observation is inherent to the
+     *                                            diagnostician
+     */
+    public static String uncertainDiagnosis(CompiledDiagnostician diagnostician, ObservationAutomaton observation)
+            throws InvalidAlgorithmParameterException {
+        return uncertainDiagnosisRegEx(diagnostician, observation).toString();
+    }
+
+    /**
+     * Computes the diagnosis relating to the uncertain observation
+     * {@code observation} as the language accepted by the product of the
+     * diagnostician with the observation
+     * ({@link #productWithObservation(CompiledDiagnostician, ObservationAutomaton)}).
+     * If the observation automaton is acyclic, so is the product, which is then
+     * reduced in a single topological pass.
+     *
+     * @return the regular expression representing the diagnosis of the provided
+     *         observation
+     * @throws InvalidAlgorithmParameterException if no linear observation of the
+     *                                            observation is inherent to the
+     *                                            diagnostician
+     */
+    public static RegEx uncertainDiagnosisRegEx(CompiledDiagnostician diagnostician,
+            ObservationAutomaton observation) throws InvalidAlgorithmParameterException {
+        FA<FAState, Transition> product = productWithObservation(diagnostician, observation);
+        // the end of the observation is the only acceptance state of the product
+        RegEx diagnosis = LanguageExtractor.DEFAULT.acceptedLanguages(product)
+                .get(product.getAcceptanceStates().iterator().next());
+        if (diagnosis == null) {
+            throw new InvalidAlgorithmParameterException();
+        }
+        return RegExSimplifier.simplify(diagnosis);
+    }
+}
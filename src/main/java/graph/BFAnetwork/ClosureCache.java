@@ -0,0 +1,171 @@
+package graph.BFAnetwork;
+
+import com.google.common.graph.MutableNetwork;
+import graph.StronglyConnectedComponents;
+import graph.fa.AcceptedLanguages;
+import graph.fa.FA;
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class caches the decorated silent closures of a behavioral space, so
+ * that they are computed only once even if they are requested many times (e.g.
+ * by different actions of the menu).
+ *
+ * Closures of different entry states overlap, since an entry state may lie in
+ * the closure of another one. The overlapping parts are made of whole strongly
+ * connected components of the non-observable transitions, so the languages of
+ * the paths inside each cyclic component are cached too, by component and
+ * starting state, and shared by all the closures entering the component from
+ * that state. The decoration of a state w is then obtained by visiting the
+ * components of the closure in topological order: it is the alternative, over
+ * the states v through which the component of w is entered, of the language
+ * entering v followed by the language of the paths from v to w inside the
+ * component.
+ *
+ * The cache can be used by many threads at once. It must be cleared whenever the
+ * behavioral space is modified, including the names of its states.
+ */
+public final class ClosureCache {
+
+    private final FA<BSState, BSTransition> behavioralSpace;
+    private volatile StronglyConnectedComponents<BSState> silentComponents;
+
+    private final Map<BSState, FA<DBSState, BSTransition>> closures = new ConcurrentHashMap<>();
+    // languages of the paths inside a cyclic component, by starting state
+    private final Map<BSState, Map<BSState, RegEx>> componentPaths = new ConcurrentHashMap<>();
+
+    private final AtomicLong closureHits = new AtomicLong();
+    private final AtomicLong closureMisses = new AtomicLong();
+    private final AtomicLong componentHits = new AtomicLong();
+    private final AtomicLong componentMisses = new AtomicLong();
+
+    /**
+     * Create an empty cache of the decorated silent closures of the (pruned)
+     * behavioral space {@code behavioralSpace}.
+     */
+    public ClosureCache(FA<BSState, BSTransition> behavioralSpace) {
+        this.behavioralSpace = behavioralSpace;
+        this.silentComponents = BFANetworkSupervisor.silentComponents(behavioralSpace);
+    }
+
+    public FA<BSState, BSTransition> getBehavioralSpace() {
+        return behavioralSpace;
+    }
+
+    public StronglyConnectedComponents<BSState> getSilentComponents() {
+        return silentComponents;
+    }
+
+    /**
+     * Return the decorated silent closure of the entry state {@code entry},
+     * computing it only if it isn't in the cache.
+     */
+    public FA<DBSState, BSTransition> decoratedSilentClosure(BSState entry) {
+        FA<DBSState, BSTransition> closure = closures.get(entry);
+        if (closure != null) {
+            closureHits.incrementAndGet();
+            return closure;
+        }
+        return closures.computeIfAbsent(entry, e -> {
+            closureMisses.incrementAndGet();
+            FA<BSState, BSTransition> silentClosure = BFANetworkSupervisor.silentClosure(behavioralSpace, e,
+                    silentComponents);
+            return BFANetworkSupervisor.decoratedSilentClosure(silentClosure, acceptedLanguages(silentClosure));
+        });
+    }
+
+    /**
+     * Compute the languages of the acceptance states of {@code silentClosure},
+     * visiting its components in topological order.
+     */
+    private Map<BSState, String> acceptedLanguages(FA<BSState, BSTransition> silentClosure) {
+        MutableNetwork<BSState, BSTransition> network = silentClosure.getNetwork();
+        RegExSimplifier simplifier = new RegExSimplifier();
+
+        SortedMap<Integer, List<BSState>> components = new TreeMap<>();
+        for (BSState s : silentClosure.getStates()) {
+            components.computeIfAbsent(silentComponents.getComponent(s), c -> new ArrayList<>()).add(s);
+        }
+
+        Map<BSState, RegEx> languages = new HashMap<>();
+        for (Map.Entry<Integer, List<BSState>> component : components.entrySet()) {
+            int c = component.getKey();
+            Map<BSState, RegEx> entering = AcceptedLanguages.enteringLanguages(network, silentComponents, c,
+                    component.getValue(), silentClosure.getInitialState(), languages, simplifier);
+            entering.values().removeIf(language -> language.getKind() == RegEx.Kind.EMPTY);
+
+            if (!silentComponents.isCyclic(c)) {
+                languages.putAll(entering);
+                continue;
+            }
+            Map<BSState, List<RegEx>> alternatives = new HashMap<>();
+            entering.forEach((v, language) -> paths(network, c, v).forEach((w, path) -> alternatives
+                    .computeIfAbsent(w, x -> new ArrayList<>()).add(RegExes.concat(language, path))));
+            alternatives.forEach((w, a) -> languages.put(w, simplifier.apply(RegExes.union(a))));
+        }
+
+        Map<BSState, String> acceptedLanguages = new HashMap<>();
+        for (BSState s : silentClosure.getAcceptanceStates()) {
+            RegEx language = languages.get(s);
+            if (language != null && language.getKind() != RegEx.Kind.EMPTY)
+                acceptedLanguages.put(s, language.toString());
+        }
+        return acceptedLanguages;
+    }
+
+    /**
+     * Return the languages of the paths from {@code source} to each state of the
+     * component {@code component} that lie inside the component, where
+     * {@code network} is the network of a silent closure containing it.
+     */
+    private Map<BSState, RegEx> paths(MutableNetwork<BSState, BSTransition> network, int component,
+            BSState source) {
+        Map<BSState, RegEx> paths = componentPaths.get(source);
+        if (paths != null) {
+            componentHits.incrementAndGet();
+            return paths;
+        }
+        return componentPaths.computeIfAbsent(source, s -> {
+            componentMisses.incrementAndGet();
+            return AcceptedLanguages.pathLanguages(network, silentComponents.getNodes(component), s);
+        });
+    }
+
+    /**
+     * Remove all the closures from the cache, and recompute the components of
+     * the behavioral space. Statistics are kept.
+     */
+    public void clear() {
+        closures.clear();
+        componentPaths.clear();
+        silentComponents = BFANetworkSupervisor.silentComponents(behavioralSpace);
+    }
+
+    public long getClosureHits() {
+        return closureHits.get();
+    }
+
+    public long getClosureMisses() {
+        return closureMisses.get();
+    }
+
+    public long getComponentHits() {
+        return componentHits.get();
+    }
+
+    public long getComponentMisses() {
+        return componentMisses.get();
+    }
+
+    @Override
+    public String toString() {
+        return "closures: " + closureHits + " hits, " + closureMisses + " misses; components: " + componentHits
+                + " hits, " + componentMisses + " misses";
+    }
+}
@@ -0,0 +1,182 @@
+package graph.BFAnetwork;
+
+import com.google.common.graph.EndpointPair;
+import graph.fa.FA;
+import graph.fa.FAState;
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.util.*;
+
+/**
+ * This class represents a compiled form of a {@link Diagnostician}, meant to be used for the online computation of
+ * linear diagnoses. States are mapped to dense integers (in alphabetical order of their names) and observability
+ * labels are interned to integers. The outgoing transitions of each state are stored in a single table, where the
+ * transitions leaving a state are contiguous and sorted by label, so that the transitions triggered by an observation
+ * are found with a binary search. Decorations of transitions and diagnoses of states are parsed once into regular
+ * expressions, stored in an index and referenced by their position in it.
+ *
+ * Once built, a compiled diagnostician is immutable, so it can be shared by any number of threads (e.g. by many
+ * {@link DiagnosisSession}s advanced concurrently).
+ */
+public final class CompiledDiagnostician {
+
+    private final TransitionTable table;
+    private final int[] diagnosisOf; // position in decorations of the diagnosis of each state, -1 if it has none
+    private final int[] transitionDecoration; // position in decorations of the symbol of each transition
+
+    private final RegEx[] decorations;
+
+    /**
+     * Compile {@code diagnostician}.
+     */
+    public CompiledDiagnostician(Diagnostician diagnostician) {
+        FA<FAState, DSCTransition> fa = diagnostician.getFa();
+
+        List<FAState> states = new ArrayList<>(fa.getStates());
+        states.sort(Comparator.comparing(FAState::getName));
+        Map<FAState, Integer> stateIds = new HashMap<>();
+        List<String> stateNames = new ArrayList<>();
+        for (FAState s : states) {
+            stateIds.put(s, stateIds.size());
+            stateNames.add(s.getName());
+        }
+        Set<String> labels = new HashSet<>();
+        fa.getTransitions().forEach(t -> labels.add(t.getObservabilityLabel()));
+        TransitionTable.Builder builder = new TransitionTable.Builder(stateNames, labels);
+
+        Map<RegEx, Integer> decorationIds = new HashMap<>();
+        List<RegEx> decorationList = new ArrayList<>();
+
+        int n = states.size();
+        diagnosisOf = new int[n];
+        transitionDecoration = new int[fa.getTransitions().size()];
+
+        for (int s = 0; s < n; s++) {
+            FAState state = states.get(s);
+            builder.nextState(fa.isAcceptance(state));
+            Map<DBSState, String> diagnosis = diagnostician.getDiagnosis().get(state);
+            diagnosisOf[s] = diagnosis == null ? -1
+                    : intern(diagnosisToRegEx(diagnosis), decorationIds, decorationList);
+
+            // sort the outgoing transitions by label, then by target and decoration
+            List<DSCTransition> outTransitions = new ArrayList<>(fa.getNetwork().outEdges(state));
+            outTransitions.sort(Comparator
+                    .<DSCTransition, Integer>comparing(t -> builder.getLabelId(t.getObservabilityLabel()))
+                    .thenComparing(t -> stateIds.get(fa.getNetwork().incidentNodes(t).target()))
+                    .thenComparing(DSCTransition::getSymbol));
+
+            for (DSCTransition t : outTransitions) {
+                EndpointPair<FAState> endpoints = fa.getNetwork().incidentNodes(t);
+                int next = builder.addTransition(builder.getLabelId(t.getObservabilityLabel()),
+                        stateIds.get(endpoints.target()));
+                transitionDecoration[next] = intern(RegExes.parse(t.getSymbol()), decorationIds, decorationList);
+            }
+        }
+        table = builder.build(stateIds.get(fa.getInitialState()));
+        decorations = decorationList.toArray(RegEx[]::new);
+    }
+
+    /**
+     * Return the position of {@code decoration} in the index, adding it if it is not present yet.
+     */
+    private static int intern(RegEx decoration, Map<RegEx, Integer> decorationIds, List<RegEx> decorationList) {
+        Integer id = decorationIds.get(decoration);
+        if (id == null) {
+            id = decorationList.size();
+            decorationIds.put(decoration, id);
+            decorationList.add(decoration);
+        }
+        return id;
+    }
+
+    /**
+     * Convert the diagnosis of a state into the alternative between its decorations.
+     */
+    private static RegEx diagnosisToRegEx(Map<DBSState, String> diagnosis) {
+        List<RegEx> alternatives = new ArrayList<>();
+        for (String decoration : diagnosis.values()) {
+            alternatives.add(RegExes.parse(decoration));
+        }
+        return RegExSimplifier.simplify(RegExes.union(alternatives));
+    }
+
+    public int getStatesCount() {
+        return table.getStatesCount();
+    }
+
+    public String getStateName(int state) {
+        return table.getStateName(state);
+    }
+
+    /**
+     * Return the integer associated to the state named {@code name}, or -1 if there isn't such a state
+     */
+    public int getState(String name) {
+        return table.getState(name);
+    }
+
+    public int getInitialState() {
+        return table.getInitialState();
+    }
+
+    public boolean isAcceptance(int state) {
+        return table.isAcceptance(state);
+    }
+
+    public int getLabelsCount() {
+        return table.getLabelsCount();
+    }
+
+    public String getLabel(int label) {
+        return table.getLabel(label);
+    }
+
+    /**
+     * Return the integer associated to the observability label {@code label}, or -1 if no transition of the
+     * diagnostician is labelled with it.
+     */
+    public int getLabelId(String label) {
+        return table.getLabelId(label);
+    }
+
+    /**
+     * Return the position of the first transition leaving {@code state} labelled with {@code label}. Transitions
+     * leaving {@code state} with that label are those in [firstTransition(state, label), endTransition(state, label)).
+     */
+    public int firstTransition(int state, int label) {
+        return table.firstTransition(state, label);
+    }
+
+    /**
+     * Return the position following the last transition leaving {@code state} labelled with {@code label}.
+     */
+    public int endTransition(int state, int label) {
+        return table.endTransition(state, label);
+    }
+
+    public int getTransitionsCount() {
+        return table.getTransitionsCount();
+    }
+
+    public int getTransitionTarget(int transition) {
+        return table.getTransitionTarget(transition);
+    }
+
+    public int getTransitionLabel(int transition) {
+        return table.getTransitionLabel(transition);
+    }
+
+    public RegEx getTransitionDecoration(int transition) {
+        return decorations[transitionDecoration[transition]];
+    }
+
+    /**
+     * Return the diagnosis of {@code state}, i.e. the alternative between the decorations of the final states of the
+     * corresponding silent closure, or null if the closure hasn't any final state.
+     */
+    public RegEx getDiagnosisOf(int state) {
+        return diagnosisOf[state] < 0 ? null : decorations[diagnosisOf[state]];
+    }
+}
@@ -0,0 +1,232 @@
+package graph.BFAnetwork;
+
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.util.*;
+
+/**
+ * This class represents the determinization of a {@link CompiledDiagnostician}, obtained by the subset construction
+ * over the observability labels. Each state is a set of states of the compiled diagnostician (its members), i.e. one
+ * of the belief sets that can be reached by a linear observation, so an observation is consumed by following a single
+ * transition, found with an array lookup.
+ *
+ * Since the diagnosis depends on the path followed by each trajectory, a transition carries the decorations relating
+ * each member of its target to the members of its source: for each member of the target, the members of the source
+ * from which it is reached and the alternative between the decorations of the transitions of the compiled
+ * diagnostician connecting them. The diagnosis accumulated so far is therefore kept as an array with an element for
+ * each member of the current state, and extending it takes time proportional only to the size of the transition,
+ * regardless of the length of the observation.
+ *
+ * The subset construction may produce a number of states exponential in the number of states of the compiled
+ * diagnostician, so a bound on the number of states can be given. Once built, a deterministic diagnostician is
+ * immutable.
+ */
+public final class DeterministicDiagnostician {
+
+    private final Map<String, Integer> labelIds;
+
+    private final int[][] members; // members of each state, in increasing order
+    private final RegEx[][] diagnosisOf; // diagnosis of each member, null if it isn't an acceptance state
+    private final boolean[] acceptance; // true if at least one member is an acceptance state
+
+    private final int[][] target; // target[s][label] is the state reached from s, -1 if there is no transition
+
+    // the decorations of the transition leaving s labelled with label are stored at positions
+    // [firstDecoration[s][label][j], firstDecoration[s][label][j+1]) for the j-th member of the target
+    private final int[][][] firstDecoration;
+    private final int[][][] decorationSource; // position of the source member in the members of s
+    private final RegEx[][][] decoration;
+
+    /**
+     * Determinize {@code diagnostician}.
+     */
+    public DeterministicDiagnostician(CompiledDiagnostician diagnostician) {
+        this(diagnostician, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Determinize {@code diagnostician}, building at most {@code maxStates} states.
+     *
+     * @throws IllegalStateException if the deterministic diagnostician would have more than {@code maxStates} states
+     */
+    public DeterministicDiagnostician(CompiledDiagnostician diagnostician, int maxStates) {
+        int labelsCount = diagnostician.getLabelsCount();
+        labelIds = new HashMap<>();
+        for (int label = 0; label < labelsCount; label++) {
+            labelIds.put(diagnostician.getLabel(label), label);
+        }
+
+        RegExSimplifier simplifier = new RegExSimplifier();
+        Map<List<Integer>, Integer> stateIds = new HashMap<>();
+        List<int[]> memberList = new ArrayList<>();
+        List<int[]> targetList = new ArrayList<>();
+        List<int[][]> firstList = new ArrayList<>();
+        List<int[][]> sourceList = new ArrayList<>();
+        List<RegEx[][]> decorationList = new ArrayList<>();
+
+        memberList.add(new int[] { diagnostician.getInitialState() });
+        stateIds.put(List.of(diagnostician.getInitialState()), 0);
+        for (int s = 0; s < memberList.size(); s++) {
+            int[] source = memberList.get(s);
+            int[] targets = new int[labelsCount];
+            int[][] first = new int[labelsCount][];
+            int[][] sources = new int[labelsCount][];
+            RegEx[][] decorations = new RegEx[labelsCount][];
+            for (int label = 0; label < labelsCount; label++) {
+                // the decorations reaching each member of the target, merged by source member
+                SortedMap<Integer, Map<Integer, List<RegEx>>> reached = new TreeMap<>();
+                for (int i = 0; i < source.length; i++) {
+                    int end = diagnostician.endTransition(source[i], label);
+                    for (int t = diagnostician.firstTransition(source[i], label); t < end; t++) {
+                        reached.computeIfAbsent(diagnostician.getTransitionTarget(t), x -> new TreeMap<>())
+                                .computeIfAbsent(i, x -> new ArrayList<>(1))
+                                .add(diagnostician.getTransitionDecoration(t));
+                    }
+                }
+                if (reached.isEmpty()) {
+                    targets[label] = -1;
+                    continue;
+                }
+
+                List<Integer> key = new ArrayList<>(reached.keySet());
+                Integer id = stateIds.get(key);
+                if (id == null) {
+                    if (memberList.size() == maxStates)
+                        throw new IllegalStateException("The deterministic diagnostician has more than " + maxStates
+                                + " states.");
+                    id = memberList.size();
+                    stateIds.put(key, id);
+                    memberList.add(key.stream().mapToInt(Integer::intValue).toArray());
+                }
+                targets[label] = id;
+
+                int size = reached.values().stream().mapToInt(Map::size).sum();
+                first[label] = new int[reached.size() + 1];
+                sources[label] = new int[size];
+                decorations[label] = new RegEx[size];
+                int j = 0, k = 0;
+                for (Map<Integer, List<RegEx>> bySource : reached.values()) {
+                    first[label][j++] = k;
+                    for (Map.Entry<Integer, List<RegEx>> e : bySource.entrySet()) {
+                        sources[label][k] = e.getKey();
+                        decorations[label][k++] = e.getValue().size() == 1 ? e.getValue().get(0)
+                                : simplifier.apply(RegExes.union(e.getValue()));
+                    }
+                }
+                first[label][j] = k;
+            }
+            targetList.add(targets);
+            firstList.add(first);
+            sourceList.add(sources);
+            decorationList.add(decorations);
+        }
+
+        int m = memberList.size();
+        members = memberList.toArray(int[][]::new);
+        target = targetList.toArray(int[][]::new);
+        firstDecoration = firstList.toArray(int[][][]::new);
+        decorationSource = sourceList.toArray(int[][][]::new);
+        decoration = decorationList.toArray(RegEx[][][]::new);
+        acceptance = new boolean[m];
+        diagnosisOf = new RegEx[m][];
+        for (int s = 0; s < m; s++) {
+            diagnosisOf[s] = new RegEx[members[s].length];
+            for (int i = 0; i < members[s].length; i++) {
+                if (diagnostician.isAcceptance(members[s][i])) {
+                    acceptance[s] = true;
+                    diagnosisOf[s][i] = diagnostician.getDiagnosisOf(members[s][i]);
+                }
+            }
+        }
+    }
+
+    public int getStatesCount() {
+        return members.length;
+    }
+
+    /**
+     * @return the initial state, whose only member is the initial state of the compiled diagnostician
+     */
+    public int getInitialState() {
+        return 0;
+    }
+
+    /**
+     * Return the members of {@code state}, i.e. the states of the compiled diagnostician belonging to it, in
+     * increasing order.
+     */
+    public int[] getMembers(int state) {
+        return members[state].clone();
+    }
+
+    public int getMembersCount(int state) {
+        return members[state].length;
+    }
+
+    /**
+     * @return the largest number of members of a state
+     */
+    public int getMaxMembersCount() {
+        int max = 0;
+        for (int[] m : members) {
+            max = Math.max(max, m.length);
+        }
+        return max;
+    }
+
+    public boolean isAcceptance(int state) {
+        return acceptance[state];
+    }
+
+    /**
+     * Return the diagnosis of the {@code member}-th member of {@code state}, or null if it isn't an acceptance state.
+     */
+    public RegEx getDiagnosisOf(int state, int member) {
+        return diagnosisOf[state][member];
+    }
+
+    /**
+     * Return the integer associated to the observability label {@code label}, or -1 if no transition of the
+     * diagnostician is labelled with it.
+     */
+    public int getLabelId(String label) {
+        Integer id = labelIds.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Return the state reached from {@code state} by the transition labelled with {@code label}, or -1 if there is no
+     * such transition.
+     */
+    public int getTarget(int state, int label) {
+        return target[state][label];
+    }
+
+    /**
+     * Return the position of the first decoration reaching the {@code member}-th member of the target of the
+     * transition leaving {@code state} labelled with {@code label}. The decorations reaching it are those in
+     * [firstDecoration(state, label, member), firstDecoration(state, label, member + 1)).
+     */
+    public int firstDecoration(int state, int label, int member) {
+        return firstDecoration[state][label][member];
+    }
+
+    /**
+     * Return the position, in the members of {@code state}, of the source of the {@code position}-th decoration of
+     * the transition leaving {@code state} labelled with {@code label}.
+     */
+    public int getDecorationSource(int state, int label, int position) {
+        return decorationSource[state][label][position];
+    }
+
+    /**
+     * Return the {@code position}-th decoration of the transition leaving {@code state} labelled with {@code label},
+     * i.e. the alternative between the decorations of the transitions of the compiled diagnostician connecting its
+     * source member to its target member.
+     */
+    public RegEx getDecoration(int state, int label, int position) {
+        return decoration[state][label][position];
+    }
+}
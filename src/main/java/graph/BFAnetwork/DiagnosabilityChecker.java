@@ -0,0 +1,324 @@
+package graph.BFAnetwork;
+
+import java.util.*;
+
+/**
+ * This class tells whether each fault (relevance label) of a network is diagnosable, i.e. whether its occurrence is
+ * always detected with certainty after a bounded number of further observations. A fault is not diagnosable if there
+ * are two trajectories producing the same unbounded observation, the first one containing the fault and the second one
+ * not; since the behavioral space is finite, such a pair can be taken to end in a cycle repeating forever, which is the
+ * witness reported for the fault.
+ *
+ * The check is done on the twin plant: the synchronized product of the behavioral space, projected on its observable
+ * transitions (as the transitions of a {@link FaultSetDiagnostician}), with itself on observability labels. For each
+ * fault, the states of the twin plant are the pairs of states of the diagnostician reached by the same observation,
+ * together with a bit telling whether the first trajectory contains the fault, while the second one is only allowed to
+ * take transitions without it. The fault is diagnosable if and only if no cycle of the twin plant reachable from the
+ * initial state is made of states where the first trajectory contains the fault (which, since the bit can only be set,
+ * is the case of any cycle closed from such a state). The twin plant is explored on the fly, depth first, stopping at
+ * the first such cycle; each state is encoded in a single long and mapped to a dense integer by an open-addressing
+ * table, so that the exploration doesn't allocate objects per state.
+ *
+ * The trajectories that keep running without being observed (in cycles of silent transitions) are not considered,
+ * as usual: the observation of an ambiguous pair of trajectories must grow unbounded.
+ *
+ * A checker is immutable, so it can be used by many threads at once.
+ */
+public final class DiagnosabilityChecker {
+
+    /**
+     * A pair of trajectories that make a fault not diagnosable: they produce the same observation, the prefix followed
+     * by the cycle repeated any number of times, and the first one contains the fault while the second one doesn't.
+     */
+    public static final class Witness {
+        private final String fault;
+        private final List<String> prefix;
+        private final List<String> cycle;
+        private final List<String> faultyStates;
+        private final List<String> normalStates;
+
+        private Witness(String fault, List<String> prefix, List<String> cycle, List<String> faultyStates,
+                List<String> normalStates) {
+            this.fault = fault;
+            this.prefix = Collections.unmodifiableList(prefix);
+            this.cycle = Collections.unmodifiableList(cycle);
+            this.faultyStates = Collections.unmodifiableList(faultyStates);
+            this.normalStates = Collections.unmodifiableList(normalStates);
+        }
+
+        public String getFault() {
+            return fault;
+        }
+
+        /**
+         * @return the observations leading to the cycle
+         */
+        public List<String> getPrefix() {
+            return prefix;
+        }
+
+        /**
+         * @return the observations of the cycle, which can be repeated forever
+         */
+        public List<String> getCycle() {
+            return cycle;
+        }
+
+        /**
+         * @return the states of the diagnostician crossed by the trajectory containing the fault: the initial state,
+         *         then the state reached after each observation of the prefix and of the cycle (so the last one is the
+         *         same as the one reached after the prefix)
+         */
+        public List<String> getFaultyStates() {
+            return faultyStates;
+        }
+
+        /**
+         * @return the states of the diagnostician crossed by the trajectory without the fault, like
+         *         {@link #getFaultyStates()}
+         */
+        public List<String> getNormalStates() {
+            return normalStates;
+        }
+
+        @Override
+        public String toString() {
+            return fault + ": " + String.join(" ", prefix) + (prefix.isEmpty() ? "(" : " (") + String.join(" ", cycle)
+                    + ")*";
+        }
+    }
+
+    private final FaultSetDiagnostician diagnostician;
+
+    /**
+     * Create the checker of the faults of the network whose behavioral space is projected by {@code diagnostician}.
+     */
+    public DiagnosabilityChecker(FaultSetDiagnostician diagnostician) {
+        this.diagnostician = diagnostician;
+    }
+
+    public FaultSetDiagnostician getDiagnostician() {
+        return diagnostician;
+    }
+
+    /**
+     * @return true if the fault {@code fault} is diagnosable
+     */
+    public boolean isDiagnosable(String fault) {
+        return witness(fault).isEmpty();
+    }
+
+    /**
+     * Check every fault of the network.
+     *
+     * @return for each fault, in the order of {@link FaultSetDiagnostician#getFaults()}, a witness that it is not
+     *         diagnosable, or nothing if it is diagnosable
+     */
+    public Map<String, Optional<Witness>> check() {
+        Map<String, Optional<Witness>> result = new LinkedHashMap<>();
+        for (String fault : diagnostician.getFaults()) {
+            result.put(fault, witness(fault));
+        }
+        return result;
+    }
+
+    /**
+     * Return a pair of trajectories producing the same unbounded observation, the first one containing the fault
+     * {@code fault} and the second one not, or nothing if there isn't any, i.e. if the fault is diagnosable.
+     *
+     * @throws IllegalArgumentException if no transition is labelled with {@code fault}
+     */
+    public Optional<Witness> witness(String fault) {
+        int f = diagnostician.getFaultId(fault);
+        if (f < 0)
+            throw new IllegalArgumentException("Unknown fault " + fault + ".");
+        return new TwinPlant(f).search();
+    }
+
+    /**
+     * The twin plant of a fault, explored depth first. The states of the twin plant are numbered in the order they
+     * are found; the ones on the current path are kept in a stack, with the transitions to take next from each of
+     * them.
+     */
+    private final class TwinPlant {
+        private static final byte NEW = 0;
+        private static final byte ON_PATH = 1;
+        private static final byte DONE = 2;
+
+        private final int fault;
+        private final int n = diagnostician.getStatesCount();
+
+        // open-addressing table from the encoding of the states to their numbers
+        private long[] keys = new long[1024];
+        private int[] ids = new int[1024];
+        private int size;
+        private long[] states = new long[512]; // encoding of each state, by number
+        private byte[] status = new byte[512];
+
+        // the current path: the state at each depth, the transition of the first trajectory being taken from it,
+        // the range of choices for the second trajectory (transitions with the same label, each one with two
+        // alternatives for the first trajectory: with the fault or without it), and the label taken to the next state
+        private int[] path = new int[64];
+        private int[] t1 = new int[64];
+        private int[] choice = new int[64];
+        private int[] endChoice = new int[64];
+        private int[] taken = new int[64];
+        private int depth;
+
+        TwinPlant(int fault) {
+            this.fault = fault;
+            Arrays.fill(keys, -1);
+        }
+
+        private long encode(int x1, int x2, boolean faulty) {
+            return ((long) x1 * n + x2) << 1 | (faulty ? 1 : 0);
+        }
+
+        private int first(long state) {
+            return (int) ((state >>> 1) / n);
+        }
+
+        private int second(long state) {
+            return (int) ((state >>> 1) % n);
+        }
+
+        private boolean faulty(long state) {
+            return (state & 1) != 0;
+        }
+
+        /**
+         * Return the number of the state encoded as {@code state}, numbering it if it is new.
+         */
+        private int idOf(long state) {
+            int mask = keys.length - 1;
+            int i = Long.hashCode(state * 0x9E3779B97F4A7C15L) & mask;
+            while (keys[i] != -1) {
+                if (keys[i] == state)
+                    return ids[i];
+                i = (i + 1) & mask;
+            }
+            if (size == states.length) {
+                states = Arrays.copyOf(states, 2 * size);
+                status = Arrays.copyOf(status, 2 * size);
+            }
+            keys[i] = state;
+            ids[i] = size;
+            states[size] = state;
+            if (++size > keys.length / 2)
+                rehash();
+            return size - 1;
+        }
+
+        private void rehash() {
+            long[] oldKeys = keys;
+            int[] oldIds = ids;
+            keys = new long[2 * oldKeys.length];
+            ids = new int[keys.length];
+            Arrays.fill(keys, -1);
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] == -1)
+                    continue;
+                int i = Long.hashCode(oldKeys[j] * 0x9E3779B97F4A7C15L) & mask;
+                while (keys[i] != -1) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                ids[i] = oldIds[j];
+            }
+        }
+
+        private void push(int id) {
+            if (depth == path.length) {
+                path = Arrays.copyOf(path, 2 * depth);
+                t1 = Arrays.copyOf(t1, 2 * depth);
+                choice = Arrays.copyOf(choice, 2 * depth);
+                endChoice = Arrays.copyOf(endChoice, 2 * depth);
+                taken = Arrays.copyOf(taken, 2 * depth);
+            }
+            status[id] = ON_PATH;
+            path[depth] = id;
+            t1[depth] = diagnostician.firstTransition(first(states[id]), 0);
+            endChoice[depth] = -1; // the choices for the transition of the first trajectory are still to be found
+            depth++;
+        }
+
+        Optional<Witness> search() {
+            int x0 = diagnostician.getInitialState();
+            push(idOf(encode(x0, x0, false)));
+            while (depth > 0) {
+                int d = depth - 1;
+                long state = states[path[d]];
+                int x1 = first(state);
+                int x2 = second(state);
+                boolean faulty = faulty(state);
+                int end1 = diagnostician.endTransition(x1, diagnostician.getLabelsCount() - 1);
+
+                // find the next choice of transitions with the same label leading to a state to be followed
+                int next = -1;
+                while (next < 0 && t1[d] < end1) {
+                    int label = diagnostician.getTransitionLabel(t1[d]);
+                    if (endChoice[d] < 0) {
+                        choice[d] = 2 * diagnostician.firstTransition(x2, label);
+                        endChoice[d] = 2 * diagnostician.endTransition(x2, label);
+                    }
+                    FaultSets faults1 = diagnostician.getTransitionFaults(t1[d]);
+                    while (next < 0 && choice[d] < endChoice[d]) {
+                        int t2 = choice[d] >> 1;
+                        boolean alternative = (choice[d] & 1) != 0;
+                        choice[d]++;
+                        // the second trajectory must not contain the fault, while the first one may take the
+                        // transition with it (if it hasn't it already) and, if possible, without it
+                        if (!diagnostician.getTransitionFaults(t2).someWithout(fault))
+                            continue;
+                        boolean withFault = !alternative && (faulty || faults1.someWith(fault));
+                        if (alternative && (faulty || !faults1.someWith(fault) || !faults1.someWithout(fault)))
+                            continue;
+                        int id = idOf(encode(diagnostician.getTransitionTarget(t1[d]),
+                                diagnostician.getTransitionTarget(t2), withFault));
+                        if (status[id] == NEW || status[id] == ON_PATH && withFault) {
+                            next = id;
+                            taken[d] = label;
+                        }
+                    }
+                    if (choice[d] == endChoice[d]) {
+                        t1[d]++;
+                        endChoice[d] = -1;
+                    }
+                }
+                if (next < 0) {
+                    status[path[d]] = DONE;
+                    depth--;
+                } else if (status[next] == ON_PATH) {
+                    // the bit can only be set along a cycle, so all its states have the fault in the first trajectory
+                    return Optional.of(witness(next));
+                } else {
+                    push(next);
+                }
+            }
+            return Optional.empty();
+        }
+
+        /**
+         * Build the witness made of the current path, whose last state has a transition to {@code cycleStart}.
+         */
+        private Witness witness(int cycleStart) {
+            List<String> prefix = new ArrayList<>();
+            List<String> cycle = new ArrayList<>();
+            List<String> faultyStates = new ArrayList<>();
+            List<String> normalStates = new ArrayList<>();
+            boolean inCycle = false;
+            for (int d = 0; d < depth; d++) {
+                long state = states[path[d]];
+                faultyStates.add(diagnostician.getStateName(first(state)));
+                normalStates.add(diagnostician.getStateName(second(state)));
+                inCycle |= path[d] == cycleStart;
+                (inCycle ? cycle : prefix).add(diagnostician.getLabel(taken[d]));
+            }
+            long state = states[cycleStart];
+            faultyStates.add(diagnostician.getStateName(first(state)));
+            normalStates.add(diagnostician.getStateName(second(state)));
+            return new Witness(diagnostician.getFaults().get(fault), prefix, cycle, faultyStates, normalStates);
+        }
+    }
+}
@@ -0,0 +1,207 @@
+package graph.BFAnetwork;
+
+import graph.regex.RegEx;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.*;
+
+/**
+ * This class caches the linear diagnoses computed with a {@link CompiledDiagnostician}, so that queries sharing a
+ * prefix with earlier ones don't process it again. Cached observations are kept in a trie, whose nodes are the
+ * prefixes of the observations: each node holds the belief set reached after its prefix (as a
+ * {@link DiagnosisSession} which is never advanced, only forked) and, once computed, the diagnosis of the prefix. A
+ * query walks down the trie to the longest prefix having a belief set, and resumes the diagnosis from there; the belief
+ * sets of the following prefixes are then added to the trie.
+ *
+ * The number of cached belief sets is bounded: when it is exceeded, the least recently used ones are evicted, and the
+ * nodes left without a belief set and without children are removed from the trie. The belief set of the empty prefix
+ * is never evicted.
+ *
+ * The cache can be used by many threads at once; diagnoses are computed outside of the lock, so concurrent queries
+ * may compute the same prefix twice.
+ */
+public final class DiagnosisCache {
+
+    /**
+     * A node of the trie, i.e. a prefix of the cached observations.
+     */
+    private static final class Node {
+        private final Node parent;
+        private final String label;
+        private final Map<String, Node> children = new HashMap<>(2);
+        private DiagnosisSession session; // belief set after the prefix, null if not cached
+        private RegEx diagnosis; // diagnosis of the prefix, null if not cached
+
+        Node(Node parent, String label) {
+            this.parent = parent;
+            this.label = label;
+        }
+    }
+
+    private final CompiledDiagnostician diagnostician;
+    private final int maxEntries;
+    private final Node root;
+    // the nodes having a belief set, except the root, in access order
+    private final LinkedHashMap<Node, Node> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits; // observations whose belief set was found in the cache
+    private long misses; // observations processed by the diagnostician
+    private long evictions;
+
+    /**
+     * Create an empty cache of the diagnoses computed with {@code diagnostician}, holding at most
+     * {@code maxEntries} belief sets.
+     */
+    public DiagnosisCache(CompiledDiagnostician diagnostician, int maxEntries) {
+        if (maxEntries <= 0)
+            throw new IllegalArgumentException("The size of the cache must be positive.");
+        this.diagnostician = diagnostician;
+        this.maxEntries = maxEntries;
+        root = new Node(null, null);
+        root.session = new DiagnosisSession(diagnostician);
+    }
+
+    public CompiledDiagnostician getDiagnostician() {
+        return diagnostician;
+    }
+
+    /**
+     * Return the diagnosis of the linear observation {@code linObs}, like
+     * {@link BFANetworkSupervisor#linearDiagnosisRegEx(CompiledDiagnostician, List)}, resuming from the longest
+     * prefix of {@code linObs} in the cache.
+     *
+     * @throws InvalidAlgorithmParameterException if the linear observation is not inherent to the diagnostician
+     */
+    public RegEx linearDiagnosisRegEx(List<String> linObs) throws InvalidAlgorithmParameterException {
+        Node resumed;
+        DiagnosisSession session;
+        int depth = 0;
+        synchronized (this) {
+            resumed = root;
+            Node node = root;
+            for (int i = 0; i < linObs.size(); i++) {
+                node = node.children.get(linObs.get(i));
+                if (node == null)
+                    break;
+                if (node.session != null) {
+                    entries.get(node); // mark the node as recently used
+                    resumed = node;
+                    depth = i + 1;
+                }
+            }
+            hits += depth;
+            misses += linObs.size() - depth;
+            if (depth == linObs.size() && resumed.diagnosis != null)
+                return resumed.diagnosis;
+            // fork while holding the lock, since another query may evict the node as soon as it is released
+            session = resumed.session.fork();
+        }
+
+        List<DiagnosisSession> sessions = new ArrayList<>(linObs.size() - depth);
+        RegEx diagnosis = null;
+        try {
+            for (int i = depth; i < linObs.size(); i++) {
+                session.observe(linObs.get(i));
+                sessions.add(session.fork());
+            }
+            diagnosis = session.currentDiagnosis();
+            return diagnosis;
+        } finally {
+            put(resumed, linObs.subList(depth, depth + sessions.size()), sessions, diagnosis);
+        }
+    }
+
+    /**
+     * Return the diagnosis of the linear observation {@code linObs}, like
+     * {@link BFANetworkSupervisor#linearDiagnosis(CompiledDiagnostician, List)}.
+     *
+     * @throws InvalidAlgorithmParameterException if the linear observation is not inherent to the diagnostician
+     */
+    public String linearDiagnosis(List<String> linObs) throws InvalidAlgorithmParameterException {
+        return linearDiagnosisRegEx(linObs).toString();
+    }
+
+    /**
+     * Add to the trie, below {@code node}, the belief sets reached after each prefix of {@code labels}, and the
+     * diagnosis of the whole of {@code labels} (if not null).
+     */
+    private synchronized void put(Node node, List<String> labels, List<DiagnosisSession> sessions,
+            RegEx diagnosis) {
+        // the node may have been removed from the trie while the diagnosis was being computed
+        Node attached = node;
+        while (attached != root && attached.parent.children.get(attached.label) == attached) {
+            attached = attached.parent;
+        }
+        if (attached != root)
+            return;
+        for (int i = 0; i < labels.size(); i++) {
+            Node parent = node;
+            node = parent.children.computeIfAbsent(labels.get(i), label -> new Node(parent, label));
+            if (node.session == null)
+                node.session = sessions.get(i);
+            entries.put(node, node);
+        }
+        if (diagnosis != null && labels.size() == sessions.size() && node.session != null)
+            node.diagnosis = diagnosis;
+
+        Iterator<Node> eldest = entries.keySet().iterator();
+        while (entries.size() > maxEntries) {
+            Node evicted = eldest.next();
+            eldest.remove();
+            evictions++;
+            evicted.session = null;
+            evicted.diagnosis = null;
+            while (evicted != root && evicted.session == null && evicted.children.isEmpty()) {
+                evicted.parent.children.remove(evicted.label);
+                evicted = evicted.parent;
+            }
+        }
+    }
+
+    /**
+     * @return the number of cached belief sets, besides the one of the empty prefix
+     */
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    /**
+     * Remove all the belief sets from the cache. Statistics are kept.
+     */
+    public synchronized void clear() {
+        entries.clear();
+        root.children.clear();
+        root.diagnosis = null;
+    }
+
+    /**
+     * @return the number of observations of the queries whose belief set was found in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of observations of the queries that had to be processed by the diagnostician
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * @return the fraction of the observations whose belief set was found in the cache, or 0 if there hasn't been
+     *         any
+     */
+    public synchronized double getHitRate() {
+        return hits + misses == 0 ? 0 : (double) hits / (hits + misses);
+    }
+
+    @Override
+    public synchronized String toString() {
+        return size() + " entries, " + hits + " hits, " + misses + " misses, " + evictions + " evictions";
+    }
+}
@@ -0,0 +1,205 @@
+package graph.BFAnetwork;
+
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class represents the online computation of the linear diagnosis of a single plant, whose observations are
+ * received one at a time. The session keeps the belief set of the algorithm of page 85 (the states of a
+ * {@link CompiledDiagnostician} reached by the observations received so far, each one with the diagnosis accumulated
+ * to reach it) and advances it in place at each observation, like
+ * {@link BFANetworkSupervisor#linearDiagnosisRegEx(CompiledDiagnostician, List)} does for a whole linear observation.
+ *
+ * Since accumulated diagnoses are hash-consed regular expressions, extending them with a new observation takes
+ * constant time, so the cost of an observation depends only on the transitions leaving the belief set and not on how
+ * many observations came before. A session can be forked, obtaining an independent copy of its current state in time
+ * proportional to the size of the belief set, since the accumulated diagnoses are immutable and shared.
+ *
+ * Sessions are meant to be created in large numbers (e.g. one for each monitored plant) over the same compiled
+ * diagnostician, which is immutable and can be shared by any number of threads. Hence a session holds only the
+ * belief set, in two arrays as large as the belief set itself, while the buffers needed to advance it are owned by
+ * the thread advancing it and reused by all the sessions it advances: once the arrays of a session are large enough,
+ * an observation doesn't allocate anything but the nodes of the new diagnoses that aren't already in the index. A
+ * session must not be used by many threads at once.
+ */
+public final class DiagnosisSession {
+
+    /**
+     * The buffers in which the new belief set is built, owned by a thread.
+     */
+    private static final class Buffers {
+        private int[] X = new int[0]; // states in the new belief set
+        private RegEx[] R = new RegEx[0]; // R[i] is the diagnosis accumulated to reach X[i]
+        private int[] position = new int[0]; // position of each state in X, valid if stamp[state] == step
+        private int[] stamp = new int[0];
+        private int step;
+
+        private void ensureCapacity(int n) {
+            if (X.length < n) {
+                X = new int[n];
+                R = new RegEx[n];
+                position = new int[n];
+                stamp = new int[n];
+                Arrays.fill(stamp, -1);
+                step = 0;
+            }
+        }
+    }
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private final CompiledDiagnostician diagnostician;
+
+    private int[] X; // states in the current belief set
+    private RegEx[] R; // R[i] is the diagnosis accumulated to reach X[i]
+    private int size;
+
+    /**
+     * Start a session with the diagnostician {@code diagnostician}, before any observation.
+     */
+    public DiagnosisSession(CompiledDiagnostician diagnostician) {
+        this.diagnostician = diagnostician;
+        X = new int[1];
+        R = new RegEx[1];
+        reset();
+    }
+
+    /**
+     * Start a session with the compiled form of {@code diagnostician}. When many sessions use the same diagnostician,
+     * it should be compiled once and shared through {@link #DiagnosisSession(CompiledDiagnostician)}.
+     */
+    public DiagnosisSession(Diagnostician diagnostician) {
+        this(new CompiledDiagnostician(diagnostician));
+    }
+
+    private DiagnosisSession(DiagnosisSession session) {
+        diagnostician = session.diagnostician;
+        X = Arrays.copyOf(session.X, session.size);
+        R = Arrays.copyOf(session.R, session.size);
+        size = session.size;
+    }
+
+    public CompiledDiagnostician getDiagnostician() {
+        return diagnostician;
+    }
+
+    /**
+     * Go back to the initial state of the diagnostician, forgetting all the observations.
+     */
+    public void reset() {
+        Arrays.fill(R, null);
+        size = 1;
+        X[0] = diagnostician.getInitialState();
+        R[0] = RegExes.epsilon();
+    }
+
+    /**
+     * Advance the belief set with the observation {@code label}.
+     *
+     * @throws InvalidAlgorithmParameterException if no state of the belief set has a transition labelled with
+     *                                            {@code label}; the session is left unchanged
+     */
+    public void observe(String label) throws InvalidAlgorithmParameterException {
+        int l = diagnostician.getLabelId(label);
+        if (l < 0)
+            throw new InvalidAlgorithmParameterException();
+        Buffers buffers = BUFFERS.get();
+        buffers.ensureCapacity(diagnostician.getStatesCount());
+        int[] Xnew = buffers.X;
+        RegEx[] Rnew = buffers.R;
+        int[] position = buffers.position;
+        int[] stamp = buffers.stamp;
+        // stamps are compared with the current step, so they never need to be cleared
+        if (++buffers.step == Integer.MAX_VALUE) {
+            Arrays.fill(stamp, -1);
+            buffers.step = 0;
+        }
+        int step = buffers.step;
+
+        int newSize = 0;
+        for (int i = 0; i < size; i++) {
+            int x1 = X[i];
+            int end = diagnostician.endTransition(x1, l);
+            for (int t = diagnostician.firstTransition(x1, l); t < end; t++) {
+                int x2 = diagnostician.getTransitionTarget(t);
+                RegEx r2 = RegExes.concat(R[i], diagnostician.getTransitionDecoration(t));
+                if (stamp[x2] == step) {
+                    Rnew[position[x2]] = RegExes.union(Rnew[position[x2]], r2);
+                } else {
+                    stamp[x2] = step;
+                    position[x2] = newSize;
+                    Xnew[newSize] = x2;
+                    Rnew[newSize++] = r2;
+                }
+            }
+        }
+        if (newSize == 0)
+            throw new InvalidAlgorithmParameterException();
+
+        // copy the new belief set, growing the arrays of the session only if it doesn't fit
+        if (X.length < newSize) {
+            int capacity = Math.min(Math.max(newSize, 2 * X.length), diagnostician.getStatesCount());
+            X = new int[capacity];
+            R = new RegEx[capacity];
+        } else if (newSize < size) {
+            Arrays.fill(R, newSize, size, null);
+        }
+        System.arraycopy(Xnew, 0, X, 0, newSize);
+        System.arraycopy(Rnew, 0, R, 0, newSize);
+        // the buffers must not keep the diagnoses alive
+        Arrays.fill(Rnew, 0, newSize, null);
+        size = newSize;
+    }
+
+    /**
+     * Advance the belief set with each observation of {@code linObs}, in order.
+     *
+     * @throws InvalidAlgorithmParameterException if the observations are not inherent to the diagnostician; the
+     *                                            observations preceding the first one that isn't are kept
+     */
+    public void observe(List<String> linObs) throws InvalidAlgorithmParameterException {
+        for (String label : linObs) {
+            observe(label);
+        }
+    }
+
+    /**
+     * Return the diagnosis of the observations received so far. It is simplified at each call, so the cost of this
+     * method grows with the size of the diagnosis.
+     *
+     * @throws InvalidAlgorithmParameterException if the observations received so far are not inherent to the
+     *                                            diagnostician, i.e. no state of the belief set is an acceptance state
+     */
+    public RegEx currentDiagnosis() throws InvalidAlgorithmParameterException {
+        List<RegEx> alternatives = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            if (diagnostician.isAcceptance(X[i])) {
+                alternatives.add(RegExes.concat(R[i], diagnostician.getDiagnosisOf(X[i])));
+            }
+        }
+        if (alternatives.isEmpty()) {
+            throw new InvalidAlgorithmParameterException();
+        }
+        return RegExSimplifier.simplify(RegExes.union(alternatives));
+    }
+
+    /**
+     * @return the states of the current belief set, in the order they have been reached
+     */
+    public int[] getBeliefSet() {
+        return Arrays.copyOf(X, size);
+    }
+
+    /**
+     * Return an independent copy of this session: observations received by either of them don't affect the other.
+     */
+    public DiagnosisSession fork() {
+        return new DiagnosisSession(this);
+    }
+}
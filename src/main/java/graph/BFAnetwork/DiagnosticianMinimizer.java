@@ -0,0 +1,131 @@
+package graph.BFAnetwork;
+
+import graph.fa.FA;
+import graph.fa.FABuilder;
+import graph.fa.FAState;
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.util.*;
+
+/**
+ * This class minimizes a {@link Diagnostician} by merging the states that behave identically on every observation,
+ * i.e. the states that are bisimilar when transitions are labelled by the pair (observability label, decoration) and
+ * states are labelled by their diagnosis. Merging bisimilar states doesn't change the diagnosis of any linear
+ * observation, since the diagnosis is the alternative over the paths of the concatenation of their decorations.
+ *
+ * Bisimilar states are found by Moore-style partition refinement: states are first partitioned by acceptance and
+ * diagnosis, then each block is split according to the set of (label, decoration, target block) triples of the
+ * transitions leaving its states, until no block is split anymore. Decorations and diagnoses are compared as
+ * simplified, hash-consed regular expressions, so equal expressions are recognized in constant time, while
+ * equivalent but different expressions are conservatively considered different.
+ */
+public final class DiagnosticianMinimizer {
+
+    private DiagnosticianMinimizer() {
+    }
+
+    /**
+     * Return the diagnostician obtained by merging the bisimilar states of {@code diagnostician}. Each state of the
+     * returned diagnostician takes the name and the diagnosis of the first state (in alphabetical order) it replaces.
+     */
+    public static Diagnostician minimize(Diagnostician diagnostician) {
+        FA<FAState, DSCTransition> fa = diagnostician.getFa();
+        List<FAState> states = new ArrayList<>(fa.getStates());
+        states.sort(Comparator.comparing(FAState::getName));
+        Map<FAState, Integer> stateIds = new HashMap<>();
+        for (FAState s : states) {
+            stateIds.put(s, stateIds.size());
+        }
+        int n = states.size();
+
+        // the outgoing transitions of each state, as (label, decoration, target)
+        RegExSimplifier simplifier = new RegExSimplifier();
+        List<List<Object[]>> transitions = new ArrayList<>(n);
+        for (FAState s : states) {
+            List<Object[]> out = new ArrayList<>();
+            for (DSCTransition t : fa.getNetwork().outEdges(s)) {
+                out.add(new Object[] { t.getObservabilityLabel(), simplifier.apply(RegExes.parse(t.getSymbol())),
+                        stateIds.get(fa.getNetwork().incidentNodes(t).target()) });
+            }
+            transitions.add(out);
+        }
+
+        // initial partition, by acceptance and diagnosis
+        int[] block = new int[n];
+        Map<List<Object>, Integer> initialBlocks = new HashMap<>();
+        for (int s = 0; s < n; s++) {
+            FAState state = states.get(s);
+            Map<DBSState, String> diagnosis = diagnostician.getDiagnosis().get(state);
+            RegEx output = diagnosis == null ? null : diagnosisToRegEx(diagnosis, simplifier);
+            List<Object> key = Arrays.asList(fa.isAcceptance(state), output);
+            block[s] = initialBlocks.computeIfAbsent(key, k -> initialBlocks.size());
+        }
+        int blocksCount = initialBlocks.size();
+
+        // refine the partition until it is stable: since a block can only be split, the partition is stable as soon
+        // as the number of blocks doesn't change
+        while (true) {
+            Map<List<Object>, Integer> blocks = new HashMap<>();
+            int[] refined = new int[n];
+            for (int s = 0; s < n; s++) {
+                Set<List<Object>> signature = new HashSet<>();
+                for (Object[] t : transitions.get(s)) {
+                    signature.add(List.of(t[0], t[1], block[(Integer) t[2]]));
+                }
+                List<Object> key = List.of(block[s], signature);
+                refined[s] = blocks.computeIfAbsent(key, k -> blocks.size());
+            }
+            block = refined;
+            if (blocks.size() == blocksCount)
+                break;
+            blocksCount = blocks.size();
+        }
+
+        // the first state of each block (in alphabetical order) represents it
+        int[] representative = new int[blocksCount];
+        Arrays.fill(representative, -1);
+        for (int s = 0; s < n; s++) {
+            if (representative[block[s]] < 0)
+                representative[block[s]] = s;
+        }
+
+        FABuilder<FAState, DSCTransition> faBuilder = new FABuilder<>();
+        Map<FAState, Map<DBSState, String>> diagnosis = new HashMap<>();
+        FAState[] minimizedStates = new FAState[blocksCount];
+        for (int b = 0; b < blocksCount; b++) {
+            FAState state = states.get(representative[b]);
+            minimizedStates[b] = new FAState(state.getName());
+            if (diagnostician.getDiagnosis().containsKey(state))
+                diagnosis.put(minimizedStates[b], diagnostician.getDiagnosis().get(state));
+            if (fa.isAcceptance(state))
+                faBuilder.putAcceptanceState(minimizedStates[b]);
+        }
+        faBuilder.putInitialState(minimizedStates[block[stateIds.get(fa.getInitialState())]]);
+        for (int b = 0; b < blocksCount; b++) {
+            FAState state = states.get(representative[b]);
+            Set<List<Object>> added = new HashSet<>();
+            for (DSCTransition t : fa.getNetwork().outEdges(state)) {
+                int target = block[stateIds.get(fa.getNetwork().incidentNodes(t).target())];
+                // parallel transitions with the same label and decoration are redundant
+                if (added.add(List.of(t.getObservabilityLabel(), simplifier.apply(RegExes.parse(t.getSymbol())),
+                        target)))
+                    faBuilder.putTransition(minimizedStates[b], minimizedStates[target],
+                            new DSCTransition(t.getName(), t.getSymbol(), t.getObservabilityLabel()));
+            }
+        }
+        return new Diagnostician(faBuilder.build(), diagnosis);
+    }
+
+    /**
+     * Convert the diagnosis of a state into the alternative between its decorations.
+     */
+    private static RegEx diagnosisToRegEx(Map<DBSState, String> diagnosis, RegExSimplifier simplifier) {
+        List<RegEx> alternatives = new ArrayList<>();
+        for (String decoration : diagnosis.values()) {
+            alternatives.add(RegExes.parse(decoration));
+        }
+        return simplifier.apply(RegExes.union(alternatives));
+    }
+}
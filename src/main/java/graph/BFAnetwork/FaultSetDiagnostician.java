@@ -0,0 +1,258 @@
+package graph.BFAnetwork;
+
+import graph.StronglyConnectedComponents;
+import graph.fa.FA;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * This class represents a diagnostician whose decorations are sets of
+ * fault-sets ({@link FaultSets}) instead of regular expressions: it keeps track
+ * of which relevance labels occurred along the trajectories, but not of their
+ * order. Decorations are computed by propagating fault-sets through the
+ * transitions of each silent closure until a fixpoint is reached, which is far
+ * cheaper than reducing the closure to regular expressions.
+ *
+ * States correspond to the silent closures of the behavioral space, and are
+ * mapped to dense integers in alphabetical order of their names. Relevance labels
+ * (faults) and observability labels are interned to integers in alphabetical
+ * order, and the outgoing transitions of each state are stored in a single
+ * table sorted by observability label, shared in structure with
+ * {@link CompiledDiagnostician}.
+ *
+ * Once built, a diagnostician is immutable.
+ */
+public final class FaultSetDiagnostician {
+
+    private final List<String> faults;
+    private final Map<String, Integer> faultIds;
+
+    private final TransitionTable table;
+    private final FaultSets[] diagnosisOf; // null if the closure hasn't any final state
+    private final FaultSets[] transitionFaults;
+
+    /**
+     * Build the diagnostician of the (pruned) behavioral space
+     * {@code behavioralSpace}.
+     */
+    public FaultSetDiagnostician(FA<BSState, BSTransition> behavioralSpace) {
+        faults = behavioralSpace.getTransitions().stream().filter(BSTransition::hasRelevanceLabel)
+                .map(BSTransition::getRelevanceLabel).distinct().sorted()
+                .collect(Collectors.toUnmodifiableList());
+        faultIds = new HashMap<>();
+        for (String fault : faults) {
+            faultIds.put(fault, faultIds.size());
+        }
+
+        // the entry states of the silent closures
+        List<BSState> entryStates = behavioralSpace.getStates().stream()
+                .filter(s -> behavioralSpace.isInitial(s) || behavioralSpace.getNetwork().inEdges(s).stream()
+                        .anyMatch(BSTransition::hasObservabilityLabel))
+                .sorted(Comparator.comparing(BSState::getName)).collect(Collectors.toList());
+        Map<BSState, Integer> stateIds = new HashMap<>();
+        List<String> stateNames = new ArrayList<>();
+        for (BSState s : entryStates) {
+            stateIds.put(s, stateIds.size());
+            stateNames.add(s.getName());
+        }
+        Set<String> labels = behavioralSpace.getTransitions().stream().filter(BSTransition::hasObservabilityLabel)
+                .map(BSTransition::getObservabilityLabel).collect(Collectors.toSet());
+        TransitionTable.Builder builder = new TransitionTable.Builder(stateNames, labels);
+
+        int n = entryStates.size();
+        diagnosisOf = new FaultSets[n];
+        List<FaultSets> faultsOfTransitions = new ArrayList<>();
+
+        StronglyConnectedComponents<BSState> silentComponents = BFANetworkSupervisor
+                .silentComponents(behavioralSpace);
+        for (int s = 0; s < n; s++) {
+            BSState entry = entryStates.get(s);
+            FA<BSState, BSTransition> closure = BFANetworkSupervisor.silentClosure(behavioralSpace, entry,
+                    silentComponents);
+            Map<BSState, FaultSets> decorations = decorate(closure);
+
+            // the diagnosis is the union of the decorations of the final states
+            FaultSets diagnosis = FaultSets.NONE;
+            for (BSState f : closure.getFinalStates()) {
+                diagnosis = diagnosis.union(decorations.get(f));
+            }
+            boolean acceptance = !closure.getFinalStates().isEmpty();
+            diagnosisOf[s] = acceptance ? diagnosis : null;
+
+            // observable transitions leaving the closure, sorted by label and target
+            List<BSTransition> outTransitions = new ArrayList<>();
+            for (BSState x : closure.getStates()) {
+                behavioralSpace.getNetwork().outEdges(x).stream().filter(BSTransition::hasObservabilityLabel)
+                        .forEach(outTransitions::add);
+            }
+            outTransitions.sort(Comparator
+                    .<BSTransition, Integer>comparing(t -> builder.getLabelId(t.getObservabilityLabel()))
+                    .thenComparing(t -> stateIds.get(behavioralSpace.getNetwork().incidentNodes(t).target())));
+
+            builder.nextState(acceptance);
+            for (BSTransition t : outTransitions) {
+                BSState source = behavioralSpace.getNetwork().incidentNodes(t).source();
+                BSState target = behavioralSpace.getNetwork().incidentNodes(t).target();
+                builder.addTransition(builder.getLabelId(t.getObservabilityLabel()), stateIds.get(target));
+                faultsOfTransitions.add(extend(decorations.get(source), t));
+            }
+        }
+        table = builder.build(stateIds.get(behavioralSpace.getInitialState()));
+        transitionFaults = faultsOfTransitions.toArray(FaultSets[]::new);
+    }
+
+    /**
+     * Compute the fault-sets of the trajectories leading from the entry state of
+     * {@code closure} to each of its states, by propagating them through the
+     * transitions until nothing changes. Since the fault-sets of a decoration can
+     * only grow and they are finitely many, the propagation terminates.
+     */
+    private Map<BSState, FaultSets> decorate(FA<BSState, BSTransition> closure) {
+        List<BSState> states = new ArrayList<>(closure.getStates());
+        Map<BSState, Integer> ids = new IdentityHashMap<>();
+        for (int i = 0; i < states.size(); i++) {
+            ids.put(states.get(i), i);
+        }
+        FaultSets[] decorations = new FaultSets[states.size()];
+        boolean[] queued = new boolean[states.size()]; // whether each state is in the worklist
+        int initial = ids.get(closure.getInitialState());
+        decorations[initial] = FaultSets.NO_FAULTS;
+        Deque<Integer> worklist = new ArrayDeque<>();
+        worklist.add(initial);
+        queued[initial] = true;
+        while (!worklist.isEmpty()) {
+            int source = worklist.poll();
+            queued[source] = false;
+            FaultSets faultSets = decorations[source];
+            for (BSTransition t : closure.getNetwork().outEdges(states.get(source))) {
+                int target = ids.get(closure.getNetwork().incidentNodes(t).target());
+                FaultSets old = decorations[target] == null ? FaultSets.NONE : decorations[target];
+                FaultSets updated = old.union(extend(faultSets, t));
+                if (!updated.equals(old)) {
+                    decorations[target] = updated;
+                    if (!queued[target]) {
+                        worklist.add(target);
+                        queued[target] = true;
+                    }
+                }
+            }
+        }
+        Map<BSState, FaultSets> result = new HashMap<>();
+        for (int i = 0; i < states.size(); i++) {
+            if (decorations[i] != null)
+                result.put(states.get(i), decorations[i]);
+        }
+        return result;
+    }
+
+    /**
+     * Add the relevance label of {@code t}, if any, to each fault-set of
+     * {@code faultSets}.
+     */
+    private FaultSets extend(FaultSets faultSets, BSTransition t) {
+        return t.hasRelevanceLabel() ? faultSets.with(faultIds.get(t.getRelevanceLabel())) : faultSets;
+    }
+
+    /**
+     * @return the names of the faults, in the order of the integers they are
+     *         mapped to
+     */
+    public List<String> getFaults() {
+        return faults;
+    }
+
+    /**
+     * Return the integer associated to the fault {@code fault}, or -1 if no
+     * transition is labelled with it.
+     */
+    public int getFaultId(String fault) {
+        Integer id = faultIds.get(fault);
+        return id == null ? -1 : id;
+    }
+
+    public int getStatesCount() {
+        return table.getStatesCount();
+    }
+
+    public String getStateName(int state) {
+        return table.getStateName(state);
+    }
+
+    /**
+     * Return the integer associated to the state named {@code name}, or -1 if
+     * there isn't such a state
+     */
+    public int getState(String name) {
+        return table.getState(name);
+    }
+
+    public int getInitialState() {
+        return table.getInitialState();
+    }
+
+    public boolean isAcceptance(int state) {
+        return table.isAcceptance(state);
+    }
+
+    public int getLabelsCount() {
+        return table.getLabelsCount();
+    }
+
+    public String getLabel(int label) {
+        return table.getLabel(label);
+    }
+
+    /**
+     * Return the integer associated to the observability label {@code label}, or
+     * -1 if no transition of the diagnostician is labelled with it.
+     */
+    public int getLabelId(String label) {
+        return table.getLabelId(label);
+    }
+
+    public int getTransitionsCount() {
+        return table.getTransitionsCount();
+    }
+
+    /**
+     * Return the position of the first transition leaving {@code state} labelled
+     * with {@code label}, like {@link CompiledDiagnostician#firstTransition(int, int)}.
+     */
+    public int firstTransition(int state, int label) {
+        return table.firstTransition(state, label);
+    }
+
+    /**
+     * Return the position following the last transition leaving {@code state}
+     * labelled with {@code label}.
+     */
+    public int endTransition(int state, int label) {
+        return table.endTransition(state, label);
+    }
+
+    public int getTransitionLabel(int transition) {
+        return table.getTransitionLabel(transition);
+    }
+
+    public int getTransitionTarget(int transition) {
+        return table.getTransitionTarget(transition);
+    }
+
+    /**
+     * Return the fault-sets of the trajectories from the entry state of the
+     * source closure up to and including {@code transition}.
+     */
+    public FaultSets getTransitionFaults(int transition) {
+        return transitionFaults[transition];
+    }
+
+    /**
+     * Return the diagnosis of {@code state}, i.e. the union of the decorations of
+     * the final states of the corresponding silent closure, or null if the
+     * closure hasn't any final state.
+     */
+    public FaultSets getDiagnosisOf(int state) {
+        return diagnosisOf[state];
+    }
+}
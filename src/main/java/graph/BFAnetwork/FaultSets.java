@@ -0,0 +1,176 @@
+package graph.BFAnetwork;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * This class represents a diagnosis in which the order of the relevance labels
+ * is forgotten: it is a set of fault-sets, each one being the set of relevance
+ * labels (faults) occurred along a trajectory. Faults are interned to integers
+ * by the diagnostician which produces the diagnosis, and each fault-set is a
+ * bitset over them.
+ *
+ * Instances are immutable.
+ */
+public final class FaultSets {
+
+    /**
+     * The diagnosis that contains no fault-set, i.e. the diagnosis of a
+     * observation that cannot be produced
+     */
+    public static final FaultSets NONE = new FaultSets(Set.of());
+
+    /**
+     * The diagnosis that contains only the empty fault-set, i.e. the diagnosis of
+     * a trajectory without faults
+     */
+    public static final FaultSets NO_FAULTS = new FaultSets(Set.of(new BitSet()));
+
+    private final Set<BitSet> faultSets; // never modified, nor its elements
+
+    private FaultSets(Set<BitSet> faultSets) {
+        this.faultSets = faultSets;
+    }
+
+    /**
+     * @return the diagnosis containing only the fault-set {@code faults}
+     */
+    public static FaultSets of(int... faults) {
+        BitSet faultSet = new BitSet();
+        for (int fault : faults) {
+            faultSet.set(fault);
+        }
+        return new FaultSets(Set.of(faultSet));
+    }
+
+    /**
+     * @return the diagnosis containing the fault-sets of both this diagnosis and
+     *         {@code other}
+     */
+    public FaultSets union(FaultSets other) {
+        if (other.faultSets.isEmpty() || faultSets.containsAll(other.faultSets))
+            return this;
+        if (faultSets.isEmpty() || other.faultSets.containsAll(faultSets))
+            return other;
+        Set<BitSet> union = new HashSet<>(faultSets);
+        union.addAll(other.faultSets);
+        return new FaultSets(union);
+    }
+
+    /**
+     * @return the diagnosis obtained by adding {@code fault} to each fault-set of
+     *         this diagnosis
+     */
+    public FaultSets with(int fault) {
+        if (faultSets.stream().allMatch(f -> f.get(fault)))
+            return this;
+        Set<BitSet> result = new HashSet<>();
+        for (BitSet faultSet : faultSets) {
+            BitSet newFaultSet = (BitSet) faultSet.clone();
+            newFaultSet.set(fault);
+            result.add(newFaultSet);
+        }
+        return new FaultSets(result);
+    }
+
+    /**
+     * Return the diagnosis of the trajectories obtained by following a trajectory
+     * of this diagnosis with one of {@code other}, i.e. the set of the unions
+     * between a fault-set of this diagnosis and one of {@code other}. This is the
+     * counterpart of the concatenation of regular expressions.
+     */
+    public FaultSets product(FaultSets other) {
+        if (other == NO_FAULTS || faultSets.isEmpty())
+            return this;
+        if (this == NO_FAULTS || other.faultSets.isEmpty())
+            return other;
+        Set<BitSet> result = new HashSet<>();
+        for (BitSet faultSet1 : faultSets) {
+            for (BitSet faultSet2 : other.faultSets) {
+                BitSet newFaultSet = (BitSet) faultSet1.clone();
+                newFaultSet.or(faultSet2);
+                result.add(newFaultSet);
+            }
+        }
+        return new FaultSets(result);
+    }
+
+    /**
+     * @return true if there isn't any fault-set in this diagnosis
+     */
+    public boolean isEmpty() {
+        return faultSets.isEmpty();
+    }
+
+    /**
+     * @return true if {@code fault} belongs to some fault-set of this diagnosis
+     */
+    public boolean someWith(int fault) {
+        return faultSets.stream().anyMatch(f -> f.get(fault));
+    }
+
+    /**
+     * @return true if {@code fault} doesn't belong to some fault-set of this
+     *         diagnosis
+     */
+    public boolean someWithout(int fault) {
+        return faultSets.stream().anyMatch(f -> !f.get(fault));
+    }
+
+    /**
+     * @return the number of fault-sets in this diagnosis
+     */
+    public int size() {
+        return faultSets.size();
+    }
+
+    /**
+     * @return true if {@code faults} is one of the fault-sets of this diagnosis
+     */
+    public boolean contains(int... faults) {
+        BitSet faultSet = new BitSet();
+        for (int fault : faults) {
+            faultSet.set(fault);
+        }
+        return faultSets.contains(faultSet);
+    }
+
+    /**
+     * @return a copy of the fault-sets of this diagnosis
+     */
+    public Set<BitSet> getFaultSets() {
+        return faultSets.stream().map(f -> (BitSet) f.clone()).collect(Collectors.toSet());
+    }
+
+    /**
+     * Return a readable representation of this diagnosis, where faults are
+     * replaced by the corresponding names in {@code faultNames} and fault-sets are
+     * sorted by size and then lexicographically, e.g. "{}, {f}, {f, r}".
+     */
+    public String toString(List<String> faultNames) {
+        return faultSets.stream()
+                .map(f -> f.stream().mapToObj(faultNames::get).sorted().collect(Collectors.toList()))
+                .sorted(Comparator.<List<String>>comparingInt(List::size).thenComparing(Object::toString))
+                .map(f -> f.stream().collect(Collectors.joining(", ", "{", "}")))
+                .collect(Collectors.joining(", "));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof FaultSets))
+            return false;
+        return faultSets.equals(((FaultSets) o).faultSets);
+    }
+
+    @Override
+    public int hashCode() {
+        return faultSets.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return faultSets.toString();
+    }
+}
@@ -0,0 +1,146 @@
+package graph.BFAnetwork;
+
+import com.google.common.graph.EndpointPair;
+import graph.fa.FA;
+import graph.fa.Transition;
+import graph.nodes.State;
+
+import java.util.*;
+
+import static graph.fa.Constants.EPS;
+
+/**
+ * This class represents an uncertain observation, i.e. a set of linear observations given as a FA whose transitions
+ * are labelled with observability labels (the linear observations are the words leading from the initial state to an
+ * acceptance state). It can express alternative labels (parallel transitions), partially ordered events (all the
+ * interleavings of a diamond-shaped FA) and repeated or optional events (cycles, and transitions labelled with the
+ * empty string).
+ *
+ * States are mapped to dense integers (in alphabetical order of their names), and the transitions labelled with the
+ * empty string are removed by closure: the targets of an observation from a state are those reached by any number of
+ * empty transitions, then the observation, then any number of empty transitions, and a state is an acceptance state
+ * if an acceptance state can be reached from it by empty transitions. The targets of each state and label are
+ * computed when first requested and then remembered, so that the products of the observation with the diagnostician
+ * or with the network, which explore only the states they reach, don't pay for the whole automaton.
+ *
+ * An observation automaton can be used by many threads at once.
+ */
+public final class ObservationAutomaton {
+
+    private static final int[] NO_TARGETS = new int[0];
+
+    private final String[] stateNames;
+    private final int initialState;
+    private final boolean[] acceptance;
+    private final int[][] emptyClosure; // states reached from each state by empty transitions, itself included
+    // transitions labelled with a non-empty label leaving each state: label -> targets
+    private final List<Map<String, int[]>> transitions;
+    private final List<Map<String, int[]>> targets; // memoized targets of each state and label
+
+    /**
+     * Compile the observation automaton {@code observation}.
+     */
+    public <S extends State, T extends Transition> ObservationAutomaton(FA<S, T> observation) {
+        List<S> states = new ArrayList<>(observation.getStates());
+        states.sort(Comparator.comparing(S::getName));
+        Map<S, Integer> stateIds = new HashMap<>();
+        for (S s : states) {
+            stateIds.put(s, stateIds.size());
+        }
+        int n = states.size();
+        stateNames = new String[n];
+        transitions = new ArrayList<>(n);
+        targets = new ArrayList<>(n);
+        List<List<Integer>> emptyTargets = new ArrayList<>(n);
+        for (int o = 0; o < n; o++) {
+            stateNames[o] = states.get(o).getName();
+            transitions.add(new HashMap<>());
+            targets.add(new HashMap<>());
+            emptyTargets.add(new ArrayList<>());
+        }
+        for (T t : observation.getTransitions()) {
+            EndpointPair<S> endpoints = observation.getNetwork().incidentNodes(t);
+            int source = stateIds.get(endpoints.source());
+            int target = stateIds.get(endpoints.target());
+            String label = t.getSymbol() == null ? EPS : t.getSymbol();
+            if (label.equals(EPS)) {
+                emptyTargets.get(source).add(target);
+            } else {
+                transitions.get(source).merge(label, new int[] { target }, ObservationAutomaton::merge);
+            }
+        }
+        initialState = stateIds.get(observation.getInitialState());
+
+        emptyClosure = new int[n][];
+        acceptance = new boolean[n];
+        for (int o = 0; o < n; o++) {
+            BitSet closure = new BitSet(n);
+            Deque<Integer> stack = new ArrayDeque<>(List.of(o));
+            closure.set(o);
+            while (!stack.isEmpty()) {
+                for (int o2 : emptyTargets.get(stack.pop())) {
+                    if (!closure.get(o2)) {
+                        closure.set(o2);
+                        stack.push(o2);
+                    }
+                }
+            }
+            emptyClosure[o] = closure.stream().toArray();
+            for (int o2 : emptyClosure[o]) {
+                acceptance[o] |= observation.isAcceptance(states.get(o2));
+            }
+        }
+    }
+
+    private static int[] merge(int[] a, int[] b) {
+        int[] merged = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, merged, a.length, b.length);
+        return merged;
+    }
+
+    public int getStatesCount() {
+        return stateNames.length;
+    }
+
+    public String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    public int getInitialState() {
+        return initialState;
+    }
+
+    /**
+     * Return true if an acceptance state can be reached from {@code state} by empty transitions, i.e. if the
+     * observation may be complete in {@code state}.
+     */
+    public boolean isAcceptance(int state) {
+        return acceptance[state];
+    }
+
+    /**
+     * Return the states reached from {@code state} by the observation {@code label}, possibly preceded and followed
+     * by empty transitions, in increasing order.
+     */
+    public int[] getTargets(int state, String label) {
+        Map<String, int[]> memo = targets.get(state);
+        synchronized (memo) {
+            int[] result = memo.get(label);
+            if (result != null)
+                return result;
+        }
+        BitSet reached = new BitSet(stateNames.length);
+        for (int o1 : emptyClosure[state]) {
+            for (int o2 : transitions.get(o1).getOrDefault(label, NO_TARGETS)) {
+                for (int o3 : emptyClosure[o2]) {
+                    reached.set(o3);
+                }
+            }
+        }
+        int[] result = reached.isEmpty() ? NO_TARGETS : reached.stream().toArray();
+        synchronized (memo) {
+            memo.putIfAbsent(label, result);
+            return memo.get(label);
+        }
+    }
+}
@@ -0,0 +1,301 @@
+package graph.BFAnetwork;
+
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.*;
+
+/**
+ * This class computes linear diagnoses with a {@link CompiledDiagnostician} by segments rather than one observation at
+ * a time, which pays off for long observations made of a few segments repeated many times (e.g. the same heartbeat
+ * pattern repeated thousands of times). The {@link TransferFunction} of a segment repeated k times is obtained by
+ * repeated squaring, with log(k) compositions of the transfer function of the segment; the transfer functions of the
+ * segments and of their powers of two are kept in a bounded cache, shared by all the diagnoses, so frequent segments
+ * are summarized once.
+ *
+ * A belief set is represented as an array indexed by the states of the diagnostician, holding the diagnosis accumulated
+ * to reach each state, or null for the states not in the belief set. The diagnosis of a run-length encoded observation
+ * is computed by advancing the initial belief set with each run in turn, in time depending only on the number of runs
+ * and on the logarithm of their repetitions; {@link #linearDiagnosisRegEx(List)} finds the runs of a plain linear
+ * observation by itself. Since the decorations of the transfer functions are hash-consed, a segment whose
+ * decorations are all empty (as it is for the observations that don't involve faults) keeps constant-size transfer
+ * functions however many times it is repeated, while the others grow with the diagnosis they produce.
+ *
+ * Summaries can be used by many threads at once.
+ */
+public final class SegmentSummaries {
+
+    /**
+     * The default maximum length of the repeated segments found in a linear observation
+     */
+    public static final int DEFAULT_MAX_PERIOD = 16;
+    /**
+     * The default number of transfer functions kept in the cache
+     */
+    public static final int DEFAULT_CACHE_SIZE = 1024;
+    // minimum number of repetitions of a segment for it to be summarized, instead of advancing observation by
+    // observation, since composing transfer functions costs more than advancing a belief set
+    private static final int MIN_REPETITIONS = 8;
+
+    /**
+     * The key of a transfer function in the cache: a segment repeated 2^log times.
+     */
+    private static final class Segment {
+        private final int[] labels;
+        private final int log;
+
+        Segment(int[] labels, int log) {
+            this.labels = labels;
+            this.log = log;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o)
+                return true;
+            if (!(o instanceof Segment))
+                return false;
+            Segment segment = (Segment) o;
+            return log == segment.log && Arrays.equals(labels, segment.labels);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Arrays.hashCode(labels) + log;
+        }
+    }
+
+    private final CompiledDiagnostician diagnostician;
+    private final TransferFunction[] labelFunctions;
+    private final int maxPeriod;
+    private final int maxEntries;
+    private final LinkedHashMap<Segment, TransferFunction> cache = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Create the summaries of the segments of observations of {@code diagnostician}, with the default maximum length
+     * of repeated segments and size of the cache.
+     */
+    public SegmentSummaries(CompiledDiagnostician diagnostician) {
+        this(diagnostician, DEFAULT_MAX_PERIOD, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * Create the summaries of the segments of observations of {@code diagnostician}, looking for repeated segments
+     * at most {@code maxPeriod} observations long in linear observations, and caching at most {@code maxEntries}
+     * transfer functions.
+     */
+    public SegmentSummaries(CompiledDiagnostician diagnostician, int maxPeriod, int maxEntries) {
+        if (maxPeriod <= 0 || maxEntries <= 0)
+            throw new IllegalArgumentException("The length of segments and the size of the cache must be positive.");
+        this.diagnostician = diagnostician;
+        this.maxPeriod = maxPeriod;
+        this.maxEntries = maxEntries;
+        labelFunctions = new TransferFunction[diagnostician.getLabelsCount()];
+        for (int l = 0; l < labelFunctions.length; l++) {
+            labelFunctions[l] = TransferFunction.ofLabel(diagnostician, l);
+        }
+    }
+
+    public CompiledDiagnostician getDiagnostician() {
+        return diagnostician;
+    }
+
+    /**
+     * @return the belief set before any observation
+     */
+    public RegEx[] initialBelief() {
+        RegEx[] belief = new RegEx[diagnostician.getStatesCount()];
+        belief[diagnostician.getInitialState()] = RegExes.epsilon();
+        return belief;
+    }
+
+    /**
+     * Return the belief set reached from {@code belief} through {@code segment} repeated {@code repetitions} times.
+     *
+     * @throws InvalidAlgorithmParameterException if the observations are not inherent to the diagnostician
+     */
+    public RegEx[] advance(RegEx[] belief, List<String> segment, long repetitions)
+            throws InvalidAlgorithmParameterException {
+        if (repetitions < 0)
+            throw new IllegalArgumentException("The number of repetitions must not be negative.");
+        return advance(belief, labelIds(segment), repetitions);
+    }
+
+    private RegEx[] advance(RegEx[] belief, int[] labels, long repetitions) throws InvalidAlgorithmParameterException {
+        if (labels.length == 0)
+            return belief;
+        for (int log = 0; repetitions >> log != 0; log++) {
+            if ((repetitions >> log & 1) != 0)
+                belief = checkNotEmpty(summarize(labels, log).apply(belief));
+        }
+        return belief;
+    }
+
+    /**
+     * Return the transfer function of {@code segment} repeated {@code repetitions} times.
+     *
+     * @throws InvalidAlgorithmParameterException if some observation of {@code segment} is not a label of the
+     *                                            diagnostician
+     */
+    public TransferFunction summarize(List<String> segment, long repetitions)
+            throws InvalidAlgorithmParameterException {
+        if (repetitions < 0)
+            throw new IllegalArgumentException("The number of repetitions must not be negative.");
+        int[] labels = labelIds(segment);
+        TransferFunction result = TransferFunction.identity(diagnostician.getStatesCount());
+        if (labels.length == 0)
+            return result;
+        for (int log = 0; repetitions >> log != 0; log++) {
+            if ((repetitions >> log & 1) != 0)
+                result = result.then(summarize(labels, log));
+        }
+        return result;
+    }
+
+    /**
+     * Return the transfer function of the segment {@code labels} repeated 2^{@code log} times, computing it from the
+     * one repeated 2^({@code log}-1) times if it isn't in the cache.
+     */
+    private TransferFunction summarize(int[] labels, int log) {
+        Segment key = new Segment(labels, log);
+        synchronized (this) {
+            TransferFunction function = cache.get(key);
+            if (function != null) {
+                hits++;
+                return function;
+            }
+            misses++;
+        }
+        TransferFunction function;
+        if (log > 0) {
+            TransferFunction half = summarize(labels, log - 1);
+            function = half.then(half);
+        } else {
+            function = labelFunctions[labels[0]];
+            for (int i = 1; i < labels.length; i++) {
+                function = function.then(labelFunctions[labels[i]]);
+            }
+        }
+        synchronized (this) {
+            cache.put(key, function);
+            Iterator<TransferFunction> eldest = cache.values().iterator();
+            while (cache.size() > maxEntries) {
+                eldest.next();
+                eldest.remove();
+            }
+        }
+        return function;
+    }
+
+    /**
+     * Return the diagnosis of the observations that led to {@code belief}, like
+     * {@link BFANetworkSupervisor#linearDiagnosisRegEx(CompiledDiagnostician, List)}.
+     *
+     * @throws InvalidAlgorithmParameterException if no state of the belief set is an acceptance state
+     */
+    public RegEx diagnosis(RegEx[] belief) throws InvalidAlgorithmParameterException {
+        List<RegEx> alternatives = new ArrayList<>();
+        for (int x = 0; x < belief.length; x++) {
+            if (belief[x] != null && diagnostician.isAcceptance(x)) {
+                alternatives.add(RegExes.concat(belief[x], diagnostician.getDiagnosisOf(x)));
+            }
+        }
+        if (alternatives.isEmpty()) {
+            throw new InvalidAlgorithmParameterException();
+        }
+        return RegExSimplifier.simplify(RegExes.union(alternatives));
+    }
+
+    /**
+     * Computes the linear diagnosis relating to the linear observation {@code linObs}, like
+     * {@link BFANetworkSupervisor#linearDiagnosisRegEx(CompiledDiagnostician, List)}. The observation is scanned for
+     * runs of a segment at most as long as the maximum period, repeated at least {@value #MIN_REPETITIONS} times
+     * (choosing at each position the run covering most observations), which are crossed with the transfer functions
+     * of the segment; the other observations are processed one at a time.
+     *
+     * @throws InvalidAlgorithmParameterException if the linear observation is not inherent to the diagnostician
+     */
+    public RegEx linearDiagnosisRegEx(List<String> linObs) throws InvalidAlgorithmParameterException {
+        int[] labels = labelIds(linObs);
+        RegEx[] belief = initialBelief();
+        int i = 0;
+        while (i < labels.length) {
+            int bestPeriod = 1;
+            int bestRepetitions = 1;
+            for (int period = 1; period <= maxPeriod && i + 2 * period <= labels.length; period++) {
+                int repetitions = 1;
+                while (i + (repetitions + 1) * period <= labels.length
+                        && Arrays.equals(labels, i, i + period, labels, i + repetitions * period,
+                                i + (repetitions + 1) * period)) {
+                    repetitions++;
+                }
+                if (period * repetitions > bestPeriod * bestRepetitions) {
+                    bestPeriod = period;
+                    bestRepetitions = repetitions;
+                }
+            }
+            if (bestRepetitions >= MIN_REPETITIONS) {
+                belief = advance(belief, Arrays.copyOfRange(labels, i, i + bestPeriod), bestRepetitions);
+                i += bestPeriod * bestRepetitions;
+            } else {
+                belief = checkNotEmpty(labelFunctions[labels[i]].apply(belief));
+                i++;
+            }
+        }
+        return diagnosis(belief);
+    }
+
+    /**
+     * Computes the linear diagnosis relating to the linear observation {@code linObs}.
+     *
+     * @return A string representing the diagnosis of the provided linear observation
+     * @throws InvalidAlgorithmParameterException if the linear observation is not inherent to the diagnostician
+     */
+    public String linearDiagnosis(List<String> linObs) throws InvalidAlgorithmParameterException {
+        return linearDiagnosisRegEx(linObs).toString();
+    }
+
+    private int[] labelIds(List<String> linObs) throws InvalidAlgorithmParameterException {
+        int[] labels = new int[linObs.size()];
+        for (int i = 0; i < labels.length; i++) {
+            labels[i] = diagnostician.getLabelId(linObs.get(i));
+            if (labels[i] < 0)
+                throw new InvalidAlgorithmParameterException();
+        }
+        return labels;
+    }
+
+    private static RegEx[] checkNotEmpty(RegEx[] belief) throws InvalidAlgorithmParameterException {
+        for (RegEx r : belief) {
+            if (r != null)
+                return belief;
+        }
+        throw new InvalidAlgorithmParameterException();
+    }
+
+    /**
+     * @return the number of transfer functions found in the cache
+     */
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    /**
+     * @return the number of transfer functions that had to be computed
+     */
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the number of transfer functions in the cache
+     */
+    public synchronized int size() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,167 @@
+package graph.BFAnetwork;
+
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.security.InvalidAlgorithmParameterException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * This class computes the diagnosis of the last observations of an unbounded stream, rather than of all the
+ * observations since the start of the system. Since the state of the system when the window starts is unknown, the
+ * diagnosis of the window is the alternative between the diagnoses of its observations starting from every state of
+ * the {@link CompiledDiagnostician} (but from the initial state only, as long as the window covers the whole stream).
+ *
+ * The window is kept as the composition of the {@link TransferFunction}s of its observations, with the two-stack
+ * technique of sliding-window aggregation: new observations are composed into the back, while the front keeps the
+ * compositions of each suffix of the older observations, so that the oldest one is dropped by popping the front.
+ * When the front is empty, the back is moved to it in one pass. Each observation is thus composed a constant number of
+ * times, and sliding the window takes amortized constant time per observation (with respect to the length of the
+ * window and of the stream), while the memory is bounded by the length of the window. The suffixes of the front are
+ * built from the most recent observation backwards, so they are kept {@link TransferFunction#reversed() reversed}:
+ * composing a reversed suffix with the reversed function of the previous observation appends to its decorations,
+ * whereas composing the function of the previous observation with the suffix would prepend to them, in time growing
+ * with their length. The diagnosis is computed only when requested, reversing the front back and composing it with the
+ * back.
+ *
+ * A sliding window must not be used by many threads at once.
+ */
+public final class SlidingWindowDiagnosis {
+
+    private final CompiledDiagnostician diagnostician;
+    private final int windowSize;
+    private final TransferFunction[] labelFunctions;
+    private final TransferFunction[] reversedLabelFunctions;
+    private final TransferFunction identity;
+
+    // front[i] is the reversed composition of the i+1 most recent observations of the front, front[frontSize-1] of
+    // all of them
+    private final TransferFunction[] front;
+    private int frontSize;
+    private final int[] back; // labels of the observations of the back, in order
+    private int backSize;
+    private TransferFunction backFunction; // composition of the observations of the back
+    private long observed; // observations received since the start
+
+    /**
+     * Start diagnosing the last {@code windowSize} observations with the diagnostician {@code diagnostician}.
+     */
+    public SlidingWindowDiagnosis(CompiledDiagnostician diagnostician, int windowSize) {
+        if (windowSize <= 0)
+            throw new IllegalArgumentException("The size of the window must be positive.");
+        this.diagnostician = diagnostician;
+        this.windowSize = windowSize;
+        labelFunctions = new TransferFunction[diagnostician.getLabelsCount()];
+        reversedLabelFunctions = new TransferFunction[labelFunctions.length];
+        for (int l = 0; l < labelFunctions.length; l++) {
+            labelFunctions[l] = TransferFunction.ofLabel(diagnostician, l);
+            reversedLabelFunctions[l] = labelFunctions[l].reversed();
+        }
+        identity = TransferFunction.identity(diagnostician.getStatesCount());
+        front = new TransferFunction[windowSize];
+        back = new int[windowSize];
+        reset();
+    }
+
+    public CompiledDiagnostician getDiagnostician() {
+        return diagnostician;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * @return the number of observations in the window
+     */
+    public int size() {
+        return frontSize + backSize;
+    }
+
+    /**
+     * Forget all the observations, going back to the start of the system.
+     */
+    public void reset() {
+        Arrays.fill(front, null);
+        frontSize = 0;
+        backSize = 0;
+        backFunction = identity;
+        observed = 0;
+    }
+
+    /**
+     * Add the observation {@code label} to the window, dropping the oldest one if the window is full.
+     *
+     * @throws InvalidAlgorithmParameterException if no transition of the diagnostician is labelled with
+     *                                            {@code label}; the window is left unchanged
+     */
+    public void observe(String label) throws InvalidAlgorithmParameterException {
+        int l = diagnostician.getLabelId(label);
+        if (l < 0)
+            throw new InvalidAlgorithmParameterException();
+        if (size() == windowSize) {
+            if (frontSize == 0)
+                moveBackToFront();
+            front[--frontSize] = null;
+        }
+        back[backSize++] = l;
+        backFunction = backFunction.then(labelFunctions[l]);
+        observed++;
+    }
+
+    /**
+     * Add each observation of {@code linObs} to the window, in order.
+     *
+     * @throws InvalidAlgorithmParameterException if some observation is not a label of the diagnostician; the
+     *                                            observations preceding it are kept
+     */
+    public void observe(List<String> linObs) throws InvalidAlgorithmParameterException {
+        for (String label : linObs) {
+            observe(label);
+        }
+    }
+
+    /**
+     * Move the observations of the back to the front, composing each suffix of them (reversed) from the most recent
+     * one.
+     */
+    private void moveBackToFront() {
+        TransferFunction suffix = identity;
+        for (int i = backSize - 1; i >= 0; i--) {
+            suffix = suffix.then(reversedLabelFunctions[back[i]]);
+            front[frontSize++] = suffix;
+        }
+        backSize = 0;
+        backFunction = identity;
+    }
+
+    /**
+     * Return the diagnosis of the observations in the window.
+     *
+     * @throws InvalidAlgorithmParameterException if the observations in the window are not inherent to the
+     *                                            diagnostician from any state
+     */
+    public RegEx currentDiagnosis() throws InvalidAlgorithmParameterException {
+        TransferFunction window = frontSize == 0 ? backFunction : front[frontSize - 1].reversed().then(backFunction);
+        RegEx[] belief = new RegEx[diagnostician.getStatesCount()];
+        if (observed <= windowSize)
+            belief[diagnostician.getInitialState()] = RegExes.epsilon();
+        else
+            Arrays.fill(belief, RegExes.epsilon());
+        belief = window.apply(belief);
+
+        List<RegEx> alternatives = new ArrayList<>();
+        for (int x = 0; x < belief.length; x++) {
+            if (belief[x] != null && diagnostician.isAcceptance(x)) {
+                alternatives.add(RegExes.concat(belief[x], diagnostician.getDiagnosisOf(x)));
+            }
+        }
+        if (alternatives.isEmpty()) {
+            throw new InvalidAlgorithmParameterException();
+        }
+        return RegExSimplifier.simplify(RegExes.union(alternatives));
+    }
+}
@@ -0,0 +1,218 @@
+package graph.BFAnetwork;
+
+import graph.regex.RegEx;
+import graph.regex.RegExReverser;
+import graph.regex.RegExes;
+
+import java.util.*;
+
+/**
+ * This class represents the effect of a segment of observations on the belief sets of a {@link CompiledDiagnostician}:
+ * a relation between its states, where state x is related to state y if the segment leads from x to y, decorated with
+ * the alternative between the decorations accumulated along the ways from x to y. The transfer function of a single
+ * observation relates the endpoints of the transitions labelled with it, and the transfer function of the
+ * concatenation of two segments is the composition of theirs, so the transfer function of a segment can be reused
+ * wherever the segment occurs, and the one of a segment repeated k times can be computed with log(k) compositions.
+ *
+ * The relation is stored like the transitions of {@link CompiledDiagnostician}: the pairs having the same source are
+ * contiguous in a single table, sorted by target. Transfer functions are immutable.
+ */
+public final class TransferFunction {
+
+    private final int statesCount;
+    // pairs with source x are stored at positions [firstPair[x], firstPair[x+1])
+    private final int[] firstPair;
+    private final int[] pairTarget;
+    private final RegEx[] pairDecoration;
+
+    private TransferFunction(int statesCount, int[] firstPair, int[] pairTarget, RegEx[] pairDecoration) {
+        this.statesCount = statesCount;
+        this.firstPair = firstPair;
+        this.pairTarget = pairTarget;
+        this.pairDecoration = pairDecoration;
+    }
+
+    /**
+     * Return the transfer function of the empty segment over {@code statesCount} states, i.e. the identity relation
+     * decorated with the empty string.
+     */
+    public static TransferFunction identity(int statesCount) {
+        int[] firstPair = new int[statesCount + 1];
+        int[] pairTarget = new int[statesCount];
+        RegEx[] pairDecoration = new RegEx[statesCount];
+        for (int x = 0; x < statesCount; x++) {
+            firstPair[x + 1] = x + 1;
+            pairTarget[x] = x;
+            pairDecoration[x] = RegExes.epsilon();
+        }
+        return new TransferFunction(statesCount, firstPair, pairTarget, pairDecoration);
+    }
+
+    /**
+     * Return the transfer function of the observation {@code label} (as interned by {@code diagnostician}).
+     */
+    public static TransferFunction ofLabel(CompiledDiagnostician diagnostician, int label) {
+        int n = diagnostician.getStatesCount();
+        Builder builder = new Builder(n);
+        for (int x = 0; x < n; x++) {
+            int end = diagnostician.endTransition(x, label);
+            for (int t = diagnostician.firstTransition(x, label); t < end; t++) {
+                builder.add(diagnostician.getTransitionTarget(t), diagnostician.getTransitionDecoration(t));
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return the transfer function of this segment followed by the segment of {@code next}.
+     */
+    public TransferFunction then(TransferFunction next) {
+        if (next.statesCount != statesCount)
+            throw new IllegalArgumentException("The transfer functions relate the states of different diagnosticians.");
+        Builder builder = new Builder(statesCount);
+        for (int x = 0; x < statesCount; x++) {
+            for (int p = firstPair[x]; p < firstPair[x + 1]; p++) {
+                int y = pairTarget[p];
+                for (int q = next.firstPair[y]; q < next.firstPair[y + 1]; q++) {
+                    builder.add(next.pairTarget[q], RegExes.concat(pairDecoration[p], next.pairDecoration[q]));
+                }
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return the transfer function of this segment read backwards: the relation is reversed (y is related to x if x
+     * is related to y), and so are the decorations. The reversal of the transfer function of two segments is the
+     * composition of their reversals in the opposite order, so the transfer function of a segment can be built from
+     * its end by composing the reversals, which appends decorations rather than prepending them (which is cheaper,
+     * since concatenations are kept nested to the left).
+     */
+    public TransferFunction reversed() {
+        RegExReverser reverser = new RegExReverser();
+        // pairs by target, each one as {source, position}
+        List<List<int[]>> pairsTo = new ArrayList<>(Collections.nCopies(statesCount, null));
+        for (int x = 0; x < statesCount; x++) {
+            for (int p = firstPair[x]; p < firstPair[x + 1]; p++) {
+                if (pairsTo.get(pairTarget[p]) == null)
+                    pairsTo.set(pairTarget[p], new ArrayList<>(2));
+                pairsTo.get(pairTarget[p]).add(new int[] { x, p });
+            }
+        }
+        Builder builder = new Builder(statesCount);
+        for (int y = 0; y < statesCount; y++) {
+            if (pairsTo.get(y) != null) {
+                for (int[] pair : pairsTo.get(y)) {
+                    builder.add(pair[0], reverser.apply(pairDecoration[pair[1]]));
+                }
+            }
+            builder.endRow();
+        }
+        return builder.build();
+    }
+
+    /**
+     * Return the belief set reached from {@code belief} through this segment. Belief sets are arrays indexed by
+     * state, holding the diagnosis accumulated to reach each state, or null for the states not in the belief set.
+     */
+    public RegEx[] apply(RegEx[] belief) {
+        RegEx[] result = new RegEx[statesCount];
+        List<List<RegEx>> alternatives = new ArrayList<>(Collections.nCopies(statesCount, null));
+        for (int x = 0; x < statesCount; x++) {
+            if (belief[x] == null)
+                continue;
+            for (int p = firstPair[x]; p < firstPair[x + 1]; p++) {
+                int y = pairTarget[p];
+                if (alternatives.get(y) == null)
+                    alternatives.set(y, new ArrayList<>(2));
+                alternatives.get(y).add(RegExes.concat(belief[x], pairDecoration[p]));
+            }
+        }
+        for (int y = 0; y < statesCount; y++) {
+            if (alternatives.get(y) != null)
+                result[y] = RegExes.union(alternatives.get(y));
+        }
+        return result;
+    }
+
+    public int getStatesCount() {
+        return statesCount;
+    }
+
+    /**
+     * @return the number of pairs of states in the relation
+     */
+    public int getPairsCount() {
+        return pairTarget.length;
+    }
+
+    /**
+     * Return the position of the first pair with source {@code state}. Pairs with source {@code state} are those in
+     * [firstPair(state), firstPair(state + 1)).
+     */
+    public int firstPair(int state) {
+        return firstPair[state];
+    }
+
+    public int getPairTarget(int pair) {
+        return pairTarget[pair];
+    }
+
+    public RegEx getPairDecoration(int pair) {
+        return pairDecoration[pair];
+    }
+
+    /**
+     * Builds a transfer function one source at a time, merging the pairs with the same target into a single one
+     * decorated with the alternative between their decorations.
+     */
+    private static final class Builder {
+        private final int[] firstPair;
+        private final List<RegEx>[] alternatives; // decorations of the pairs of the current source, by target
+        private final int[] rowTargets; // targets of the pairs of the current source
+        private int rowSize;
+        private int[] targets = new int[8];
+        private RegEx[] decorations = new RegEx[8];
+        private int size;
+        private int source;
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        Builder(int statesCount) {
+            firstPair = new int[statesCount + 1];
+            alternatives = new List[statesCount];
+            rowTargets = new int[statesCount];
+        }
+
+        void add(int target, RegEx decoration) {
+            if (alternatives[target] == null) {
+                alternatives[target] = new ArrayList<>(2);
+                rowTargets[rowSize++] = target;
+            }
+            alternatives[target].add(decoration);
+        }
+
+        void endRow() {
+            Arrays.sort(rowTargets, 0, rowSize);
+            if (size + rowSize > targets.length) {
+                int capacity = Math.max(size + rowSize, 2 * targets.length);
+                targets = Arrays.copyOf(targets, capacity);
+                decorations = Arrays.copyOf(decorations, capacity);
+            }
+            for (int i = 0; i < rowSize; i++) {
+                int target = rowTargets[i];
+                targets[size] = target;
+                decorations[size++] = RegExes.union(alternatives[target]);
+                alternatives[target] = null;
+            }
+            rowSize = 0;
+            firstPair[++source] = size;
+        }
+
+        TransferFunction build() {
+            return new TransferFunction(firstPair.length - 1, firstPair, Arrays.copyOf(targets, size),
+                    Arrays.copyOf(decorations, size));
+        }
+    }
+}
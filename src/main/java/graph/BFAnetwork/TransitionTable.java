@@ -0,0 +1,181 @@
+package graph.BFAnetwork;
+
+import java.util.*;
+
+/**
+ * This class represents the states and the observable transitions of a compiled diagnostician
+ * ({@link CompiledDiagnostician}, {@link FaultSetDiagnostician}). States are mapped to dense integers in alphabetical
+ * order of their names, and observability labels are interned to integers in alphabetical order. The outgoing
+ * transitions of each state are stored in a single table, where the transitions leaving a state are contiguous and
+ * sorted by label, so that the transitions triggered by an observation are found with a binary search. The
+ * decorations of transitions and states are kept by the diagnosticians, indexed by the same integers.
+ *
+ * Once built, a table is immutable.
+ */
+final class TransitionTable {
+
+    /**
+     * A builder of a table, receiving the transitions state by state.
+     */
+    static final class Builder {
+        private final String[] stateNames;
+        private final boolean[] acceptance;
+        private final String[] labels;
+        private final Map<String, Integer> labelIds = new HashMap<>();
+        private final int[] firstTransition;
+        private int[] transitionLabel = new int[16];
+        private int[] transitionTarget = new int[16];
+        private int transitionsCount;
+        private int state = -1; // the state whose transitions are being added
+
+        /**
+         * Create a builder of a table whose states are named {@code stateNames}, in alphabetical order, and whose
+         * transitions are labelled with {@code labels}.
+         */
+        Builder(List<String> stateNames, Collection<String> labels) {
+            this.stateNames = stateNames.toArray(String[]::new);
+            acceptance = new boolean[this.stateNames.length];
+            firstTransition = new int[this.stateNames.length + 1];
+            this.labels = new TreeSet<>(labels).toArray(String[]::new);
+            for (String label : this.labels) {
+                labelIds.put(label, labelIds.size());
+            }
+        }
+
+        int getLabelId(String label) {
+            return labelIds.get(label);
+        }
+
+        /**
+         * Start adding the transitions leaving the next state, which is an acceptance state if {@code acceptance}.
+         */
+        void nextState(boolean acceptance) {
+            state++;
+            this.acceptance[state] = acceptance;
+            firstTransition[state] = transitionsCount;
+        }
+
+        /**
+         * Add a transition leaving the current state, labelled with {@code label}. The transitions leaving a state must
+         * be added in increasing order of label.
+         *
+         * @return the position of the transition in the table
+         */
+        int addTransition(int label, int target) {
+            if (transitionsCount == transitionLabel.length) {
+                transitionLabel = Arrays.copyOf(transitionLabel, 2 * transitionsCount);
+                transitionTarget = Arrays.copyOf(transitionTarget, 2 * transitionsCount);
+            }
+            transitionLabel[transitionsCount] = label;
+            transitionTarget[transitionsCount] = target;
+            return transitionsCount++;
+        }
+
+        TransitionTable build(int initialState) {
+            if (state != stateNames.length - 1)
+                throw new IllegalStateException("The transitions of some states haven't been added.");
+            firstTransition[stateNames.length] = transitionsCount;
+            return new TransitionTable(this, initialState);
+        }
+    }
+
+    private final String[] stateNames;
+    private final int initialState;
+    private final boolean[] acceptance;
+
+    private final Map<String, Integer> labelIds;
+    private final String[] labels;
+
+    // outgoing transitions of state s are stored at positions [firstTransition[s], firstTransition[s+1])
+    private final int[] firstTransition;
+    private final int[] transitionLabel;
+    private final int[] transitionTarget;
+
+    private TransitionTable(Builder builder, int initialState) {
+        stateNames = builder.stateNames;
+        this.initialState = initialState;
+        acceptance = builder.acceptance;
+        labelIds = builder.labelIds;
+        labels = builder.labels;
+        firstTransition = builder.firstTransition;
+        transitionLabel = Arrays.copyOf(builder.transitionLabel, builder.transitionsCount);
+        transitionTarget = Arrays.copyOf(builder.transitionTarget, builder.transitionsCount);
+    }
+
+    int getStatesCount() {
+        return stateNames.length;
+    }
+
+    String getStateName(int state) {
+        return stateNames[state];
+    }
+
+    /**
+     * Return the integer associated to the state named {@code name}, or -1 if there isn't such a state
+     */
+    int getState(String name) {
+        int state = Arrays.binarySearch(stateNames, name);
+        return state < 0 ? -1 : state;
+    }
+
+    int getInitialState() {
+        return initialState;
+    }
+
+    boolean isAcceptance(int state) {
+        return acceptance[state];
+    }
+
+    int getLabelsCount() {
+        return labels.length;
+    }
+
+    String getLabel(int label) {
+        return labels[label];
+    }
+
+    /**
+     * Return the integer associated to the observability label {@code label}, or -1 if no transition is labelled with
+     * it.
+     */
+    int getLabelId(String label) {
+        Integer id = labelIds.get(label);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Return the position of the first transition leaving {@code state} labelled with {@code label}. Transitions
+     * leaving {@code state} with that label are those in [firstTransition(state, label), endTransition(state, label)).
+     */
+    int firstTransition(int state, int label) {
+        int low = firstTransition[state];
+        int high = firstTransition[state + 1];
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (transitionLabel[mid] < label)
+                low = mid + 1;
+            else
+                high = mid;
+        }
+        return low;
+    }
+
+    /**
+     * Return the position following the last transition leaving {@code state} labelled with {@code label}.
+     */
+    int endTransition(int state, int label) {
+        return firstTransition(state, label + 1);
+    }
+
+    int getTransitionsCount() {
+        return transitionLabel.length;
+    }
+
+    int getTransitionTarget(int transition) {
+        return transitionTarget[transition];
+    }
+
+    int getTransitionLabel(int transition) {
+        return transitionLabel[transition];
+    }
+}
@@ -0,0 +1,206 @@
+package graph;
+
+import com.google.common.graph.Network;
+
+import java.util.*;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * The strongly connected components of a network, computed once with an
+ * iterative version of Tarjan's algorithm, so that deep networks don't overflow
+ * the stack. Components are numbered in topological order of the condensation
+ * (the DAG having a node for each component): every transition between two
+ * different components goes from a lower number to a higher one, hence the
+ * stages that only need to know how components are connected can process them
+ * with a single scan.
+ *
+ * Only the transitions accepted by the filter provided at construction are
+ * considered, e.g. only the non-observable transitions of a behavioral space.
+ * The index isn't updated when the network changes.
+ *
+ * @param <N> Node parameter type
+ *
+ * @author Pietro Venturini
+ */
+public final class StronglyConnectedComponents<N> {
+
+    private final Map<N, Integer> componentOf = new HashMap<>();
+    private final List<List<N>> components = new ArrayList<>();
+    private final boolean[] cyclic;
+    private final int[][] successors;
+
+    private <E> StronglyConnectedComponents(Network<N, E> network, Predicate<? super E> filter) {
+        Map<N, Integer> index = new HashMap<>();
+        Map<N, Integer> lowLink = new HashMap<>();
+        Deque<N> stack = new ArrayDeque<>();
+        Set<N> onStack = new HashSet<>();
+
+        for (N root : network.nodes()) {
+            if (index.containsKey(root))
+                continue;
+            // each frame is a node together with the iterator over its outgoing transitions
+            Deque<Map.Entry<N, Iterator<E>>> frames = new ArrayDeque<>();
+            visit(root, index, lowLink, stack, onStack);
+            frames.push(Map.entry(root, network.outEdges(root).iterator()));
+            while (!frames.isEmpty()) {
+                N v = frames.peek().getKey();
+                Iterator<E> outEdges = frames.peek().getValue();
+                if (outEdges.hasNext()) {
+                    E e = outEdges.next();
+                    if (!filter.test(e))
+                        continue;
+                    N w = network.incidentNodes(e).target();
+                    if (!index.containsKey(w)) {
+                        visit(w, index, lowLink, stack, onStack);
+                        frames.push(Map.entry(w, network.outEdges(w).iterator()));
+                    } else if (onStack.contains(w)) {
+                        lowLink.put(v, Math.min(lowLink.get(v), index.get(w)));
+                    }
+                    continue;
+                }
+                frames.pop();
+                if (!frames.isEmpty()) {
+                    N parent = frames.peek().getKey();
+                    lowLink.put(parent, Math.min(lowLink.get(parent), lowLink.get(v)));
+                }
+                if (lowLink.get(v).equals(index.get(v))) {
+                    List<N> component = new ArrayList<>();
+                    N w;
+                    do {
+                        w = stack.pop();
+                        onStack.remove(w);
+                        component.add(w);
+                    } while (w != v);
+                    components.add(component);
+                }
+            }
+        }
+
+        // Tarjan's algorithm completes the components in reverse topological order
+        Collections.reverse(components);
+        for (int c = 0; c < components.size(); c++) {
+            for (N n : components.get(c)) {
+                componentOf.put(n, c);
+            }
+        }
+
+        cyclic = new boolean[components.size()];
+        successors = new int[components.size()][];
+        for (int c = 0; c < components.size(); c++) {
+            cyclic[c] = components.get(c).size() > 1;
+            SortedSet<Integer> next = new TreeSet<>();
+            for (N n : components.get(c)) {
+                for (E e : network.outEdges(n)) {
+                    if (!filter.test(e))
+                        continue;
+                    int target = componentOf.get(network.incidentNodes(e).target());
+                    if (target == c)
+                        cyclic[c] = true;
+                    else
+                        next.add(target);
+                }
+            }
+            successors[c] = next.stream().mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    private static <N> void visit(N n, Map<N, Integer> index, Map<N, Integer> lowLink, Deque<N> stack,
+            Set<N> onStack) {
+        index.put(n, index.size());
+        lowLink.put(n, index.get(n));
+        stack.push(n);
+        onStack.add(n);
+    }
+
+    /**
+     * Compute the strongly connected components of {@code network}.
+     */
+    public static <N, E> StronglyConnectedComponents<N> of(Network<N, E> network) {
+        return new StronglyConnectedComponents<>(network, e -> true);
+    }
+
+    /**
+     * Compute the strongly connected components of the subnetwork of
+     * {@code network} made of all its nodes and of the transitions accepted by
+     * {@code filter}.
+     */
+    public static <N, E> StronglyConnectedComponents<N> of(Network<N, E> network, Predicate<? super E> filter) {
+        return new StronglyConnectedComponents<>(network, filter);
+    }
+
+    /**
+     * @return the number of components
+     */
+    public int getComponentsCount() {
+        return components.size();
+    }
+
+    /**
+     * Return the component to which {@code node} belongs, or -1 if {@code node}
+     * wasn't a node of the network.
+     */
+    public int getComponent(N node) {
+        return componentOf.getOrDefault(node, -1);
+    }
+
+    /**
+     * @return the nodes belonging to {@code component}
+     */
+    public List<N> getNodes(int component) {
+        return Collections.unmodifiableList(components.get(component));
+    }
+
+    /**
+     * @return true if {@code component} contains a cycle, i.e. if it has more than
+     *         one node or its only node has a self-loop
+     */
+    public boolean isCyclic(int component) {
+        return cyclic[component];
+    }
+
+    /**
+     * @return true if no component contains a cycle
+     */
+    public boolean isAcyclic() {
+        for (boolean c : cyclic) {
+            if (c)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Return the components reached by a transition leaving {@code component}, in
+     * increasing order. All of them are greater than {@code component}.
+     */
+    public int[] getSuccessors(int component) {
+        return successors[component].clone();
+    }
+
+    /**
+     * Return the nodes reachable from {@code node} (including {@code node}
+     * itself), visiting the condensation instead of the network.
+     */
+    public Set<N> reachableNodes(N node) {
+        int first = getComponent(node);
+        checkArgument(first >= 0, "Node %s is not an element of this network.", node);
+        Set<N> reachable = new HashSet<>();
+        boolean[] visited = new boolean[components.size()];
+        Deque<Integer> stack = new ArrayDeque<>();
+        visited[first] = true;
+        stack.push(first);
+        while (!stack.isEmpty()) {
+            int c = stack.pop();
+            reachable.addAll(components.get(c));
+            for (int next : successors[c]) {
+                if (!visited[next]) {
+                    visited[next] = true;
+                    stack.push(next);
+                }
+            }
+        }
+        return reachable;
+    }
+}
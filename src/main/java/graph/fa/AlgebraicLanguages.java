@@ -0,0 +1,151 @@
+package graph.fa;
+
+import com.google.common.graph.Network;
+import graph.nodes.State;
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.util.*;
+
+/**
+ * This class computes the languages accepted by the acceptance states of a FA
+ * with Brzozowski's algebraic method. The language X_i of the paths leading from
+ * the initial state to the state i satisfies the equation
+ *
+ * <pre>
+ * X_i = X_j1 c_j1 | ... | X_jm c_jm | b_i
+ * </pre>
+ *
+ * where c_j is the alternative between the symbols of the transitions from j to
+ * i, and b_i is the empty string for the initial state and the empty language
+ * for the others. The system is solved for all states at once by Gaussian
+ * elimination: each variable is isolated with Arden's lemma (X = X a | b has
+ * solution X = b a*) and substituted in the equations not yet eliminated, then
+ * the solutions are computed backwards.
+ *
+ * Unlike {@link StateElimination}, no surrogate state is added to the FA and the
+ * languages of all acceptance states are obtained from a single elimination.
+ * The same method solves the equations of a single strongly connected component,
+ * given the languages entering it from the other components (see
+ * {@link ComponentLanguages}).
+ *
+ * @author Pietro Venturini
+ */
+final class AlgebraicLanguages<S extends State> {
+
+    private final Map<S, Integer> indexes = new HashMap<>();
+    // coefficients.get(i).get(j) is the coefficient of X_j in the equation of X_i
+    private final List<Map<Integer, RegEx>> coefficients;
+    private final RegEx[] constants;
+    // users.get(j) contains the equations in which X_j occurs
+    private final List<Set<Integer>> users;
+
+    private final RegExSimplifier simplifier;
+
+    private <T extends Transition> AlgebraicLanguages(Network<S, T> network, Collection<S> states,
+            Map<S, RegEx> constants, RegExSimplifier simplifier) {
+        this.simplifier = simplifier;
+        coefficients = new ArrayList<>(states.size());
+        users = new ArrayList<>(states.size());
+        for (S s : states) {
+            indexes.put(s, indexes.size());
+            coefficients.add(new LinkedHashMap<>());
+            users.add(new LinkedHashSet<>());
+        }
+        this.constants = new RegEx[indexes.size()];
+        for (S s : states) {
+            this.constants[indexes.get(s)] = constants.getOrDefault(s, RegExes.empty());
+        }
+
+        for (S s : states) {
+            int i = indexes.get(s);
+            for (T t : network.inEdges(s)) {
+                Integer j = indexes.get(network.incidentNodes(t).source());
+                if (j == null)
+                    continue;
+                coefficients.get(i).merge(j, RegExes.parse(t.getSymbol()), RegExes::union);
+                users.get(j).add(i);
+            }
+        }
+    }
+
+    /**
+     * Compute the language accepted by each acceptance state of {@code fa}.
+     * Acceptance states that cannot be reached are not included in the returned
+     * map.
+     */
+    static <S extends State, T extends Transition> Map<S, RegEx> acceptedLanguages(FA<S, T> fa) {
+        Map<S, RegEx> solutions = languages(fa.getNetwork(), fa.getNetwork().nodes(),
+                Map.of(fa.getInitialState(), RegExes.epsilon()), new RegExSimplifier());
+        Map<S, RegEx> languages = new HashMap<>();
+        for (S s : fa.getAcceptanceStates()) {
+            RegEx language = solutions.get(s);
+            if (language.getKind() != RegEx.Kind.EMPTY)
+                languages.put(s, language);
+        }
+        return languages;
+    }
+
+    /**
+     * Solve the system of equations of the subnetwork of {@code network} made of
+     * {@code states} and of the transitions between them, where the constant term
+     * b_i of each state is given by {@code constants} (the empty language if
+     * missing). The solution of a state is the language of the words w such that
+     * a path labelled w leads to it from some state j, within the subnetwork,
+     * preceded by a word of b_j.
+     *
+     * @return the solution of each state of {@code states}
+     */
+    static <S extends State, T extends Transition> Map<S, RegEx> languages(Network<S, T> network,
+            Collection<S> states, Map<S, RegEx> constants, RegExSimplifier simplifier) {
+        AlgebraicLanguages<S> system = new AlgebraicLanguages<>(network, states, constants, simplifier);
+        RegEx[] solutions = system.solve();
+        Map<S, RegEx> languages = new HashMap<>();
+        system.indexes.forEach((s, i) -> languages.put(s, solutions[i]));
+        return languages;
+    }
+
+    private RegEx[] solve() {
+        int n = indexes.size();
+        boolean[] eliminated = new boolean[n];
+        for (int k = 0; k < n; k++) {
+            Map<Integer, RegEx> row = coefficients.get(k);
+            RegEx loop = row.remove(k);
+            users.get(k).remove(k);
+            if (loop != null) {
+                // Arden's lemma
+                RegEx star = RegExes.star(loop);
+                row.replaceAll((j, c) -> simplifier.apply(RegExes.concat(c, star)));
+                constants[k] = simplifier.apply(RegExes.concat(constants[k], star));
+            }
+            eliminated[k] = true;
+
+            // substitute X_k in the equations not yet eliminated
+            for (int i : users.get(k)) {
+                if (eliminated[i])
+                    continue;
+                Map<Integer, RegEx> target = coefficients.get(i);
+                RegEx c = target.remove(k);
+                for (Map.Entry<Integer, RegEx> e : row.entrySet()) {
+                    target.merge(e.getKey(), simplifier.apply(RegExes.concat(e.getValue(), c)),
+                            (c1, c2) -> simplifier.apply(RegExes.union(c1, c2)));
+                    users.get(e.getKey()).add(i);
+                }
+                constants[i] = simplifier.apply(RegExes.union(constants[i], RegExes.concat(constants[k], c)));
+            }
+        }
+
+        // each equation depends only on the variables eliminated after it
+        RegEx[] solutions = new RegEx[n];
+        for (int k = n - 1; k >= 0; k--) {
+            List<RegEx> alternatives = new ArrayList<>();
+            alternatives.add(constants[k]);
+            for (Map.Entry<Integer, RegEx> e : coefficients.get(k).entrySet()) {
+                alternatives.add(RegExes.concat(solutions[e.getKey()], e.getValue()));
+            }
+            solutions[k] = simplifier.apply(RegExes.union(alternatives));
+        }
+        return solutions;
+    }
+}
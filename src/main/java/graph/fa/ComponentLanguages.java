@@ -0,0 +1,92 @@
+package graph.fa;
+
+import com.google.common.graph.Network;
+import graph.StronglyConnectedComponents;
+import graph.nodes.State;
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.util.*;
+
+/**
+ * This class computes the languages accepted by the acceptance states of a FA
+ * in a single pass over its strongly connected components, in topological
+ * order. The language entering a component is the alternative, over the
+ * transitions coming from the preceding components, of the language of the
+ * source followed by the symbol of the transition (plus the empty string for
+ * the initial state). Then:
+ * <ul>
+ * <li>if the component is a single state without self-loops, its language is
+ * the entering one, so acyclic FAs are reduced without eliminating any state
+ * and without copying the FA;</li>
+ * <li>otherwise the equations of the component alone are solved with the
+ * algebraic method ({@link AlgebraicLanguages}), taking the entering languages
+ * as constant terms.</li>
+ * </ul>
+ *
+ * @author Pietro Venturini
+ */
+final class ComponentLanguages {
+
+    private ComponentLanguages() {
+    }
+
+    /**
+     * Compute the language accepted by each acceptance state of {@code fa}.
+     * Acceptance states that cannot be reached are not included in the returned
+     * map.
+     */
+    static <S extends State, T extends Transition> Map<S, RegEx> acceptedLanguages(FA<S, T> fa) {
+        Network<S, T> network = fa.getNetwork();
+        StronglyConnectedComponents<S> components = StronglyConnectedComponents.of(network);
+        RegExSimplifier simplifier = new RegExSimplifier();
+        Map<S, RegEx> languages = new HashMap<>();
+
+        for (int c = 0; c < components.getComponentsCount(); c++) {
+            List<S> states = components.getNodes(c);
+            Map<S, RegEx> entering = enteringLanguages(network, components, c, states, fa.getInitialState(),
+                    languages, simplifier);
+            if (components.isCyclic(c))
+                languages.putAll(AlgebraicLanguages.languages(network, states, entering, simplifier));
+            else
+                languages.putAll(entering);
+        }
+
+        Map<S, RegEx> acceptedLanguages = new HashMap<>();
+        for (S s : fa.getAcceptanceStates()) {
+            if (languages.get(s).getKind() != RegEx.Kind.EMPTY)
+                acceptedLanguages.put(s, languages.get(s));
+        }
+        return acceptedLanguages;
+    }
+
+    /**
+     * Compute the language entering the component {@code component} through each
+     * of its states {@code states}, from the components preceding it: the
+     * alternative, over the transitions of {@code network} coming from another
+     * component, of the language of the source followed by the symbol of the
+     * transition, plus the empty string for {@code initialState}. The languages of
+     * the preceding components must be in {@code languages}.
+     */
+    static <S extends State, T extends Transition> Map<S, RegEx> enteringLanguages(Network<S, T> network,
+            StronglyConnectedComponents<S> components, int component, Collection<S> states, S initialState,
+            Map<S, RegEx> languages, RegExSimplifier simplifier) {
+        Map<S, RegEx> entering = new HashMap<>();
+        for (S s : states) {
+            // parallel transitions are merged first, so that the language of the source isn't repeated
+            Map<S, RegEx> symbols = new LinkedHashMap<>();
+            for (T t : network.inEdges(s)) {
+                S source = network.incidentNodes(t).source();
+                if (components.getComponent(source) != component)
+                    symbols.merge(source, RegExes.parse(t.getSymbol()), RegExes::union);
+            }
+            List<RegEx> alternatives = new ArrayList<>();
+            if (s.equals(initialState))
+                alternatives.add(RegExes.epsilon());
+            symbols.forEach((source, symbol) -> alternatives.add(RegExes.concat(languages.get(source), symbol)));
+            entering.put(s, simplifier.apply(RegExes.union(alternatives)));
+        }
+        return entering;
+    }
+}
@@ -0,0 +1,47 @@
+package graph.fa;
+
+/**
+ * The orders in which the states of a FA can be eliminated when reducing it to
+ * regular expressions. The order doesn't affect the accepted languages, but it
+ * affects the length of the resulting expressions and the time spent to
+ * compute them. States belonging to a sequence and parallel transitions are
+ * always reduced first; the order applies only to the remaining states.
+ *
+ * @author Pietro Venturini
+ */
+public enum EliminationOrder {
+
+    /**
+     * Eliminate states in the order in which they are stored in the FA.
+     */
+    INSERTION,
+
+    /**
+     * Eliminate first the state with the minimum product between the number of
+     * entering and outgoing transitions, i.e. the state whose elimination creates
+     * the fewest transitions.
+     */
+    MIN_DEGREE,
+
+    /**
+     * Eliminate first the state whose elimination adds the least to the total
+     * size of the symbols, estimated from the size of the symbols of its
+     * transitions.
+     */
+    MIN_SYMBOL_LENGTH,
+
+    /**
+     * Eliminate the strongly connected components of the FA in topological order,
+     * and the states of each component by minimum degree, so that the cycles of a
+     * component are reduced before their expressions are propagated to the
+     * following components.
+     */
+    SCC;
+
+    /**
+     * The order used when none is specified: on the silent closures of the
+     * bundled networks it never produces longer expressions than
+     * {@link #INSERTION}, and it is the cheapest to maintain among the others.
+     */
+    public static final EliminationOrder DEFAULT = MIN_DEGREE;
+}
@@ -0,0 +1,86 @@
+package graph.fa;
+
+import graph.nodes.State;
+import graph.regex.RegEx;
+
+import java.util.Map;
+
+/**
+ * An algorithm computing the language accepted by each acceptance state of a
+ * FA, i.e. the language of the paths leading from the initial state to it.
+ * Different algorithms return equivalent languages, but possibly different
+ * expressions.
+ *
+ * @author Pietro Venturini
+ */
+public interface LanguageExtractor {
+
+    /**
+     * The algorithm used when none is specified: acyclic parts of the FA are
+     * reduced in a single topological pass, and only its cycles are solved.
+     */
+    LanguageExtractor DEFAULT = byComponents();
+
+    /**
+     * Compute the language accepted by each acceptance state of {@code fa}.
+     * Acceptance states that cannot be reached are not included in the returned
+     * map.
+     */
+    <S extends State, T extends Transition> Map<S, RegEx> acceptedLanguages(FA<S, T> fa);
+
+    /**
+     * @return the extractor eliminating the states of the FA one at a time in the
+     *         order {@code order} (algorithm EspressioniRegolari, page 17)
+     */
+    static LanguageExtractor stateElimination(EliminationOrder order) {
+        return new LanguageExtractor() {
+            @Override
+            public <S extends State, T extends Transition> Map<S, RegEx> acceptedLanguages(FA<S, T> fa) {
+                return StateElimination.acceptedLanguages(fa, order);
+            }
+
+            @Override
+            public String toString() {
+                return "state elimination (" + order + ")";
+            }
+        };
+    }
+
+    /**
+     * @return the extractor solving the system of language equations of the FA
+     *         with Brzozowski's algebraic method
+     */
+    static LanguageExtractor algebraic() {
+        return new LanguageExtractor() {
+            @Override
+            public <S extends State, T extends Transition> Map<S, RegEx> acceptedLanguages(FA<S, T> fa) {
+                return AlgebraicLanguages.acceptedLanguages(fa);
+            }
+
+            @Override
+            public String toString() {
+                return "algebraic method";
+            }
+        };
+    }
+
+    /**
+     * @return the extractor visiting the strongly connected components of the FA
+     *         in topological order, which reduces acyclic components in a single
+     *         pass and solves the cyclic ones one at a time with the algebraic
+     *         method
+     */
+    static LanguageExtractor byComponents() {
+        return new LanguageExtractor() {
+            @Override
+            public <S extends State, T extends Transition> Map<S, RegEx> acceptedLanguages(FA<S, T> fa) {
+                return ComponentLanguages.acceptedLanguages(fa);
+            }
+
+            @Override
+            public String toString() {
+                return "strongly connected components";
+            }
+        };
+    }
+}
@@ -0,0 +1,334 @@
+package graph.fa;
+
+import com.google.common.graph.EndpointPair;
+import com.google.common.graph.Network;
+import graph.StronglyConnectedComponents;
+import graph.nodes.State;
+import graph.regex.RegEx;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+
+import java.util.*;
+
+/**
+ * This class implements the reduction of a FA to the languages accepted by each
+ * of its acceptance states (algorithm EspressioniRegolari, page 17), on a
+ * private copy of the FA indexed so that every step takes time proportional
+ * only to the transitions it rewrites:
+ * <ul>
+ * <li>the states forming a sequence (one entering and one outgoing transition)
+ * are kept in two worklists, depending on whether the outgoing transition is
+ * marked;</li>
+ * <li>the transitions are grouped into bundles of parallel homogeneous
+ * transitions (same endpoints, same mark), and the bundles with more than one
+ * transition are kept in a worklist;</li>
+ * <li>the number of transitions marked with each acceptance state is kept up to
+ * date, so checking whether there are multiple transitions with the same mark
+ * takes constant time.</li>
+ * </ul>
+ * All these indexes are updated incrementally whenever a transition is added or
+ * removed. Symbols are kept as regular expressions and simplified as soon as
+ * they are built.
+ *
+ * @author Pietro Venturini
+ */
+final class StateElimination<S extends State> {
+
+    private static final int UNMARKED = -1;
+
+    /**
+     * A state of the FA under reduction.
+     */
+    private final class Node {
+        private final int id;
+        private final S state; // null for the surrogate initial and acceptance states
+        private final int acceptanceIndex; // position in acceptanceStates, UNMARKED if not an acceptance state
+        private final Set<Edge> in = new LinkedHashSet<>();
+        private final Set<Edge> out = new LinkedHashSet<>();
+        private final Map<Node, Map<Integer, Bundle>> bundles = new HashMap<>(); // by target and mark
+        private long priority; // states with lower priority are eliminated first
+        private int component; // topological rank of the strongly connected component
+
+        Node(S state, int acceptanceIndex) {
+            this.id = nodesCount++;
+            this.state = state;
+            this.acceptanceIndex = acceptanceIndex;
+        }
+    }
+
+    /**
+     * A transition of the FA under reduction, possibly marked with an acceptance
+     * state (the mark is the "pedix" of page 17).
+     */
+    private final class Edge {
+        private final Node from;
+        private final Node to;
+        private final RegEx symbol;
+        private final int size; // size of the symbol, computed only if needed by the elimination order
+        private final int mark;
+        private Bundle bundle;
+
+        Edge(Node from, Node to, RegEx symbol, int mark) {
+            this.from = from;
+            this.to = to;
+            this.symbol = symbol;
+            this.size = order == EliminationOrder.MIN_SYMBOL_LENGTH ? RegExes.size(symbol) : 0;
+            this.mark = mark;
+        }
+    }
+
+    /**
+     * The parallel transitions having the same endpoints and the same mark.
+     */
+    private final class Bundle {
+        private final List<Edge> edges = new ArrayList<>(2);
+    }
+
+    private final List<S> acceptanceStates;
+    private final int[] markCount; // number of transitions marked with each acceptance state
+    private int duplicatedMarks; // number of acceptance states marking more than one transition
+    private final Node n0;
+    private final Node nq;
+    private int nodesCount;
+
+    private final Set<Node> sequencesWithUnmarkedExit = new LinkedHashSet<>();
+    private final Set<Node> sequencesWithMarkedExit = new LinkedHashSet<>();
+    private final Set<Bundle> parallelBundles = new LinkedHashSet<>();
+    private final EliminationOrder order;
+    private final TreeSet<Node> eliminable = new TreeSet<>(
+            Comparator.<Node>comparingLong(n -> n.priority).thenComparingInt(n -> n.id));
+
+    private final RegExSimplifier simplifier = new RegExSimplifier();
+
+    /**
+     * Copy {@code fa}, adding a surrogate initial state n0 (if the initial state
+     * has entering transitions) and a surrogate acceptance state nq reached from
+     * each acceptance state through an epsilon-transition.
+     */
+    private <T extends Transition> StateElimination(FA<S, T> fa, EliminationOrder order) {
+        this.order = order;
+        Network<S, T> network = fa.getNetwork();
+        acceptanceStates = new ArrayList<>(fa.getAcceptanceStates());
+        markCount = new int[acceptanceStates.size()];
+        Map<S, Integer> acceptanceIndexes = new HashMap<>();
+        for (S s : acceptanceStates) {
+            acceptanceIndexes.put(s, acceptanceIndexes.size());
+        }
+
+        Map<S, Node> nodes = new HashMap<>();
+        for (S s : network.nodes()) {
+            nodes.put(s, new Node(s, acceptanceIndexes.getOrDefault(s, UNMARKED)));
+        }
+        Node initial = nodes.get(fa.getInitialState());
+        n0 = network.inDegree(fa.getInitialState()) > 0 ? new Node(null, UNMARKED) : initial;
+        nq = new Node(null, UNMARKED);
+
+        for (T t : network.edges()) {
+            EndpointPair<S> endpoints = network.incidentNodes(t);
+            addEdge(nodes.get(endpoints.source()), nodes.get(endpoints.target()), RegExes.parse(t.getSymbol()),
+                    UNMARKED);
+        }
+        if (n0 != initial)
+            addEdge(n0, initial, RegExes.epsilon(), UNMARKED);
+        for (S s : acceptanceStates) {
+            addEdge(nodes.get(s), nq, RegExes.epsilon(), UNMARKED);
+        }
+
+        if (order == EliminationOrder.SCC) {
+            // n0 has no entering transitions and nq no outgoing ones, so the
+            // components of the FA are also those of the copy
+            StronglyConnectedComponents<S> components = StronglyConnectedComponents.of(network);
+            nodes.forEach((s, n) -> n.component = components.getComponent(s));
+        }
+        for (S s : network.nodes()) {
+            Node n = nodes.get(s);
+            if (n != n0) {
+                n.priority = priority(n);
+                eliminable.add(n);
+            }
+        }
+    }
+
+    /**
+     * Compute the language accepted by each acceptance state of {@code fa}, i.e.
+     * the language of the paths leading from the initial state to it. Acceptance
+     * states that cannot be reached are not included in the returned map.
+     */
+    static <S extends State, T extends Transition> Map<S, RegEx> acceptedLanguages(FA<S, T> fa,
+            EliminationOrder order) {
+        return new StateElimination<S>(fa, order).reduce();
+    }
+
+    private Map<S, RegEx> reduce() {
+        while (nodesCount > 2 || duplicatedMarks > 0) {
+            if (!sequencesWithUnmarkedExit.isEmpty()) {
+                eliminate(sequencesWithUnmarkedExit.iterator().next());
+            } else if (!sequencesWithMarkedExit.isEmpty()) {
+                eliminate(sequencesWithMarkedExit.iterator().next());
+            } else if (!parallelBundles.isEmpty()) {
+                merge(parallelBundles.iterator().next());
+            } else {
+                eliminate(eliminable.first());
+            }
+        }
+
+        Map<S, RegEx> languages = new HashMap<>();
+        for (Edge e : n0.out) {
+            if (e.mark != UNMARKED)
+                languages.put(acceptanceStates.get(e.mark), e.symbol);
+            else if (n0.acceptanceIndex != UNMARKED)
+                // the initial state is an acceptance state without entering transitions
+                languages.put(n0.state, RegExes.epsilon());
+        }
+        return languages;
+    }
+
+    /**
+     * Remove {@code n}, connecting each of its predecessors to each of its
+     * successors by a transition whose symbol is the concatenation of the
+     * entering symbol, the Kleene star of the self-loops of {@code n} and the
+     * outgoing symbol. The transition is marked with the mark of the outgoing
+     * one; if that is the unmarked transition towards nq, {@code n} is an
+     * acceptance state, so the new transition is marked with {@code n} and its
+     * symbol is the language of the paths reaching {@code n}.
+     */
+    private void eliminate(Node n) {
+        RegEx loop = RegExes.empty();
+        List<Edge> ins = new ArrayList<>();
+        List<Edge> outs = new ArrayList<>();
+        for (Edge e : n.in) {
+            if (e.from == n)
+                loop = RegExes.union(loop, e.symbol);
+            else
+                ins.add(e);
+        }
+        for (Edge e : n.out) {
+            if (e.to != n)
+                outs.add(e);
+        }
+        RegEx star = RegExes.star(loop);
+
+        for (Edge t1 : ins) {
+            RegEx prefix = RegExes.concat(t1.symbol, star);
+            for (Edge t2 : outs) {
+                if (t2.mark == UNMARKED && t2.to == nq)
+                    addEdge(t1.from, nq, simplifier.apply(prefix), n.acceptanceIndex);
+                else
+                    addEdge(t1.from, t2.to, simplifier.apply(RegExes.concat(prefix, t2.symbol)), t2.mark);
+            }
+        }
+        removeNode(n);
+    }
+
+    /**
+     * Replace the transitions of {@code bundle} by a single transition, whose
+     * symbol is the alternative between their symbols.
+     */
+    private void merge(Bundle bundle) {
+        List<Edge> edges = new ArrayList<>(bundle.edges);
+        List<RegEx> symbols = new ArrayList<>();
+        for (Edge e : edges) {
+            symbols.add(e.symbol);
+            removeEdge(e);
+        }
+        Edge any = edges.get(0);
+        addEdge(any.from, any.to, simplifier.apply(RegExes.union(symbols)), any.mark);
+    }
+
+    private void addEdge(Node from, Node to, RegEx symbol, int mark) {
+        Edge e = new Edge(from, to, symbol, mark);
+        from.out.add(e);
+        to.in.add(e);
+        e.bundle = from.bundles.computeIfAbsent(to, x -> new HashMap<>()).computeIfAbsent(mark, x -> new Bundle());
+        e.bundle.edges.add(e);
+        if (e.bundle.edges.size() == 2)
+            parallelBundles.add(e.bundle);
+        if (mark != UNMARKED && ++markCount[mark] == 2)
+            duplicatedMarks++;
+        updateIndexes(from);
+        updateIndexes(to);
+    }
+
+    private void removeEdge(Edge e) {
+        e.from.out.remove(e);
+        e.to.in.remove(e);
+        e.bundle.edges.remove(e);
+        if (e.bundle.edges.size() == 1)
+            parallelBundles.remove(e.bundle);
+        if (e.bundle.edges.isEmpty())
+            e.from.bundles.get(e.to).remove(e.mark);
+        if (e.mark != UNMARKED && markCount[e.mark]-- == 2)
+            duplicatedMarks--;
+        updateIndexes(e.from);
+        updateIndexes(e.to);
+    }
+
+    private void removeNode(Node n) {
+        for (Edge e : new ArrayList<>(n.in)) {
+            removeEdge(e);
+        }
+        for (Edge e : new ArrayList<>(n.out)) {
+            removeEdge(e);
+        }
+        sequencesWithUnmarkedExit.remove(n);
+        sequencesWithMarkedExit.remove(n);
+        eliminable.remove(n);
+        nodesCount--;
+    }
+
+    /**
+     * Update the priority of {@code n} and its membership to the worklists of
+     * sequences: a state is part of a sequence if it has a single entering
+     * transition, which is not marked nor a self-loop, and a single outgoing
+     * transition.
+     */
+    private void updateIndexes(Node n) {
+        if (order != EliminationOrder.INSERTION && eliminable.remove(n)) {
+            n.priority = priority(n);
+            eliminable.add(n);
+        }
+        sequencesWithUnmarkedExit.remove(n);
+        sequencesWithMarkedExit.remove(n);
+        if (n == n0 || n == nq || n.in.size() != 1 || n.out.size() != 1)
+            return;
+        Edge in = n.in.iterator().next();
+        if (in.mark != UNMARKED || in.from == n)
+            return;
+        if (n.out.iterator().next().mark == UNMARKED)
+            sequencesWithUnmarkedExit.add(n);
+        else
+            sequencesWithMarkedExit.add(n);
+    }
+
+    /**
+     * Compute the priority of {@code n} according to the elimination order.
+     */
+    private long priority(Node n) {
+        if (order == EliminationOrder.INSERTION)
+            return 0;
+        long ins = 0, outs = 0, inSize = 0, outSize = 0, loopSize = 0;
+        for (Edge e : n.in) {
+            if (e.from == n) {
+                loopSize += e.size;
+            } else {
+                ins++;
+                inSize += e.size;
+            }
+        }
+        for (Edge e : n.out) {
+            if (e.to != n) {
+                outs++;
+                outSize += e.size;
+            }
+        }
+        switch (order) {
+            case MIN_SYMBOL_LENGTH:
+                // each entering symbol is copied once for each outgoing one, and vice versa
+                return outs * inSize + ins * outSize + ins * outs * loopSize - inSize - outSize - loopSize;
+            case SCC:
+                return ((long) n.component << 32) + ins * outs;
+            default:
+                return ins * outs;
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package graph.regex;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Objects;
+
+import static graph.fa.Constants.EPS;
+
+/**
+ * This class represents a node of a regular expression. Regular expressions are
+ * immutable and hash-consed: they can only be obtained through the factory
+ * methods of {@link RegExes}, which return the same instance for equal
+ * expressions. Therefore equal sub-expressions are shared (a regular expression
+ * is actually a DAG) and two expressions can be compared by reference.
+ *
+ * The string representation of a regular expression is computed only when
+ * {@link #toString()} is invoked, and it is not cached.
+ *
+ * @author Pietro Venturini
+ */
+public final class RegEx {
+
+    /**
+     * The kinds of node of a regular expression.
+     */
+    public enum Kind {
+        EMPTY, // the empty language
+        EPSILON, // the language containing only the empty string
+        SYMBOL, // a symbol (or a word) of the alphabet
+        CONCAT, // the concatenation of two expressions
+        UNION, // the alternative between two or more expressions
+        STAR // the Kleene star of an expression
+    }
+
+    private static final RegEx[] NO_OPERANDS = new RegEx[0];
+
+    private final Kind kind;
+    private final String symbol;
+    private final RegEx[] operands;
+    private final int hash;
+    private final boolean nullable;
+
+    RegEx(Kind kind, String symbol, RegEx... operands) {
+        this.kind = kind;
+        this.symbol = symbol;
+        this.operands = operands.length == 0 ? NO_OPERANDS : operands;
+        int h = kind.ordinal() * 31 + Objects.hashCode(symbol);
+        for (RegEx operand : operands) {
+            h = h * 31 + operand.hash;
+        }
+        this.hash = h;
+        this.nullable = computeNullable(kind, this.operands);
+    }
+
+    private static boolean computeNullable(Kind kind, RegEx[] operands) {
+        switch (kind) {
+            case EPSILON:
+            case STAR:
+                return true;
+            case CONCAT:
+                return Arrays.stream(operands).allMatch(r -> r.nullable);
+            case UNION:
+                return Arrays.stream(operands).anyMatch(r -> r.nullable);
+            default:
+                return false;
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return the symbol of a node of kind SYMBOL, null otherwise
+     */
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * @return the operands of a CONCAT, UNION or STAR node
+     */
+    public List<RegEx> getOperands() {
+        return Arrays.asList(operands.clone());
+    }
+
+    public int getOperandsCount() {
+        return operands.length;
+    }
+
+    public RegEx getOperand(int i) {
+        return operands[i];
+    }
+
+    public boolean isEmpty() {
+        return kind == Kind.EMPTY;
+    }
+
+    public boolean isEpsilon() {
+        return kind == Kind.EPSILON;
+    }
+
+    /**
+     * @return true if the language denoted by this expression contains the empty
+     *         string
+     */
+    public boolean isNullable() {
+        return nullable;
+    }
+
+    /**
+     * Two nodes are equal if they have the same kind, the same symbol and the
+     * very same operands. Since operands are hash-consed, this corresponds to the
+     * structural equality.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (o == this)
+            return true;
+        if (!(o instanceof RegEx))
+            return false;
+        RegEx other = (RegEx) o;
+        if (kind != other.kind || hash != other.hash || !Objects.equals(symbol, other.symbol)
+                || operands.length != other.operands.length)
+            return false;
+        for (int i = 0; i < operands.length; i++) {
+            if (operands[i] != other.operands[i])
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    /**
+     * Render the regular expression with the same syntax used by the rest of the
+     * project: alternatives are separated by '|', concatenation is juxtaposition,
+     * the Kleene star is a postfix '*' and the empty string is rendered as an
+     * empty alternative. Brackets are added only where needed. Since a diagnosis
+     * can be as deep as the observation it relates to, nodes are visited with an
+     * explicit stack instead of recursion.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        Deque<Object> stack = new ArrayDeque<>();
+        stack.push(this);
+        while (!stack.isEmpty()) {
+            Object top = stack.pop();
+            if (top instanceof String) {
+                sb.append((String) top);
+                continue;
+            }
+            RegEx r = (RegEx) top;
+            switch (r.kind) {
+                case EMPTY:
+                    sb.append(RegExes.EMPTY_SET);
+                    break;
+                case EPSILON:
+                    sb.append(EPS);
+                    break;
+                case SYMBOL:
+                    sb.append(r.symbol);
+                    break;
+                case CONCAT:
+                    // push in reverse order
+                    for (int i = r.operands.length - 1; i >= 0; i--) {
+                        pushBracketed(stack, r.operands[i], r.operands[i].kind == Kind.UNION);
+                    }
+                    break;
+                case UNION:
+                    for (int i = r.operands.length - 1; i >= 0; i--) {
+                        stack.push(r.operands[i]);
+                        if (i > 0)
+                            stack.push("|");
+                    }
+                    break;
+                case STAR:
+                    RegEx operand = r.operands[0];
+                    stack.push("*");
+                    pushBracketed(stack, operand, operand.kind != Kind.SYMBOL || operand.symbol.length() > 1);
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void pushBracketed(Deque<Object> stack, RegEx r, boolean brackets) {
+        if (brackets)
+            stack.push(")");
+        stack.push(r);
+        if (brackets)
+            stack.push("(");
+    }
+}
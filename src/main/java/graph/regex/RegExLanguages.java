@@ -0,0 +1,104 @@
+package graph.regex;
+
+import java.util.*;
+
+/**
+ * This class compares the languages denoted by regular expressions by means of
+ * Brzozowski derivatives. Since {@link RegExes} keeps alternatives flattened,
+ * deduplicated and sorted, the derivatives of an expression are finitely many,
+ * hence the comparison always terminates.
+ *
+ * @author Pietro Venturini
+ */
+public final class RegExLanguages {
+
+    private RegExLanguages() {
+    }
+
+    /**
+     * Return the derivative of {@code r} with respect to {@code symbol}, i.e. an
+     * expression denoting the words w such that {@code symbol}w belongs to the
+     * language of {@code r}.
+     */
+    public static RegEx derivative(RegEx r, RegEx symbol) {
+        switch (r.getKind()) {
+            case SYMBOL:
+                return r == symbol ? RegExes.epsilon() : RegExes.empty();
+            case CONCAT:
+                RegEx left = r.getOperand(0);
+                RegEx right = r.getOperand(1);
+                RegEx d = RegExes.concat(derivative(left, symbol), right);
+                return left.isNullable() ? RegExes.union(d, derivative(right, symbol)) : d;
+            case UNION:
+                List<RegEx> alternatives = new ArrayList<>();
+                for (int i = 0; i < r.getOperandsCount(); i++) {
+                    alternatives.add(derivative(r.getOperand(i), symbol));
+                }
+                return RegExes.union(alternatives);
+            case STAR:
+                return RegExes.concat(derivative(r.getOperand(0), symbol), r);
+            default:
+                return RegExes.empty();
+        }
+    }
+
+    /**
+     * @return the symbols occurring in {@code r}
+     */
+    public static Set<RegEx> symbolsOf(RegEx r) {
+        Set<RegEx> symbols = new HashSet<>();
+        Set<RegEx> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<RegEx> stack = new ArrayDeque<>();
+        stack.push(r);
+        while (!stack.isEmpty()) {
+            RegEx node = stack.pop();
+            if (!visited.add(node))
+                continue;
+            if (node.getKind() == RegEx.Kind.SYMBOL)
+                symbols.add(node);
+            for (int i = 0; i < node.getOperandsCount(); i++) {
+                stack.push(node.getOperand(i));
+            }
+        }
+        return symbols;
+    }
+
+    /**
+     * Check whether {@code r1} and {@code r2} denote the same language, by
+     * exploring the pairs of their derivatives with respect to the same words:
+     * the languages differ if and only if a pair is reached where only one of the
+     * two derivatives contains the empty string.
+     */
+    public static boolean areEquivalent(RegEx r1, RegEx r2) {
+        Set<RegEx> alphabet = symbolsOf(r1);
+        alphabet.addAll(symbolsOf(r2));
+
+        Set<List<RegEx>> visited = new HashSet<>();
+        Deque<RegEx[]> worklist = new ArrayDeque<>();
+        worklist.push(new RegEx[] { r1, r2 });
+        visited.add(List.of(r1, r2));
+        while (!worklist.isEmpty()) {
+            RegEx[] pair = worklist.pop();
+            if (pair[0] == pair[1])
+                continue;
+            if (pair[0].isNullable() != pair[1].isNullable())
+                return false;
+            for (RegEx symbol : alphabet) {
+                RegEx d1 = derivative(pair[0], symbol);
+                RegEx d2 = derivative(pair[1], symbol);
+                if (visited.add(List.of(d1, d2)))
+                    worklist.push(new RegEx[] { d1, d2 });
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Check whether the regular expressions {@code regex1} and {@code regex2},
+     * written with the syntax accepted by {@link RegExes#parse(String)}, denote the
+     * same language.
+     */
+    public static boolean areEquivalent(String regex1, String regex2) {
+        return areEquivalent(RegExes.parse(regex1), RegExes.parse(regex2));
+    }
+}
@@ -0,0 +1,99 @@
+package graph.regex;
+
+import java.util.*;
+
+/**
+ * This class computes the reversal of regular expressions, i.e. the expressions
+ * denoting the words of the original ones read backwards. A chain of
+ * concatenations is reversed as a whole, appending its reversed factors one at
+ * a time, so that reversing an expression takes time proportional to its size
+ * even though concatenations are kept nested to the left.
+ *
+ * A reverser remembers the expressions it has already reversed, so reusing the
+ * same instance for related expressions avoids reversing their shared
+ * sub-expressions twice.
+ *
+ * @author Pietro Venturini
+ */
+public final class RegExReverser {
+
+    private final Map<RegEx, RegEx> reversed = new IdentityHashMap<>();
+
+    /**
+     * Reverse {@code r} with a new reverser.
+     */
+    public static RegEx reverse(RegEx r) {
+        return new RegExReverser().apply(r);
+    }
+
+    /**
+     * Reverse {@code r}. Nodes are visited in post-order with an explicit stack,
+     * so that arbitrarily deep expressions can be reversed.
+     */
+    public RegEx apply(RegEx r) {
+        Deque<RegEx> stack = new ArrayDeque<>();
+        stack.push(r);
+        while (!stack.isEmpty()) {
+            RegEx node = stack.peek();
+            if (reversed.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            List<RegEx> operands = operands(node);
+            boolean ready = true;
+            for (RegEx operand : operands) {
+                if (!reversed.containsKey(operand)) {
+                    stack.push(operand);
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.pop();
+                reversed.put(node, reverseNode(node, operands));
+            }
+        }
+        return reversed.get(r);
+    }
+
+    /**
+     * Return the operands of {@code node}, where the operands of a chain of
+     * concatenations are its factors, in order.
+     */
+    private static List<RegEx> operands(RegEx node) {
+        if (node.getKind() != RegEx.Kind.CONCAT)
+            return node.getOperands();
+        List<RegEx> factors = new ArrayList<>();
+        RegEx r = node;
+        while (r.getKind() == RegEx.Kind.CONCAT) {
+            factors.add(r.getOperand(1));
+            r = r.getOperand(0);
+        }
+        factors.add(r);
+        Collections.reverse(factors);
+        return factors;
+    }
+
+    /**
+     * Reverse a node whose operands have already been reversed.
+     */
+    private RegEx reverseNode(RegEx node, List<RegEx> operands) {
+        switch (node.getKind()) {
+            case CONCAT:
+                RegEx result = RegExes.epsilon();
+                for (int i = operands.size() - 1; i >= 0; i--) {
+                    result = RegExes.concat(result, reversed.get(operands.get(i)));
+                }
+                return result;
+            case UNION:
+                List<RegEx> alternatives = new ArrayList<>(operands.size());
+                for (RegEx operand : operands) {
+                    alternatives.add(reversed.get(operand));
+                }
+                return RegExes.union(alternatives);
+            case STAR:
+                return RegExes.star(reversed.get(operands.get(0)));
+            default:
+                return node;
+        }
+    }
+}
@@ -0,0 +1,347 @@
+package graph.regex;
+
+import java.util.*;
+
+/**
+ * This class rewrites regular expressions into smaller equivalent ones, by
+ * applying the following algebraic rules bottom-up:
+ * <ul>
+ * <li>idempotence of alternatives and identities of the empty string and of the
+ * empty language (already applied by {@link RegExes});</li>
+ * <li>absorption of the empty string: (|x*) = x*, (|xx*) = x*;</li>
+ * <li>subsumption: an alternative whose language is contained in the language
+ * of another alternative is removed, e.g. (x|x*) = x*;</li>
+ * <li>factoring of common prefixes and suffixes: (xy|xz) = x(y|z) and (yx|zx) =
+ * (y|z)x;</li>
+ * <li>star rules: (x*)* = x*, (|x)* = x*, (x*|y)* = (x|y)*, (x*y*)* = (x|y)*
+ * and x*x* = x*.</li>
+ * </ul>
+ * Containment between languages is checked syntactically with a bounded effort,
+ * so an expression is not guaranteed to be minimal, but it is guaranteed to be
+ * equivalent to the original one.
+ *
+ * A simplifier remembers the expressions it has already simplified, so reusing
+ * the same instance for related expressions avoids simplifying their shared
+ * sub-expressions twice.
+ *
+ * @author Pietro Venturini
+ */
+public final class RegExSimplifier {
+
+    // maximum number of nested factorings of the alternatives of a union
+    private static final int MAX_FACTORING_DEPTH = 16;
+    // maximum number of factors of the alternatives whose prefixes are factored
+    private static final int MAX_PREFIX_FACTORS = 32;
+    // maximum number of steps spent checking a single containment
+    private static final int MAX_SUBSUMPTION_STEPS = 64;
+
+    private final Map<RegEx, RegEx> simplified = new IdentityHashMap<>();
+    private int subsumptionSteps;
+
+    /**
+     * Simplify {@code r} with a new simplifier.
+     */
+    public static RegEx simplify(RegEx r) {
+        return new RegExSimplifier().apply(r);
+    }
+
+    /**
+     * Simplify {@code r}. Nodes are visited in post-order with an explicit stack,
+     * so that arbitrarily deep expressions can be simplified.
+     */
+    public RegEx apply(RegEx r) {
+        Deque<RegEx> stack = new ArrayDeque<>();
+        stack.push(r);
+        while (!stack.isEmpty()) {
+            RegEx node = stack.peek();
+            if (simplified.containsKey(node)) {
+                stack.pop();
+                continue;
+            }
+            boolean ready = true;
+            for (int i = node.getOperandsCount() - 1; i >= 0; i--) {
+                if (!simplified.containsKey(node.getOperand(i))) {
+                    stack.push(node.getOperand(i));
+                    ready = false;
+                }
+            }
+            if (ready) {
+                stack.pop();
+                RegEx result = simplifyNode(node);
+                simplified.put(node, result);
+                simplified.putIfAbsent(result, result);
+            }
+        }
+        return simplified.get(r);
+    }
+
+    /**
+     * Simplify a node whose operands have already been simplified.
+     */
+    private RegEx simplifyNode(RegEx node) {
+        switch (node.getKind()) {
+            case CONCAT:
+                return concat(simplified.get(node.getOperand(0)), simplified.get(node.getOperand(1)));
+            case UNION:
+                List<RegEx> alternatives = new ArrayList<>();
+                for (int i = 0; i < node.getOperandsCount(); i++) {
+                    alternatives.add(simplified.get(node.getOperand(i)));
+                }
+                return union(alternatives, 0);
+            case STAR:
+                return star(simplified.get(node.getOperand(0)));
+            default:
+                return node;
+        }
+    }
+
+    /**
+     * Concatenate two simplified expressions, merging the stars at the junction:
+     * x*y = x* if y is nullable and contained in x*, and symmetrically.
+     */
+    private RegEx concat(RegEx r1, RegEx r2) {
+        RegEx last = last(r1);
+        if (r2.getKind() != RegEx.Kind.CONCAT) {
+            if (last.getKind() == RegEx.Kind.STAR && r2.isNullable() && subsumes(last, r2))
+                return r1;
+            if (r2.getKind() == RegEx.Kind.STAR && last.isNullable() && subsumes(r2, last))
+                return RegExes.concat(allButLast(r1), r2);
+        }
+        return RegExes.concat(r1, r2);
+    }
+
+    /**
+     * Compute the alternative between simplified expressions.
+     */
+    private RegEx union(Collection<RegEx> regexes, int depth) {
+        RegEx union = RegExes.union(regexes);
+        if (union.getKind() != RegEx.Kind.UNION)
+            return union;
+        List<RegEx> alternatives = removeSubsumed(union.getOperands());
+        if (depth < MAX_FACTORING_DEPTH) {
+            alternatives = factorPrefixes(alternatives, depth);
+            alternatives = factorSuffixes(alternatives, depth);
+        }
+        RegEx result = RegExes.union(alternatives);
+        // factoring may have produced new containments
+        if (result != union && result.getKind() == RegEx.Kind.UNION)
+            result = RegExes.union(removeSubsumed(result.getOperands()));
+        return result;
+    }
+
+    /**
+     * Compute the Kleene star of a simplified expression. Since the star of a set
+     * of words does not change by adding the empty string or by closing the set
+     * under concatenation, nested stars, empty alternatives and concatenations of
+     * nullable factors are flattened into a single alternative.
+     */
+    private RegEx star(RegEx r) {
+        if (r.getKind() == RegEx.Kind.STAR)
+            return r;
+        List<RegEx> alternatives = new ArrayList<>();
+        Deque<RegEx> stack = new ArrayDeque<>();
+        stack.push(r);
+        while (!stack.isEmpty()) {
+            RegEx node = stack.pop();
+            if (node.getKind() == RegEx.Kind.UNION
+                    || (node.getKind() == RegEx.Kind.CONCAT && node.isNullable())) {
+                for (int i = 0; i < node.getOperandsCount(); i++) {
+                    stack.push(node.getOperand(i));
+                }
+            } else if (node.getKind() == RegEx.Kind.STAR) {
+                stack.push(node.getOperand(0));
+            } else if (!node.isEpsilon()) {
+                alternatives.add(node);
+            }
+        }
+        return RegExes.star(union(alternatives, 0));
+    }
+
+    /**
+     * Remove the alternatives whose language is contained in the language of
+     * another alternative. The empty string is also absorbed by xx* and x*x.
+     */
+    private List<RegEx> removeSubsumed(List<RegEx> alternatives) {
+        List<RegEx> candidates = new ArrayList<>(alternatives.size());
+        boolean hasEpsilon = alternatives.contains(RegExes.epsilon());
+        for (RegEx r : alternatives) {
+            candidates.add(hasEpsilon ? absorbEpsilon(r) : r);
+        }
+
+        List<RegEx> result = new ArrayList<>(candidates.size());
+        for (int i = 0; i < candidates.size(); i++) {
+            RegEx r = candidates.get(i);
+            boolean subsumed = false;
+            for (int j = 0; j < candidates.size() && !subsumed; j++) {
+                RegEx other = candidates.get(j);
+                if (i == j || other == r)
+                    continue;
+                // among alternatives with the same language keep the first one
+                subsumed = subsumes(other, r) && (j < i || !subsumes(r, other));
+            }
+            if (!subsumed && !result.contains(r))
+                result.add(r);
+        }
+        return result;
+    }
+
+    /**
+     * Return x* if {@code r} is xx* or x*x, {@code r} otherwise.
+     */
+    private static RegEx absorbEpsilon(RegEx r) {
+        if (r.getKind() != RegEx.Kind.CONCAT)
+            return r;
+        RegEx left = r.getOperand(0);
+        RegEx right = r.getOperand(1);
+        if (right.getKind() == RegEx.Kind.STAR && right.getOperand(0) == left)
+            return right;
+        if (left.getKind() == RegEx.Kind.STAR && left.getOperand(0) == right)
+            return left;
+        return r;
+    }
+
+    /**
+     * Check, with a bounded effort, whether the language of {@code sub} is
+     * contained in the language of {@code sup}. A negative answer means only that
+     * the containment could not be proved.
+     */
+    private boolean subsumes(RegEx sup, RegEx sub) {
+        subsumptionSteps = MAX_SUBSUMPTION_STEPS;
+        return contains(sup, sub);
+    }
+
+    private boolean contains(RegEx sup, RegEx sub) {
+        if (sup == sub || sub.isEmpty())
+            return true;
+        if (sub.isEpsilon())
+            return sup.isNullable();
+        if (--subsumptionSteps < 0)
+            return false;
+        if (sub.getKind() == RegEx.Kind.UNION) {
+            for (int i = 0; i < sub.getOperandsCount(); i++) {
+                if (!contains(sup, sub.getOperand(i)))
+                    return false;
+            }
+            return true;
+        }
+        switch (sup.getKind()) {
+            case UNION:
+                for (int i = 0; i < sup.getOperandsCount(); i++) {
+                    if (contains(sup.getOperand(i), sub))
+                        return true;
+                }
+                return false;
+            case STAR:
+                // x* contains x, and it is closed under star and concatenation
+                if (contains(sup.getOperand(0), sub))
+                    return true;
+                if (sub.getKind() == RegEx.Kind.STAR)
+                    return contains(sup, sub.getOperand(0));
+                if (sub.getKind() == RegEx.Kind.CONCAT)
+                    return contains(sup, sub.getOperand(0)) && contains(sup, sub.getOperand(1));
+                return false;
+            case CONCAT:
+                return sub.getKind() == RegEx.Kind.CONCAT && contains(sup.getOperand(0), sub.getOperand(0))
+                        && contains(sup.getOperand(1), sub.getOperand(1));
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Factor the alternatives starting with the same expression: (xy|xz) = x(y|z).
+     * Since concatenations are nested to the left, finding the first factor of an
+     * alternative takes time proportional to its length, so the alternatives made
+     * of too many factors (like the diagnosis of a long observation) are left as
+     * they are.
+     */
+    private List<RegEx> factorPrefixes(List<RegEx> alternatives, int depth) {
+        Map<RegEx, List<List<RegEx>>> byHead = new LinkedHashMap<>();
+        for (RegEx r : alternatives) {
+            List<RegEx> factors = factors(r);
+            if (factors == null)
+                byHead.put(r, List.of(List.of(r)));
+            else
+                byHead.computeIfAbsent(factors.get(0), h -> new ArrayList<>()).add(factors);
+        }
+        if (byHead.size() == alternatives.size())
+            return alternatives;
+        List<RegEx> result = new ArrayList<>();
+        byHead.forEach((head, group) -> {
+            if (!worthFactoring(head, group.size(), group.stream().anyMatch(f -> f.size() == 1))) {
+                group.forEach(factors -> result.add(RegExes.concat(factors.toArray(RegEx[]::new))));
+            } else {
+                List<RegEx> groupTails = new ArrayList<>();
+                for (List<RegEx> factors : group) {
+                    groupTails.add(RegExes.concat(factors.subList(1, factors.size()).toArray(RegEx[]::new)));
+                }
+                result.add(concat(head, union(groupTails, depth + 1)));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Factor the alternatives ending with the same expression: (yx|zx) = (y|z)x
+     */
+    private List<RegEx> factorSuffixes(List<RegEx> alternatives, int depth) {
+        Map<RegEx, List<RegEx>> byLast = new LinkedHashMap<>();
+        for (RegEx r : alternatives) {
+            byLast.computeIfAbsent(last(r), l -> new ArrayList<>()).add(r);
+        }
+        if (byLast.size() == alternatives.size())
+            return alternatives;
+        List<RegEx> result = new ArrayList<>();
+        byLast.forEach((last, group) -> {
+            if (!worthFactoring(last, group.size(), group.contains(last))) {
+                result.addAll(group);
+            } else {
+                List<RegEx> groupPrefixes = new ArrayList<>();
+                group.forEach(r -> groupPrefixes.add(allButLast(r)));
+                result.add(concat(union(groupPrefixes, depth + 1), last));
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Factoring {@code common} out of {@code count} alternatives, one of which
+     * may be {@code common} itself, saves count-1 copies of it but adds brackets
+     * and, in the latter case, an empty alternative: this pays off only if
+     * {@code common} is itself a concatenation or an alternative, e.g. (a|ab) is
+     * shorter than a(|b).
+     */
+    private static boolean worthFactoring(RegEx common, int count, boolean containsCommon) {
+        return count > 1 && (!containsCommon || common.getKind() == RegEx.Kind.CONCAT
+                || common.getKind() == RegEx.Kind.UNION);
+    }
+
+    /**
+     * Return the last factor of {@code r}. Since concatenations are nested to the
+     * left, this takes constant time.
+     */
+    private static RegEx last(RegEx r) {
+        return r.getKind() == RegEx.Kind.CONCAT ? r.getOperand(1) : r;
+    }
+
+    private static RegEx allButLast(RegEx r) {
+        return r.getKind() == RegEx.Kind.CONCAT ? r.getOperand(0) : RegExes.epsilon();
+    }
+
+    /**
+     * Return the factors of {@code r}, or null if they are more than
+     * {@link #MAX_PREFIX_FACTORS}.
+     */
+    private static List<RegEx> factors(RegEx r) {
+        LinkedList<RegEx> factors = new LinkedList<>();
+        RegEx node = r;
+        while (node.getKind() == RegEx.Kind.CONCAT) {
+            if (factors.size() == MAX_PREFIX_FACTORS)
+                return null;
+            factors.addFirst(node.getOperand(1));
+            node = node.getOperand(0);
+        }
+        factors.addFirst(node);
+        return factors;
+    }
+}
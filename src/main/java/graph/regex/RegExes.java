@@ -0,0 +1,303 @@
+package graph.regex;
+
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
+
+import java.util.*;
+
+import static graph.fa.Constants.EPS;
+
+/**
+ * This class is the factory of regular expressions. Every node is hash-consed
+ * through a weak interner, so that equal expressions are represented by the
+ * same instance and nodes that are no longer referenced can be garbage
+ * collected. Factory methods apply only the trivial identities (those of the
+ * empty string and of the empty language, and the idempotence of alternatives),
+ * so that creating a node always takes constant time (except for unions, which
+ * take time proportional to the number of alternatives).
+ *
+ * @author Pietro Venturini
+ */
+public final class RegExes {
+
+    /**
+     * The symbol used to render the empty language
+     */
+    public static final String EMPTY_SET = "∅";
+
+    private static final Interner<RegEx> INTERNER = Interners.newWeakInterner();
+
+    private static final RegEx EMPTY = new RegEx(RegEx.Kind.EMPTY, null);
+    private static final RegEx EPSILON = new RegEx(RegEx.Kind.EPSILON, null);
+
+    private static final Comparator<RegEx> BY_STRUCTURE = RegExes::compare;
+
+    private RegExes() {
+    }
+
+    /**
+     * @return the regular expression denoting the empty language
+     */
+    public static RegEx empty() {
+        return EMPTY;
+    }
+
+    /**
+     * @return the regular expression denoting the empty string
+     */
+    public static RegEx epsilon() {
+        return EPSILON;
+    }
+
+    /**
+     * @return the regular expression denoting {@code symbol}, or the empty string
+     *         if {@code symbol} is null or empty
+     */
+    public static RegEx symbol(String symbol) {
+        if (symbol == null || symbol.isEmpty())
+            return EPSILON;
+        return INTERNER.intern(new RegEx(RegEx.Kind.SYMBOL, symbol));
+    }
+
+    /**
+     * Return the concatenation of {@code r1} and {@code r2}. Concatenations are
+     * kept nested to the left (i.e. "abc" is represented as ((ab)c)), so that
+     * appending a small expression to a large one takes time proportional only to
+     * the size of the appended one.
+     */
+    public static RegEx concat(RegEx r1, RegEx r2) {
+        if (r1.isEmpty() || r2.isEmpty())
+            return EMPTY;
+        if (r1.isEpsilon())
+            return r2;
+        if (r2.isEpsilon())
+            return r1;
+        if (r2.getKind() != RegEx.Kind.CONCAT)
+            return INTERNER.intern(new RegEx(RegEx.Kind.CONCAT, null, r1, r2));
+
+        // collect the factors of r2 and append them one at a time
+        Deque<RegEx> factors = new ArrayDeque<>();
+        RegEx r = r2;
+        while (r.getKind() == RegEx.Kind.CONCAT) {
+            factors.push(r.getOperand(1));
+            r = r.getOperand(0);
+        }
+        factors.push(r);
+        RegEx result = r1;
+        for (RegEx factor : factors) {
+            result = INTERNER.intern(new RegEx(RegEx.Kind.CONCAT, null, result, factor));
+        }
+        return result;
+    }
+
+    /**
+     * @return the concatenation of {@code regexes}, in the given order
+     */
+    public static RegEx concat(RegEx... regexes) {
+        RegEx result = EPSILON;
+        for (RegEx r : regexes) {
+            result = concat(result, r);
+        }
+        return result;
+    }
+
+    /**
+     * @return the alternative between {@code r1} and {@code r2}
+     */
+    public static RegEx union(RegEx r1, RegEx r2) {
+        if (r1 == r2 || r2.isEmpty())
+            return r1;
+        if (r1.isEmpty())
+            return r2;
+        return union(List.of(r1, r2));
+    }
+
+    /**
+     * Return the alternative between {@code regexes}. Nested alternatives are
+     * flattened, duplicates and empty languages are removed, and the alternatives
+     * are sorted by {@link #compare(RegEx, RegEx)} so that the result does not
+     * depend on the order of {@code regexes}, nor on the order in which the
+     * alternatives have been created.
+     */
+    public static RegEx union(Collection<RegEx> regexes) {
+        Set<RegEx> alternatives = new HashSet<>();
+        for (RegEx r : regexes) {
+            if (r.getKind() == RegEx.Kind.UNION) {
+                for (int i = 0; i < r.getOperandsCount(); i++) {
+                    alternatives.add(r.getOperand(i));
+                }
+            } else if (!r.isEmpty()) {
+                alternatives.add(r);
+            }
+        }
+        if (alternatives.isEmpty())
+            return EMPTY;
+        if (alternatives.size() == 1)
+            return alternatives.iterator().next();
+        RegEx[] operands = alternatives.toArray(RegEx[]::new);
+        Arrays.sort(operands, BY_STRUCTURE);
+        return INTERNER.intern(new RegEx(RegEx.Kind.UNION, null, operands));
+    }
+
+    /**
+     * Compare two regular expressions by their structure only: by kind, then by
+     * symbol, then by hash code (which is computed from the kind, the symbol and
+     * the hash codes of the operands, so it is the same in every run) and, only
+     * if the hash codes are the same, by number of operands and then by their
+     * operands, in order. Comparing the hash codes first keeps the comparison of
+     * long concatenations, such as the diagnoses of long observations, from
+     * visiting their factors. The nodes whose hash codes collide are visited with
+     * an explicit stack, skipping the shared sub-expressions (which are the same
+     * instance), so that arbitrarily deep expressions can be compared.
+     *
+     * @return a negative number, zero or a positive number if {@code r1} comes
+     *         before, is equal to or comes after {@code r2}
+     */
+    static int compare(RegEx r1, RegEx r2) {
+        Deque<RegEx> stack = new ArrayDeque<>();
+        stack.push(r2);
+        stack.push(r1);
+        while (!stack.isEmpty()) {
+            RegEx a = stack.pop();
+            RegEx b = stack.pop();
+            if (a == b)
+                continue;
+            int c = a.getKind().compareTo(b.getKind());
+            if (c == 0 && a.getKind() == RegEx.Kind.SYMBOL)
+                c = a.getSymbol().compareTo(b.getSymbol());
+            if (c == 0)
+                c = Integer.compare(a.hashCode(), b.hashCode());
+            if (c == 0)
+                c = Integer.compare(a.getOperandsCount(), b.getOperandsCount());
+            if (c != 0)
+                return c;
+            // push in reverse order, so that the first operands are compared first
+            for (int i = a.getOperandsCount() - 1; i >= 0; i--) {
+                stack.push(b.getOperand(i));
+                stack.push(a.getOperand(i));
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * @return the Kleene star of {@code r}
+     */
+    public static RegEx star(RegEx r) {
+        if (r.isEmpty() || r.isEpsilon())
+            return EPSILON;
+        if (r.getKind() == RegEx.Kind.STAR)
+            return r;
+        return INTERNER.intern(new RegEx(RegEx.Kind.STAR, null, r));
+    }
+
+    /**
+     * Parse a regular expression written with the syntax used throughout the
+     * project (for instance "(a(b)*)|c" or "f1(f4f1)*"). Since symbols are
+     * juxtaposed without separators, each character which is not an operator is
+     * read as a symbol of its own. An empty string (or an empty alternative)
+     * denotes the empty string, and {@link #EMPTY_SET} denotes the empty
+     * language.
+     *
+     * @throws IllegalArgumentException if {@code regex} is not well-formed
+     */
+    public static RegEx parse(String regex) {
+        if (regex == null)
+            return EPSILON;
+        return new Parser(regex).parse();
+    }
+
+    /**
+     * A recursive descent parser of regular expressions.
+     */
+    private static final class Parser {
+        private final String input;
+        private int position;
+
+        Parser(String input) {
+            this.input = input;
+        }
+
+        RegEx parse() {
+            RegEx result = parseUnion();
+            if (position < input.length())
+                throw new IllegalArgumentException("Unexpected '" + input.charAt(position) + "' at position "
+                        + position + " of regular expression " + input);
+            return result;
+        }
+
+        // union := concat ('|' concat)*
+        private RegEx parseUnion() {
+            List<RegEx> alternatives = new ArrayList<>();
+            alternatives.add(parseConcat());
+            while (position < input.length() && input.charAt(position) == '|') {
+                position++;
+                alternatives.add(parseConcat());
+            }
+            return alternatives.size() == 1 ? alternatives.get(0) : union(alternatives);
+        }
+
+        // concat := factor*
+        private RegEx parseConcat() {
+            RegEx result = EPSILON;
+            while (position < input.length() && input.charAt(position) != '|' && input.charAt(position) != ')') {
+                result = concat(result, parseFactor());
+            }
+            return result;
+        }
+
+        // factor := ( '(' union ')' | '∅' | character ) '*'*
+        private RegEx parseFactor() {
+            RegEx result;
+            char c = input.charAt(position);
+            if (c == '(') {
+                position++;
+                result = parseUnion();
+                if (position >= input.length() || input.charAt(position) != ')')
+                    throw new IllegalArgumentException("Missing ')' in regular expression " + input);
+                position++;
+            } else if (c == '*') {
+                throw new IllegalArgumentException("Unexpected '*' at position " + position
+                        + " of regular expression " + input);
+            } else if (input.startsWith(EMPTY_SET, position)) {
+                position += EMPTY_SET.length();
+                result = EMPTY;
+            } else {
+                result = symbol(String.valueOf(c));
+                position++;
+            }
+            while (position < input.length() && input.charAt(position) == '*') {
+                position++;
+                result = star(result);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Return the number of nodes of {@code r}, counting shared sub-expressions
+     * only once.
+     */
+    public static int size(RegEx r) {
+        Set<RegEx> visited = Collections.newSetFromMap(new IdentityHashMap<>());
+        Deque<RegEx> stack = new ArrayDeque<>();
+        stack.push(r);
+        while (!stack.isEmpty()) {
+            RegEx node = stack.pop();
+            if (visited.add(node)) {
+                for (int i = 0; i < node.getOperandsCount(); i++) {
+                    stack.push(node.getOperand(i));
+                }
+            }
+        }
+        return visited.size();
+    }
+
+    /**
+     * @return the string representation of {@code r}, or the empty string if
+     *         {@code r} is null
+     */
+    public static String toString(RegEx r) {
+        return r == null ? EPS : r.toString();
+    }
+}
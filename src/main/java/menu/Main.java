@@ -1,11 +1,28 @@
 package menu;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
 import com.google.common.collect.ImmutableList;
 
 import files.FileUtils;
+import graph.BFAnetwork.BFANetworkSupervisor;
+import graph.BFAnetwork.BSState;
+import graph.BFAnetwork.BSTransition;
+import graph.BFAnetwork.CompiledDiagnostician;
+import graph.BFAnetwork.DiagnosticianMinimizer;
+import graph.fa.FA;
+import server.DiagnosisServer;
 
 public class Main {
     private static final String OPTION1 = "1) Open an existing project";
@@ -16,11 +33,50 @@ public class Main {
 
     private boolean exit;
 
-    public static void main(String[] args) {
+    /**
+     * Run the interactive menu or, if the first argument is {@code --server}, a {@link DiagnosisServer} with the
+     * following arguments, or, if it is {@code --batch}, a batch diagnosis (see {@link #batch(String[])}).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && args[0].equals("--server")) {
+            DiagnosisServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        if (args.length > 0 && args[0].equals("--batch")) {
+            batch(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
         Main main = new Main();
         main.runMenu();
     }
 
+    /**
+     * Diagnose the linear observations of the file given as second argument (the standard input if missing), one for
+     * each line, with the diagnostician of the project given as first argument, writing the diagnoses to the file
+     * given as third argument (the standard output if missing), one for each line. Both are encoded in UTF-8, like
+     * the files of the projects.
+     */
+    private static void batch(String[] args) throws IOException {
+        if (args.length == 0 || !FileUtils.getProjectsList().contains(args[0])) {
+            Utility.showMessageln("Usage: --batch <project> [<observations file> [<diagnoses file>]]");
+            return;
+        }
+        FA<BSState, BSTransition> behavioralSpace = BFANetworkSupervisor
+                .getBehavioralSpace(new FileUtils(args[0]).loadBFANetwork());
+        BFANetworkSupervisor.pruneFA(behavioralSpace);
+        CompiledDiagnostician diagnostician = new CompiledDiagnostician(DiagnosticianMinimizer.minimize(
+                BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpace))));
+        try (BufferedReader observations = args.length > 1
+                ? Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.UTF_8)
+                : new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+                Writer diagnoses = args.length > 2
+                        ? Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)
+                        : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8))) {
+            BFANetworkSupervisor.linearDiagnoses(diagnostician, observations, diagnoses,
+                    Runtime.getRuntime().availableProcessors());
+        }
+    }
+
     public void runMenu() {
         while (!exit) {
             Utility.printMenu(OPTIONS);
@@ -1,10 +1,13 @@
 package menu;
 
+import java.io.IOException;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Scanner;
 import java.util.Set;
 import java.util.stream.Collectors;
@@ -17,9 +20,15 @@ import graph.BFAnetwork.BFANetwork;
 import graph.BFAnetwork.BFANetworkSupervisor;
 import graph.BFAnetwork.BSState;
 import graph.BFAnetwork.BSTransition;
+import graph.BFAnetwork.ClosureCache;
+import graph.BFAnetwork.CompiledDiagnostician;
 import graph.BFAnetwork.DBSState;
 import graph.BFAnetwork.DSCTransition;
+import graph.BFAnetwork.DiagnosabilityChecker;
 import graph.BFAnetwork.Diagnostician;
+import graph.BFAnetwork.DiagnosticianMinimizer;
+import graph.BFAnetwork.FaultSetDiagnostician;
+import graph.BFAnetwork.FaultSets;
 import graph.BFAnetwork.LOBSState;
 import graph.bfa.BFA;
 import graph.fa.AcceptedLanguages;
@@ -28,8 +37,11 @@ import graph.fa.FA;
 public class Supervisor {
     private BFANetwork bfaNetwork;
     private FA<BSState, BSTransition> behavioralSpace;
+    private ClosureCache closureCache;
     private FA<FA<DBSState, BSTransition>, DSCTransition> decoratedSpaceOfClosures;
     private Diagnostician diagnostician;
+    private CompiledDiagnostician compiledDiagnostician;
+    private FaultSetDiagnostician faultSetDiagnostician;
     private List<ArrayList<String>> linearObservations;
     private FA<LOBSState, BSTransition> linearObservationBehavioralSpaces;
 
@@ -46,10 +58,13 @@ public class Supervisor {
     private static final String OPTION7 = "7) Create Linear Observation";
     private static final String OPTION8 = "8) Compute Behavioral Space related to a Linear Observation";
     private static final String OPTION9 = "9) Compute Linear Diagnosis with Diagnostician";
+    private static final String OPTION10 = "10) Compute Linear Diagnosis as sets of faults";
+    private static final String OPTION11 = "11) Compute Linear Diagnosis of all the Linear Observations in parallel";
+    private static final String OPTION12 = "12) Check the diagnosability of the faults";
     private static final String OPTION0 = "0) Go back";
 
     public static final ImmutableList<String> OPTIONS = ImmutableList.of(OPTION1, OPTION2, OPTION3, OPTION4, OPTION5,
-            OPTION6, OPTION7, OPTION8, OPTION9, OPTION0);
+            OPTION6, OPTION7, OPTION8, OPTION9, OPTION10, OPTION11, OPTION12, OPTION0);
 
     public Supervisor(BFANetwork bfaNetwork, FileUtils fileUtils) {
         this.bfaNetwork = bfaNetwork;
@@ -57,10 +72,21 @@ public class Supervisor {
     }
 
     public void runMenu() {
-        behavioralSpace = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
-        BFANetworkSupervisor.pruneFA(behavioralSpace);
-        decoratedSpaceOfClosures = BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpace);
-        diagnostician = BFANetworkSupervisor.diagnostician(decoratedSpaceOfClosures);
+        if (loadArtifacts()) {
+            closureCache = new ClosureCache(behavioralSpace);
+        } else {
+            behavioralSpace = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(behavioralSpace);
+            closureCache = new ClosureCache(behavioralSpace);
+            // the cache is empty, so this is the cold computation
+            long start = System.nanoTime();
+            decoratedSpaceOfClosures = BFANetworkSupervisor.decoratedSpaceOfClosures(closureCache);
+            fileUtils.storeDSCBenchmark(System.nanoTime() - start);
+            diagnostician = BFANetworkSupervisor.diagnostician(decoratedSpaceOfClosures);
+            storeArtifacts();
+        }
+        compiledDiagnostician = new CompiledDiagnostician(DiagnosticianMinimizer.minimize(diagnostician));
+        faultSetDiagnostician = new FaultSetDiagnostician(behavioralSpace);
         linearObservations = new ArrayList<>();
         while (!exit) {
             Utility.printMenu(OPTIONS);
@@ -70,6 +96,30 @@ public class Supervisor {
 
     }
 
+    /**
+     * Load the behavioral space, the decorated space of closures and the
+     * diagnostician stored by a previous run, if they are all there and up to
+     * date with the network.
+     *
+     * @return true if they have been loaded
+     */
+    private boolean loadArtifacts() {
+        try {
+            behavioralSpace = fileUtils.loadBehavioralSpace(bfaNetwork);
+            decoratedSpaceOfClosures = fileUtils.loadDecoratedSpaceOfClosures(behavioralSpace);
+            diagnostician = fileUtils.loadDiagnostician(behavioralSpace);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void storeArtifacts() {
+        fileUtils.storeBehavioralSpace(behavioralSpace);
+        fileUtils.storeDecoratedSpaceOfClosures(decoratedSpaceOfClosures);
+        fileUtils.storeDiagnostician(diagnostician);
+    }
+
     private void performAction(int choice) {
         long start, end, duration;
         switch (choice) {
@@ -89,22 +139,24 @@ public class Supervisor {
             case 2:
                 start = System.nanoTime();
                 // FA<DBSState, BSTransition> dc = selectDecoratedSilentClosureFromState();
-                FA<DBSState, BSTransition> dc = BFANetworkSupervisor.decoratedSilentClosure(
-                        BFANetworkSupervisor.silentClosure(behavioralSpace, selectEntryInBehavioralSpace()));
+                FA<DBSState, BSTransition> dc = closureCache.decoratedSilentClosure(selectEntryInBehavioralSpace());
                 end = System.nanoTime();
                 duration = end - start;
                 Utility.printDecoratedSilentClosure(dc);
                 Utility.showMessageln("Duration: " + duration / 1000000 + " ms");
+                Utility.showMessageln("Cache: " + closureCache);
                 fileUtils.storeSilentClosureBenchmark(duration, dc.getName());
                 break;
             case 3:
                 start = System.nanoTime();
-                BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpace);
+                FA<FA<DBSState, BSTransition>, DSCTransition> dsc = BFANetworkSupervisor
+                        .decoratedSpaceOfClosures(closureCache);
                 end = System.nanoTime();
                 duration = end - start;
-                Utility.printDecoratedSpaceDescription(decoratedSpaceOfClosures);
+                Utility.printDecoratedSpaceDescription(dsc);
                 Utility.showMessageln("Duration: " + duration / 1000000 + " ms");
-                fileUtils.storeDSCBenchmark(duration);
+                Utility.showMessageln("Cache: " + closureCache);
+                fileUtils.storeCachedDSCBenchmark(duration);
                 break;
             case 4:
                 start = System.nanoTime();
@@ -117,10 +169,15 @@ public class Supervisor {
                 break;
             case 5:
                 changeBehavioralSpaceStateName();
+                closureCache.clear();
+                faultSetDiagnostician = new FaultSetDiagnostician(behavioralSpace);
+                storeArtifacts();
                 break;
             case 6:
                 changeDecoratedSilenceClosureName();
                 diagnostician = BFANetworkSupervisor.diagnostician(decoratedSpaceOfClosures);
+                compiledDiagnostician = new CompiledDiagnostician(DiagnosticianMinimizer.minimize(diagnostician));
+                storeArtifacts();
                 break;
             case 7:
                 createLinearObservation();
@@ -155,7 +212,7 @@ public class Supervisor {
                 String linearDiagnosis;
                 try {
                     start = System.nanoTime();
-                    linearDiagnosis = BFANetworkSupervisor.linearDiagnosis(diagnostician, linObs2);
+                    linearDiagnosis = BFANetworkSupervisor.linearDiagnosis(compiledDiagnostician, linObs2);
                     end = System.nanoTime();
                     duration = end - start;
                     Utility.showMessageln("\nLinear diagnosis: " + linearDiagnosis);
@@ -165,6 +222,55 @@ public class Supervisor {
                     Utility.showMessageln("This linear observation is not inherent to the diagnostician!");
                 }
                 break;
+            case 10:
+                if (linearObservations.isEmpty()) {
+                    Utility.showMessageln("\nYou didn't create any linear observation!");
+                    break;
+                }
+                ArrayList<String> linObs3 = selectLinearObservation();
+                try {
+                    start = System.nanoTime();
+                    FaultSets faultSets = BFANetworkSupervisor.linearDiagnosis(faultSetDiagnostician, linObs3);
+                    end = System.nanoTime();
+                    duration = end - start;
+                    String faults = faultSets.toString(faultSetDiagnostician.getFaults());
+                    Utility.showMessageln("\nLinear diagnosis: " + faults);
+                    Utility.showMessageln("\nDuration: " + duration / 1000000 + " ms");
+                    fileUtils.storeFaultSetDiagnosisOfLinObsBenchmark(duration, linObs3, faults);
+                } catch (InvalidAlgorithmParameterException e) {
+                    Utility.showMessageln("This linear observation is not inherent to the diagnostician!");
+                }
+                break;
+            case 11:
+                if (linearObservations.isEmpty()) {
+                    Utility.showMessageln("\nYou didn't create any linear observation!");
+                    break;
+                }
+                start = System.nanoTime();
+                List<Optional<String>> linearDiagnoses = BFANetworkSupervisor.linearDiagnoses(compiledDiagnostician,
+                        linearObservations);
+                end = System.nanoTime();
+                duration = end - start;
+                for (int i = 0; i < linearObservations.size(); i++) {
+                    Utility.showMessageln("\n" + linearObservations.get(i) + ": " + linearDiagnoses.get(i)
+                            .orElse("This linear observation is not inherent to the diagnostician!"));
+                }
+                Utility.showMessageln("\nDuration: " + duration / 1000000 + " ms");
+                break;
+            case 12:
+                start = System.nanoTime();
+                Map<String, Optional<DiagnosabilityChecker.Witness>> witnesses = new DiagnosabilityChecker(
+                        faultSetDiagnostician).check();
+                end = System.nanoTime();
+                duration = end - start;
+                for (String fault : witnesses.keySet()) {
+                    Utility.showMessageln("\n" + fault + ": " + witnesses.get(fault)
+                            .map(w -> "not diagnosable, e.g. " + w.getPrefix() + " followed by " + w.getCycle()
+                                    + " repeated forever")
+                            .orElse("diagnosable"));
+                }
+                Utility.showMessageln("\nDuration: " + duration / 1000000 + " ms");
+                break;
             default:
                 Utility.showMessageln("Unknown error has occured.");
         }
@@ -0,0 +1,382 @@
+package server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import files.FileUtils;
+import graph.BFAnetwork.*;
+import graph.fa.FA;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.InvalidAlgorithmParameterException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * This class implements a long-running diagnosis server, listening on the loopback interface only. The projects are
+ * loaded through {@link FileUtils} the first time they are requested (or at start, if preloaded), and their compiled
+ * diagnosticians are kept in memory, so that requests don't pay for the computation of the behavioral space.
+ *
+ * Requests and responses are plain text, with the labels of an observation separated by blanks:
+ * <ul>
+ * <li>{@code POST /diagnose/{project}}: the body contains a batch of linear observations, one for each line, and the
+ * response contains the diagnosis of each of them, on the same line, or {@code !} if the observation is not inherent
+ * to the diagnostician. The belief sets reached by the observations are kept in a {@link DiagnosisCache}, so that
+ * observations sharing a prefix with earlier ones resume from it;</li>
+ * <li>{@code POST /sessions/{project}}: start a {@link DiagnosisSession}, and respond with its identifier;</li>
+ * <li>{@code POST /sessions/{project}/{id}}: advance the session with the observations in the body, and respond with
+ * the diagnosis so far;</li>
+ * <li>{@code GET /sessions/{project}/{id}}: respond with the diagnosis so far;</li>
+ * <li>{@code DELETE /sessions/{project}/{id}}: close the session.</li>
+ * </ul>
+ * An observation that isn't inherent to the diagnostician is answered with status 422, and leaves the session as it
+ * was before the request. An unknown project or session is answered with 404; this includes the sessions that haven't
+ * received any request for longer than the session timeout (30 minutes, unless given to the constructor), which are
+ * closed so that the clients that never delete their sessions don't keep them in memory forever.
+ *
+ * Each request is handled by a thread of its own: a virtual thread, if the Java runtime supports them, otherwise a
+ * thread of a cached pool. The number of requests concurrently processed for each project is bounded, so that a single
+ * project can't starve the others; the requests exceeding the bound wait for their turn.
+ */
+public final class DiagnosisServer {
+
+    // belief sets cached for each project, to resume the observations sharing a prefix with earlier ones
+    private static final int CACHE_SIZE = 1 << 14;
+    private static final Duration SESSION_TIMEOUT = Duration.ofMinutes(30);
+
+    /**
+     * A session open on the server, with the time of its last request.
+     */
+    private static final class Session {
+        private DiagnosisSession session; // replaced only while holding the lock of this object
+        private volatile long lastAccess = System.nanoTime();
+
+        Session(DiagnosisSession session) {
+            this.session = session;
+        }
+    }
+
+    /**
+     * A project whose diagnostician has been loaded.
+     */
+    private static final class Project {
+        private final CompiledDiagnostician diagnostician;
+        private final DiagnosisCache cache;
+        private final Semaphore permits;
+        private final Map<Long, Session> sessions = new ConcurrentHashMap<>();
+        private final AtomicLong lastSweep = new AtomicLong(System.nanoTime());
+
+        Project(CompiledDiagnostician diagnostician, int maxConcurrentRequests) {
+            this.diagnostician = diagnostician;
+            this.cache = new DiagnosisCache(diagnostician, CACHE_SIZE);
+            this.permits = new Semaphore(maxConcurrentRequests);
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final int maxConcurrentRequests;
+    private final long sessionTimeout; // in ns
+    private final Map<String, Future<Project>> projects = new ConcurrentHashMap<>();
+    private final AtomicLong sessionsCount = new AtomicLong();
+
+    /**
+     * Create a server listening on {@code port} of the loopback interface (on any free port, if {@code port} is 0),
+     * which processes at most {@code maxConcurrentRequests} requests at once for each project. The server doesn't
+     * accept requests until it is started.
+     */
+    public DiagnosisServer(int port, int maxConcurrentRequests) throws IOException {
+        this(port, maxConcurrentRequests, SESSION_TIMEOUT);
+    }
+
+    /**
+     * Create a server like {@link #DiagnosisServer(int, int)}, which closes the sessions that haven't received any
+     * request for longer than {@code sessionTimeout}.
+     */
+    public DiagnosisServer(int port, int maxConcurrentRequests, Duration sessionTimeout) throws IOException {
+        if (maxConcurrentRequests <= 0)
+            throw new IllegalArgumentException("The number of concurrent requests must be positive.");
+        if (sessionTimeout.isNegative() || sessionTimeout.isZero())
+            throw new IllegalArgumentException("The session timeout must be positive.");
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.sessionTimeout = sessionTimeout.toNanos();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        executor = newThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/diagnose/", this::handleDiagnose);
+        server.createContext("/sessions/", this::handleSessions);
+    }
+
+    /**
+     * Return an executor running each task in a new virtual thread if the Java runtime supports them (they are looked
+     * up reflectively, so that the project can still be built for older runtimes), otherwise in a cached pool.
+     */
+    private static ExecutorService newThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool();
+        }
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stop accepting requests, and wait at most {@code delay} seconds for the requests being processed to complete.
+     */
+    public void stop(int delay) {
+        server.stop(delay);
+        executor.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Load the diagnostician of {@code project}, unless it is already loaded.
+     *
+     * @throws IOException if there isn't such a project, or it can't be loaded
+     */
+    public void preload(String project) throws IOException {
+        getProject(project);
+    }
+
+    /**
+     * Return the project named {@code name}, loading it if needed. Concurrent requests for the same project wait for
+     * a single load.
+     */
+    private Project getProject(String name) throws IOException {
+        if (!FileUtils.getProjectsList().contains(name))
+            throw new IOException("There isn't any project named " + name);
+        FutureTask<Project> task = new FutureTask<>(() -> loadProject(name));
+        Future<Project> project = projects.putIfAbsent(name, task);
+        if (project == null) {
+            project = task;
+            task.run();
+        }
+        try {
+            return project.get();
+        } catch (ExecutionException e) {
+            projects.remove(name, project);
+            throw new IOException("The project " + name + " can't be loaded", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        }
+    }
+
+    private Project loadProject(String name) throws IOException {
+        BFANetwork network = new FileUtils(name).loadBFANetwork();
+        FA<BSState, BSTransition> behavioralSpace = BFANetworkSupervisor.getBehavioralSpace(network);
+        BFANetworkSupervisor.pruneFA(behavioralSpace);
+        Diagnostician diagnostician = BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpace));
+        return new Project(new CompiledDiagnostician(DiagnosticianMinimizer.minimize(diagnostician)),
+                maxConcurrentRequests);
+    }
+
+    private void handleDiagnose(HttpExchange exchange) throws IOException {
+        try {
+            List<String> path = pathSegments(exchange.getRequestURI());
+            if (path.size() != 2) {
+                respond(exchange, 404, "");
+                return;
+            }
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "");
+                return;
+            }
+            Project project = findProject(exchange, path.get(1));
+            if (project == null)
+                return;
+            List<List<String>> batch = new ArrayList<>();
+            for (String line : readBody(exchange).split("\\R")) {
+                batch.add(labels(line));
+            }
+            if (!acquire(exchange, project))
+                return;
+            StringBuilder response = new StringBuilder();
+            try {
+                for (List<String> linObs : batch) {
+                    try {
+                        response.append(project.cache.linearDiagnosis(linObs));
+                    } catch (InvalidAlgorithmParameterException e) {
+                        response.append(BFANetworkSupervisor.NOT_INHERENT);
+                    }
+                    response.append('\n');
+                }
+            } finally {
+                project.permits.release();
+            }
+            respond(exchange, 200, response.toString());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleSessions(HttpExchange exchange) throws IOException {
+        try {
+            List<String> path = pathSegments(exchange.getRequestURI());
+            if (path.size() != 2 && path.size() != 3) {
+                respond(exchange, 404, "");
+                return;
+            }
+            Project project = findProject(exchange, path.get(1));
+            if (project == null)
+                return;
+            expireSessions(project);
+            String method = exchange.getRequestMethod();
+            if (path.size() == 2) {
+                if (!method.equals("POST")) {
+                    respond(exchange, 405, "");
+                    return;
+                }
+                long id = sessionsCount.incrementAndGet();
+                project.sessions.put(id, new Session(new DiagnosisSession(project.diagnostician)));
+                respond(exchange, 201, id + "\n");
+                return;
+            }
+
+            Session session;
+            try {
+                session = project.sessions.get(Long.parseLong(path.get(2)));
+            } catch (NumberFormatException e) {
+                session = null;
+            }
+            if (session == null) {
+                respond(exchange, 404, "There isn't such a session\n");
+                return;
+            }
+            session.lastAccess = System.nanoTime();
+            switch (method) {
+                case "DELETE":
+                    project.sessions.remove(Long.parseLong(path.get(2)));
+                    respond(exchange, 204, "");
+                    return;
+                case "GET":
+                case "POST":
+                    List<String> linObs = method.equals("POST") ? labels(readBody(exchange)) : List.of();
+                    if (!acquire(exchange, project))
+                        return;
+                    String diagnosis;
+                    try {
+                        // a session must not be advanced by many threads at once
+                        synchronized (session) {
+                            // the observations are applied to a fork, kept only if all of them are inherent
+                            DiagnosisSession advanced = linObs.isEmpty() ? session.session : session.session.fork();
+                            advanced.observe(linObs);
+                            diagnosis = advanced.currentDiagnosis().toString();
+                            session.session = advanced;
+                        }
+                    } catch (InvalidAlgorithmParameterException e) {
+                        diagnosis = null;
+                    } finally {
+                        project.permits.release();
+                    }
+                    if (diagnosis == null)
+                        respond(exchange, 422, BFANetworkSupervisor.NOT_INHERENT + "\n");
+                    else
+                        respond(exchange, 200, diagnosis + "\n");
+                    return;
+                default:
+                    respond(exchange, 405, "");
+            }
+        } finally {
+            exchange.close();
+        }
+    }
+
+    /**
+     * Close the sessions of {@code project} that haven't received any request for longer than the session timeout.
+     * The sessions are swept at most once every half timeout, by a single thread.
+     */
+    private void expireSessions(Project project) {
+        long now = System.nanoTime();
+        long lastSweep = project.lastSweep.get();
+        if (now - lastSweep < sessionTimeout / 2 || !project.lastSweep.compareAndSet(lastSweep, now))
+            return;
+        project.sessions.values().removeIf(session -> now - session.lastAccess > sessionTimeout);
+    }
+
+    /**
+     * Return the project named {@code name}, or respond with status 404 and return null if it can't be loaded.
+     */
+    private Project findProject(HttpExchange exchange, String name) throws IOException {
+        try {
+            return getProject(name);
+        } catch (IOException e) {
+            respond(exchange, 404, "There isn't any project named " + name + "\n");
+            return null;
+        }
+    }
+
+    /**
+     * Wait for a permit to process a request for {@code project}, or respond with status 503 and return false if the
+     * thread is interrupted while waiting.
+     */
+    private static boolean acquire(HttpExchange exchange, Project project) throws IOException {
+        try {
+            project.permits.acquire();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            respond(exchange, 503, "");
+            return false;
+        }
+    }
+
+    private static List<String> pathSegments(URI uri) {
+        List<String> segments = new ArrayList<>();
+        for (String segment : uri.getPath().split("/")) {
+            if (!segment.isEmpty())
+                segments.add(segment);
+        }
+        return segments;
+    }
+
+    private static List<String> labels(String observation) {
+        String trimmed = observation.trim();
+        return trimmed.isEmpty() ? List.of() : List.of(trimmed.split("\\s+"));
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        // a request body left unread would make the connection unusable for the next requests
+        exchange.getRequestBody().readAllBytes();
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length == 0 ? -1 : bytes.length);
+        if (bytes.length > 0) {
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        }
+    }
+
+    /**
+     * Start a server on the port given as first argument (8080 if missing), preloading the projects given as further
+     * arguments, with at most as many concurrent requests for each project as there are processors.
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        DiagnosisServer server = new DiagnosisServer(port, Runtime.getRuntime().availableProcessors());
+        for (int i = 1; i < args.length; i++) {
+            server.preload(args[i]);
+        }
+        server.start();
+        System.out.println("Diagnosis server listening on " + InetAddress.getLoopbackAddress().getHostAddress() + ":"
+                + server.getPort());
+    }
+}
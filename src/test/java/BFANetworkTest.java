@@ -1,18 +1,39 @@
+import com.google.common.collect.HashMultiset;
 import com.google.common.collect.ImmutableMap;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
 import files.Benchmark;
+import files.BinaryArtifacts;
 import files.FileUtils;
 import graph.BFAnetwork.*;
+import graph.StronglyConnectedComponents;
 import graph.bfa.BFA;
 import graph.bfa.BFABuilder;
 import graph.bfa.EventTransition;
 import graph.fa.*;
+import graph.nodes.State;
+import graph.regex.RegEx;
+import graph.regex.RegExLanguages;
+import graph.regex.RegExes;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -291,6 +312,84 @@ public class BFANetworkTest {
         assertFalse(silentClosure.getStates().contains(bs.getNode("8").orElseThrow()));
     }
 
+    /**
+     * Check that the silent closures of the bundled networks extracted by visiting
+     * the behavioral space and by visiting the components of its non-observable
+     * transitions have the same states and transitions, and that the behavioral
+     * space isn't modified.
+     */
+    @Test
+    public void itShouldComputeSilentClosuresWithAndWithoutComponents() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor
+                    .getBehavioralSpace(new FileUtils(project).loadBFANetwork());
+            BFANetworkSupervisor.pruneFA(bs);
+            int transitionsCount = bs.getTransitions().size();
+            StronglyConnectedComponents<BSState> silentComponents = BFANetworkSupervisor.silentComponents(bs);
+            for (BSState s : bs.getStates()) {
+                if (!bs.isInitial(s)
+                        && bs.getNetwork().inEdges(s).stream().noneMatch(BSTransition::hasObservabilityLabel))
+                    continue;
+                FA<BSState, BSTransition> visited = BFANetworkSupervisor.silentClosure(bs, s);
+                FA<BSState, BSTransition> fromComponents = BFANetworkSupervisor.silentClosure(bs, s, silentComponents);
+                assertEquals(visited.getStates(), fromComponents.getStates(), project + " " + s.getName());
+                assertEquals(visited.getTransitions(), fromComponents.getTransitions(), project + " " + s.getName());
+                assertEquals(visited.getAcceptanceStates(), fromComponents.getAcceptanceStates());
+                assertEquals(visited.getFinalStates(), fromComponents.getFinalStates());
+                assertTrue(visited.getTransitions().stream().noneMatch(BSTransition::hasObservabilityLabel));
+            }
+            assertEquals(transitionsCount, bs.getTransitions().size());
+        }
+    }
+
+    /**
+     * Check that the decorated spaces of closures of the bundled networks computed
+     * sequentially and in parallel have the same closures and transitions,
+     * inserted in the same order, with the same decorations.
+     */
+    @Test
+    public void itShouldComputeDecoratedSpaceOfClosuresInParallel() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor
+                    .getBehavioralSpace(new FileUtils(project).loadBFANetwork());
+            BFANetworkSupervisor.pruneFA(bs);
+            List<String> sequentialRegexes = new ArrayList<>();
+            List<String> sequential = describe(BFANetworkSupervisor.decoratedSpaceOfClosures(bs, 1),
+                    sequentialRegexes);
+            for (int i = 0; i < 3; i++) {
+                List<String> parallelRegexes = new ArrayList<>();
+                assertEquals(sequential,
+                        describe(BFANetworkSupervisor.decoratedSpaceOfClosures(bs, 4), parallelRegexes), project);
+                assertEquals(sequentialRegexes, parallelRegexes, project);
+            }
+        }
+        assertThrows(IllegalArgumentException.class,
+                () -> BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38(), 0));
+    }
+
+    /**
+     * Describe the closures and the transitions of a decorated space of closures,
+     * in the order in which they have been inserted, adding the decorations and
+     * the symbols to {@code regexes} in the same order.
+     */
+    private static List<String> describe(FA<FA<DBSState, BSTransition>, DSCTransition> dsc, List<String> regexes) {
+        List<String> description = new ArrayList<>();
+        for (FA<DBSState, BSTransition> sc : dsc.getStates()) {
+            description.add(sc.getName() + (dsc.isInitial(sc) ? " initial" : "")
+                    + (dsc.isAcceptance(sc) ? " acceptance" : ""));
+            sc.getStates().stream().sorted(Comparator.comparing(DBSState::getName)).forEach(s -> {
+                description.add(sc.getName() + " " + s.getName());
+                regexes.add(s.getDecoration());
+            });
+        }
+        for (DSCTransition t : dsc.getTransitions()) {
+            description.add(dsc.getNetwork().incidentNodes(t).source().getName() + " -" + t.getName() + "-> "
+                    + dsc.getNetwork().incidentNodes(t).target().getName() + " " + t.getObservabilityLabel());
+            regexes.add(t.getSymbol());
+        }
+        return description;
+    }
+
     @Test
     public void itShouldComputeDecorationOfSilentClosure() {
         FA<BSState, BSTransition> bs = behavioralSpaceFromPage38();
@@ -381,6 +480,1078 @@ public class BFANetworkTest {
         assertEquals("(rf|fr)(|frf|fr|f)", diagnosis);
     }
 
+    @Test
+    public void itShouldCompileDiagnostician() {
+        FA<FA<DBSState, BSTransition>, DSCTransition> space = BFANetworkSupervisor
+                .decoratedSpaceOfClosures(behavioralSpaceFromPage38());
+        Diagnostician d = BFANetworkSupervisor.diagnostician(space);
+        CompiledDiagnostician compiled = new CompiledDiagnostician(d);
+        assertEquals(7, compiled.getStatesCount());
+        assertEquals(12, compiled.getTransitionsCount());
+        assertEquals(2, compiled.getLabelsCount());
+        assertEquals("0", compiled.getStateName(compiled.getInitialState()));
+        assertTrue(RegExLanguages.areEquivalent(RegExes.parse("|f|fr|frf"),
+                compiled.getDiagnosisOf(compiled.getState("2"))));
+        assertSame(RegExes.epsilon(), compiled.getDiagnosisOf(compiled.getState("0")));
+
+        // transitions leaving a state with a given label are contiguous
+        int x2 = compiled.getState("2");
+        int o3 = compiled.getLabelId("o3");
+        assertEquals(3, compiled.endTransition(x2, o3) - compiled.firstTransition(x2, o3));
+        assertEquals(-1, compiled.getLabelId("o1"));
+    }
+
+    @Test
+    public void itShouldComputeLinearDiagnosisWithCompiledDiagnostician() throws InvalidAlgorithmParameterException {
+        FA<FA<DBSState, BSTransition>, DSCTransition> space = BFANetworkSupervisor
+                .decoratedSpaceOfClosures(behavioralSpaceFromPage38());
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor.diagnostician(space));
+        assertTrue(RegExLanguages.areEquivalent(RegExes.parse("(rf|fr)(|f|fr|frf)"),
+                BFANetworkSupervisor.linearDiagnosisRegEx(d, List.of("o3", "o2", "o3", "o2"))));
+        assertTrue(RegExLanguages.areEquivalent(RegExes.parse("|f|fr|frf"),
+                BFANetworkSupervisor.linearDiagnosisRegEx(d, List.of("o3", "o2"))));
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> BFANetworkSupervisor.linearDiagnosis(d, List.of("o3", "o2", "o3")));
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> BFANetworkSupervisor.linearDiagnosis(d, List.of("o1")));
+    }
+
+    /**
+     * Check, on the bundled projects, that the simplified diagnosis of every
+     * linear observation up to length 3 denotes the same language as the
+     * alternative between the decorations of all the paths of the diagnostician
+     * that produce it.
+     */
+    @Test
+    public void itShouldSimplifyDiagnosesPreservingTheirLanguage() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            BFANetwork network = new FileUtils(project).loadBFANetwork();
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(network);
+            BFANetworkSupervisor.pruneFA(bs);
+            Diagnostician d = BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs));
+            CompiledDiagnostician compiled = new CompiledDiagnostician(d);
+            FA<FAState, DSCTransition> fa = d.getFa();
+
+            // the expected diagnoses, computed path by path and never simplified
+            Map<List<String>, RegEx> expected = new HashMap<>();
+            Deque<Object[]> paths = new ArrayDeque<>(); // (state, observation, decoration)
+            paths.push(new Object[] { fa.getInitialState(), List.<String>of(), RegExes.epsilon() });
+            while (!paths.isEmpty()) {
+                Object[] path = paths.pop();
+                FAState x = (FAState) path[0];
+                List<String> linObs = (List<String>) path[1];
+                RegEx r = (RegEx) path[2];
+                if (fa.isAcceptance(x) && !linObs.isEmpty())
+                    expected.merge(linObs, RegExes.concat(r, RegExes.parse(d.getDiagnosisOf(x))), RegExes::union);
+                if (linObs.size() == 3)
+                    continue;
+                for (DSCTransition t : fa.getNetwork().outEdges(x)) {
+                    List<String> next = new ArrayList<>(linObs);
+                    next.add(t.getObservabilityLabel());
+                    paths.push(new Object[] { fa.getNetwork().incidentNodes(t).target(), next,
+                            RegExes.concat(r, RegExes.parse(t.getSymbol())) });
+                }
+            }
+            for (Map.Entry<List<String>, RegEx> e : expected.entrySet()) {
+                try {
+                    RegEx diagnosis = BFANetworkSupervisor.linearDiagnosisRegEx(compiled, e.getKey());
+                    assertTrue(RegExLanguages.areEquivalent(e.getValue(), diagnosis),
+                            project + " " + e.getKey() + ": " + e.getValue() + " != " + diagnosis);
+                } catch (InvalidAlgorithmParameterException ex) {
+                    fail(project + " " + e.getKey());
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that the decorations of the silent closures of the bundled networks
+     * computed by state elimination, with every order, by the algebraic method and
+     * by the default extractor denote the same languages.
+     */
+    @Test
+    public void itShouldDecorateSilentClosuresEquivalentlyWithEveryExtractor() throws IOException {
+        List<LanguageExtractor> extractors = new ArrayList<>(List.of(LanguageExtractor.DEFAULT));
+        for (EliminationOrder order : EliminationOrder.values()) {
+            extractors.add(LanguageExtractor.stateElimination(order));
+        }
+        for (String project : FileUtils.getProjectsList()) {
+            BFANetwork network = new FileUtils(project).loadBFANetwork();
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(network);
+            BFANetworkSupervisor.pruneFA(bs);
+            for (BSState entry : bs.getStates()) {
+                if (!bs.isInitial(entry)
+                        && bs.getNetwork().inEdges(entry).stream().noneMatch(BSTransition::hasObservabilityLabel))
+                    continue;
+                FA<BSState, BSTransition> closure = BFANetworkSupervisor.silentClosure(bs, entry);
+                Map<String, String> expected = new HashMap<>();
+                BFANetworkSupervisor.decoratedSilentClosure(closure, LanguageExtractor.algebraic()).getStates()
+                        .forEach(s -> expected.put(s.getName(), s.getDecoration()));
+                for (LanguageExtractor extractor : extractors) {
+                    for (DBSState s : BFANetworkSupervisor.decoratedSilentClosure(closure, extractor).getStates()) {
+                        String decoration = expected.get(s.getName());
+                        String message = project + " " + entry.getName() + " " + s.getName() + " (" + extractor
+                                + "): " + decoration + " != " + s.getDecoration();
+                        if (decoration == null)
+                            assertNull(s.getDecoration(), message);
+                        else
+                            assertTrue(RegExLanguages.areEquivalent(decoration, s.getDecoration()), message);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that the silent closures of the bundled networks taken from a cache
+     * have the same decorations as those computed from scratch, and that they are
+     * computed only once.
+     */
+    @Test
+    public void itShouldCacheDecoratedSilentClosures() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor
+                    .getBehavioralSpace(new FileUtils(project).loadBFANetwork());
+            BFANetworkSupervisor.pruneFA(bs);
+            ClosureCache cache = new ClosureCache(bs);
+            List<BSState> entries = bs.getStates().stream().filter(s -> bs.isInitial(s)
+                    || bs.getNetwork().inEdges(s).stream().anyMatch(BSTransition::hasObservabilityLabel))
+                    .collect(Collectors.toList());
+            for (BSState entry : entries) {
+                FA<DBSState, BSTransition> cached = cache.decoratedSilentClosure(entry);
+                Map<String, String> expected = new HashMap<>();
+                BFANetworkSupervisor.decoratedSilentClosure(BFANetworkSupervisor.silentClosure(bs, entry))
+                        .getStates().forEach(s -> expected.put(s.getName(), s.getDecoration()));
+                for (DBSState s : cached.getStates()) {
+                    String decoration = expected.get(s.getName());
+                    String message = project + " " + entry.getName() + " " + s.getName() + ": " + decoration + " != "
+                            + s.getDecoration();
+                    if (decoration == null)
+                        assertNull(s.getDecoration(), message);
+                    else
+                        assertTrue(RegExLanguages.areEquivalent(decoration, s.getDecoration()), message);
+                }
+                assertSame(cached, cache.decoratedSilentClosure(entry));
+            }
+            assertEquals(entries.size(), cache.getClosureMisses());
+            assertEquals(entries.size(), cache.getClosureHits());
+
+            // the decorated space of closures reuses all the closures
+            BFANetworkSupervisor.decoratedSpaceOfClosures(cache, 1);
+            assertEquals(entries.size(), cache.getClosureMisses());
+            assertEquals(2 * entries.size(), cache.getClosureHits());
+
+            cache.clear();
+            cache.decoratedSilentClosure(bs.getInitialState());
+            assertEquals(entries.size() + 1, cache.getClosureMisses());
+        }
+    }
+
+    @Test
+    public void itShouldComputeLinearDiagnosisAsFaultSets() throws InvalidAlgorithmParameterException {
+        FaultSetDiagnostician d = new FaultSetDiagnostician(behavioralSpaceFromPage38());
+        assertEquals(List.of("f", "r"), d.getFaults());
+        assertEquals(7, d.getStatesCount());
+        assertEquals(12, d.getTransitionsCount());
+        int f = d.getFaultId("f");
+        int r = d.getFaultId("r");
+        assertEquals(FaultSets.of(f, r), BFANetworkSupervisor.linearDiagnosis(d, List.of("o3", "o2", "o3", "o2")));
+        FaultSets diagnosis = BFANetworkSupervisor.linearDiagnosis(d, List.of("o3", "o2"));
+        assertEquals("{}, {f}, {f, r}", diagnosis.toString(d.getFaults()));
+        assertTrue(diagnosis.contains(f) && diagnosis.contains() && diagnosis.contains(f, r));
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> BFANetworkSupervisor.linearDiagnosis(d, List.of("o3", "o2", "o3")));
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> BFANetworkSupervisor.linearDiagnosis(d, List.of("o1")));
+    }
+
+    /**
+     * Check, on the bundled projects, that the diagnosis as fault-sets of every
+     * linear observation up to length 3 corresponds to the sets of symbols of the
+     * words of the diagnosis as regular expression.
+     */
+    @Test
+    public void itShouldComputeFaultSetsConsistentWithRegularExpressions()
+            throws IOException, InvalidAlgorithmParameterException {
+        for (String project : FileUtils.getProjectsList()) {
+            BFANetwork network = new FileUtils(project).loadBFANetwork();
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(network);
+            BFANetworkSupervisor.pruneFA(bs);
+            CompiledDiagnostician compiled = new CompiledDiagnostician(
+                    BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs)));
+            FaultSetDiagnostician d = new FaultSetDiagnostician(bs);
+
+            List<List<String>> observations = new ArrayList<>(List.of(List.of()));
+            for (int length = 1; length <= 3; length++) {
+                List<List<String>> longer = new ArrayList<>();
+                for (List<String> linObs : observations) {
+                    for (int label = 0; label < compiled.getLabelsCount(); label++) {
+                        List<String> next = new ArrayList<>(linObs);
+                        next.add(compiled.getLabel(label));
+                        longer.add(next);
+                    }
+                }
+                observations = longer;
+                for (List<String> linObs : observations) {
+                    RegEx expected;
+                    try {
+                        expected = BFANetworkSupervisor.linearDiagnosisRegEx(compiled, linObs);
+                    } catch (InvalidAlgorithmParameterException e) {
+                        assertThrows(InvalidAlgorithmParameterException.class,
+                                () -> BFANetworkSupervisor.linearDiagnosis(d, linObs));
+                        continue;
+                    }
+                    // regular expressions split relevance labels into characters
+                    Set<Set<Character>> actual = new HashSet<>();
+                    for (BitSet faultSet : BFANetworkSupervisor.linearDiagnosis(d, linObs).getFaultSets()) {
+                        Set<Character> characters = new HashSet<>();
+                        faultSet.stream().forEach(
+                                f -> d.getFaults().get(f).chars().forEach(c -> characters.add((char) c)));
+                        actual.add(characters);
+                    }
+                    assertEquals(symbolSets(expected), actual, project + " " + linObs);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the sets of symbols of the words denoted by {@code r}
+     */
+    private static Set<Set<Character>> symbolSets(RegEx r) {
+        Set<Set<Character>> result = new HashSet<>();
+        switch (r.getKind()) {
+            case EPSILON:
+                result.add(Set.of());
+                break;
+            case SYMBOL:
+                result.add(Set.of(r.getSymbol().charAt(0)));
+                break;
+            case UNION:
+                r.getOperands().forEach(op -> result.addAll(symbolSets(op)));
+                break;
+            case CONCAT:
+            case STAR:
+                Set<Set<Character>> left = r.getKind() == RegEx.Kind.CONCAT ? symbolSets(r.getOperand(0))
+                        : Set.of(Set.of());
+                Set<Set<Character>> right = symbolSets(r.getOperand(r.getOperandsCount() - 1));
+                for (Set<Character> s1 : left) {
+                    for (Set<Character> s2 : right) {
+                        Set<Character> union = new HashSet<>(s1);
+                        union.addAll(s2);
+                        result.add(union);
+                    }
+                }
+                if (r.getKind() == RegEx.Kind.STAR) {
+                    // close under union
+                    result.add(Set.of());
+                    boolean changed = true;
+                    while (changed) {
+                        changed = false;
+                        for (Set<Character> s1 : List.copyOf(result)) {
+                            for (Set<Character> s2 : right) {
+                                Set<Character> union = new HashSet<>(s1);
+                                union.addAll(s2);
+                                changed |= result.add(union);
+                            }
+                        }
+                    }
+                }
+                break;
+            default:
+                break;
+        }
+        return result;
+    }
+
+    /**
+     * Check that the diagnosis of a long observation grows linearly with its
+     * length, since equal sub-expressions are shared.
+     */
+    @Test
+    public void itShouldShareSubExpressionsOfLinearDiagnosis() throws InvalidAlgorithmParameterException {
+        FA<FA<DBSState, BSTransition>, DSCTransition> space = BFANetworkSupervisor
+                .decoratedSpaceOfClosures(behavioralSpaceFromPage38());
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor.diagnostician(space));
+        List<String> linObs = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            linObs.add("o3");
+            linObs.add("o2");
+        }
+        RegEx diagnosis = BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs);
+        assertTrue(RegExes.size(diagnosis) < 10 * linObs.size());
+    }
+
+    /**
+     * Check that two states reached by the same observation, with the same
+     * decoration, and having the same diagnosis are merged by the minimization.
+     */
+    @Test
+    public void itShouldMergeEquivalentStatesOfDiagnostician() throws InvalidAlgorithmParameterException {
+        FAState a = new FAState("a");
+        FAState b = new FAState("b");
+        FAState c = new FAState("c");
+        FA<FAState, DSCTransition> fa = new FABuilder<FAState, DSCTransition>().putInitialState(a)
+                .putAcceptanceState(b).putAcceptanceState(c).putTransition(a, b, new DSCTransition("t1", "f", "o"))
+                .putTransition(a, c, new DSCTransition("t2", "f", "o")).build();
+        DBSState final1 = new DBSState(new BSState("1", Map.of(), Map.of()), "r");
+        DBSState final2 = new DBSState(new BSState("2", Map.of(), Map.of()), "r");
+        Diagnostician d = new Diagnostician(fa, Map.of(b, Map.of(final1, "r"), c, Map.of(final2, "r")));
+
+        Diagnostician minimized = DiagnosticianMinimizer.minimize(d);
+        assertEquals(2, minimized.getFa().getStates().size());
+        assertEquals(1, minimized.getFa().getTransitions().size());
+        assertEquals("fr", BFANetworkSupervisor.linearDiagnosis(minimized, List.of("o")));
+    }
+
+    /**
+     * Check that the minimized diagnosticians of the bundled networks aren't
+     * larger than the original ones, and give the same diagnosis for every
+     * linear observation of at most three labels.
+     */
+    @Test
+    public void itShouldDiagnoseEquivalentlyWithMinimizedDiagnostician() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            BFANetwork network = new FileUtils(project).loadBFANetwork();
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(network);
+            BFANetworkSupervisor.pruneFA(bs);
+            Diagnostician d = BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs));
+            Diagnostician minimized = DiagnosticianMinimizer.minimize(d);
+            assertTrue(minimized.getFa().getStates().size() <= d.getFa().getStates().size(), project);
+            assertTrue(minimized.getFa().getTransitions().size() <= d.getFa().getTransitions().size(), project);
+
+            List<String> labels = d.getFa().getTransitions().stream().map(DSCTransition::getObservabilityLabel)
+                    .distinct().sorted().collect(Collectors.toList());
+            List<List<String>> observations = new ArrayList<>(List.of(List.of()));
+            for (int i = 0; i < observations.size(); i++) {
+                List<String> linObs = observations.get(i);
+                String expected = null;
+                String diagnosis = null;
+                try {
+                    expected = BFANetworkSupervisor.linearDiagnosis(d, linObs);
+                } catch (InvalidAlgorithmParameterException e) {
+                    // not inherent to the diagnostician
+                }
+                try {
+                    diagnosis = BFANetworkSupervisor.linearDiagnosis(minimized, linObs);
+                } catch (InvalidAlgorithmParameterException e) {
+                    // not inherent to the minimized diagnostician
+                }
+                String message = project + " " + linObs + ": " + expected + " != " + diagnosis;
+                if (expected == null)
+                    assertNull(diagnosis, message);
+                else
+                    assertTrue(diagnosis != null && RegExLanguages.areEquivalent(expected, diagnosis), message);
+                if (linObs.size() < 3) {
+                    for (String label : labels) {
+                        List<String> next = new ArrayList<>(linObs);
+                        next.add(label);
+                        observations.add(next);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that the deterministic diagnosticians of the bundled networks give
+     * the same diagnosis as the compiled ones for every linear observation of at
+     * most four labels.
+     */
+    @Test
+    public void itShouldDiagnoseEquivalentlyWithDeterministicDiagnostician() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            BFANetwork network = new FileUtils(project).loadBFANetwork();
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(network);
+            BFANetworkSupervisor.pruneFA(bs);
+            CompiledDiagnostician compiled = new CompiledDiagnostician(
+                    BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs)));
+            DeterministicDiagnostician deterministic = new DeterministicDiagnostician(compiled);
+
+            List<List<String>> observations = new ArrayList<>(List.of(List.of()));
+            for (int i = 0; i < observations.size(); i++) {
+                List<String> linObs = observations.get(i);
+                RegEx expected = null;
+                RegEx diagnosis = null;
+                try {
+                    expected = BFANetworkSupervisor.linearDiagnosisRegEx(compiled, linObs);
+                } catch (InvalidAlgorithmParameterException e) {
+                    // not inherent to the diagnostician
+                }
+                try {
+                    diagnosis = BFANetworkSupervisor.linearDiagnosisRegEx(deterministic, linObs);
+                } catch (InvalidAlgorithmParameterException e) {
+                    // not inherent to the deterministic diagnostician
+                }
+                String message = project + " " + linObs + ": " + expected + " != " + diagnosis;
+                if (expected == null)
+                    assertNull(diagnosis, message);
+                else
+                    assertTrue(diagnosis != null && RegExLanguages.areEquivalent(expected, diagnosis), message);
+                if (linObs.size() < 4) {
+                    for (int label = 0; label < compiled.getLabelsCount(); label++) {
+                        List<String> next = new ArrayList<>(linObs);
+                        next.add(compiled.getLabel(label));
+                        observations.add(next);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Check that the subset construction stops when the deterministic
+     * diagnostician has more states than allowed.
+     */
+    @Test
+    public void itShouldBoundStatesOfDeterministicDiagnostician() {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        int states = new DeterministicDiagnostician(d).getStatesCount();
+        assertEquals(states, new DeterministicDiagnostician(d, states).getStatesCount());
+        assertThrows(IllegalStateException.class, () -> new DeterministicDiagnostician(d, states - 1));
+    }
+
+    /**
+     * Check that a diagnosis session receiving the observations one at a time
+     * gives, after each of them, the diagnosis of the whole linear observation
+     * received so far, and that forked sessions are independent.
+     */
+    @Test
+    public void itShouldDiagnoseObservationsOneAtATime() throws InvalidAlgorithmParameterException {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        DiagnosisSession session = new DiagnosisSession(d);
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, List.of()), session.currentDiagnosis());
+
+        List<String> linObs = new ArrayList<>();
+        DiagnosisSession fork = null;
+        for (int i = 0; i < 10; i++) {
+            session.observe("o3");
+            session.observe("o2");
+            linObs.addAll(List.of("o3", "o2"));
+            assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs), session.currentDiagnosis());
+            if (i == 4)
+                fork = session.fork();
+        }
+        // the fork has seen only the first ten observations
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs.subList(0, 10)), fork.currentDiagnosis());
+        fork.observe(List.of("o3", "o2"));
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs.subList(0, 12)), fork.currentDiagnosis());
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs), session.currentDiagnosis());
+
+        // an observation which is not inherent leaves the session unchanged
+        int[] beliefSet = session.getBeliefSet();
+        assertThrows(InvalidAlgorithmParameterException.class, () -> session.observe("o2"));
+        assertThrows(InvalidAlgorithmParameterException.class, () -> session.observe("unknown"));
+        assertArrayEquals(beliefSet, session.getBeliefSet());
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs), session.currentDiagnosis());
+
+        session.reset();
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, List.of()), session.currentDiagnosis());
+    }
+
+    /**
+     * Check that many sessions sharing the same diagnostician, advanced
+     * concurrently by different threads, give the same diagnoses as sessions
+     * advanced one at a time.
+     */
+    @Test
+    public void itShouldAdvanceManySessionsConcurrently() throws Exception {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        List<DiagnosisSession> sessions = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            sessions.add(new DiagnosisSession(d));
+        }
+        // session i receives i % 7 + 1 pairs of observations
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    for (int i = thread; i < sessions.size(); i += 4) {
+                        for (int k = 0; k <= i % 7; k++) {
+                            sessions.get(i).observe(List.of("o3", "o2"));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        List<String> linObs = new ArrayList<>();
+        List<RegEx> expected = new ArrayList<>();
+        for (int k = 0; k < 7; k++) {
+            linObs.addAll(List.of("o3", "o2"));
+            expected.add(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs));
+        }
+        for (int i = 0; i < sessions.size(); i++) {
+            assertEquals(expected.get(i % 7), sessions.get(i).currentDiagnosis(), "session " + i);
+        }
+    }
+
+    /**
+     * Check that the diagnoses resumed from the prefixes in the cache are the
+     * same as those computed from scratch, and that the cache doesn't grow
+     * beyond its size.
+     */
+    @Test
+    public void itShouldResumeDiagnosisFromCachedPrefixes() throws InvalidAlgorithmParameterException {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        DiagnosisCache cache = new DiagnosisCache(d, 6);
+
+        List<String> linObs = List.of("o3", "o2", "o3", "o2", "o3", "o2");
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs.subList(0, 4)),
+                cache.linearDiagnosisRegEx(linObs.subList(0, 4)));
+        assertEquals(0, cache.getHits());
+        assertEquals(4, cache.getMisses());
+        assertEquals(4, cache.size());
+        // the first four observations are resumed from the cache
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs), cache.linearDiagnosisRegEx(linObs));
+        assertEquals(4, cache.getHits());
+        assertEquals(6, cache.getMisses());
+        assertEquals(0.4, cache.getHitRate());
+        // a shorter query is found in the cache
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs.subList(0, 2)),
+                cache.linearDiagnosisRegEx(linObs.subList(0, 2)));
+        assertEquals(6, cache.getHits());
+        assertEquals(0, cache.getEvictions());
+
+        // the prefix of an observation which is not inherent is resumed too
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> cache.linearDiagnosisRegEx(List.of("o3", "o2", "o3", "o3")));
+        assertEquals(9, cache.getHits());
+        assertEquals(7, cache.getMisses());
+
+        // the least recently used prefixes are evicted, but the longer ones can still be resumed
+        List<String> longer = new ArrayList<>(linObs);
+        longer.addAll(List.of("o3", "o2"));
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, longer), cache.linearDiagnosisRegEx(longer));
+        assertEquals(6, cache.size());
+        assertEquals(2, cache.getEvictions());
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs.subList(0, 2)),
+                cache.linearDiagnosisRegEx(linObs.subList(0, 2)));
+        assertEquals(15, cache.getHits());
+        assertEquals(11, cache.getMisses());
+        assertEquals(6, cache.size());
+
+        // every query gives the same diagnosis as computed from scratch, whatever is in the cache
+        List<List<String>> queries = new ArrayList<>();
+        for (int length = 0; length <= 8; length++) {
+            List<String> query = new ArrayList<>();
+            for (int i = 0; i < length; i++) {
+                query.add(i % 2 == 0 ? "o3" : "o2");
+            }
+            queries.add(query);
+        }
+        Collections.shuffle(queries, new Random(43));
+        for (List<String> query : queries) {
+            for (int k = 0; k < 2; k++) {
+                try {
+                    assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, query),
+                            cache.linearDiagnosisRegEx(query), query.toString());
+                } catch (InvalidAlgorithmParameterException e) {
+                    assertThrows(InvalidAlgorithmParameterException.class,
+                            () -> BFANetworkSupervisor.linearDiagnosisRegEx(d, query));
+                }
+                assertTrue(cache.size() <= 6);
+            }
+        }
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs), cache.linearDiagnosisRegEx(linObs));
+    }
+
+    /**
+     * Check that a cache so small that its prefixes are evicted all the time,
+     * shared by many threads, gives the same diagnoses as computed from scratch.
+     */
+    @Test
+    public void itShouldResumeDiagnosisFromCachedPrefixesConcurrently() throws Exception {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        for (int maxEntries = 1; maxEntries <= 2; maxEntries++) {
+            DiagnosisCache cache = new DiagnosisCache(d, maxEntries);
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    Random random = new Random(t);
+                    futures.add(executor.submit(() -> {
+                        for (int k = 0; k < 2000; k++) {
+                            List<String> query = new ArrayList<>();
+                            for (int i = random.nextInt(10); i > 0; i--) {
+                                query.add(random.nextInt(4) == 0 ? "o3" : query.size() % 2 == 0 ? "o3" : "o2");
+                            }
+                            RegEx expected;
+                            try {
+                                expected = BFANetworkSupervisor.linearDiagnosisRegEx(d, query);
+                            } catch (InvalidAlgorithmParameterException e) {
+                                assertThrows(InvalidAlgorithmParameterException.class,
+                                        () -> cache.linearDiagnosisRegEx(query), query.toString());
+                                continue;
+                            }
+                            assertEquals(expected, cache.linearDiagnosisRegEx(query), query.toString());
+                        }
+                        return null;
+                    }));
+                }
+                for (Future<?> future : futures) {
+                    future.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertTrue(cache.size() <= maxEntries);
+            assertTrue(cache.getEvictions() > 0);
+        }
+    }
+
+    /**
+     * Check that the diagnoses computed by segments, repeating their transfer
+     * functions, are equivalent to those computed one observation at a time.
+     */
+    @Test
+    public void itShouldDiagnoseRepeatedSegmentsWithTransferFunctions() throws InvalidAlgorithmParameterException {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        SegmentSummaries summaries = new SegmentSummaries(d, 4, 64);
+
+        for (int k = 0; k <= 20; k++) {
+            List<String> linObs = new ArrayList<>();
+            for (int i = 0; i < k; i++) {
+                linObs.addAll(List.of("o3", "o2"));
+            }
+            String expected = BFANetworkSupervisor.linearDiagnosis(d, linObs);
+            assertTrue(RegExLanguages.areEquivalent(expected, summaries.linearDiagnosis(linObs)), "k = " + k);
+            RegEx[] belief = summaries.advance(summaries.initialBelief(), List.of("o3", "o2"), k);
+            assertTrue(RegExLanguages.areEquivalent(expected, summaries.diagnosis(belief).toString()), "k = " + k);
+        }
+        // the powers of two of the segment have been computed once
+        assertEquals(5, summaries.getMisses());
+
+        // runs of different segments, and observations out of any run
+        List<String> linObs = new ArrayList<>(List.of("o3"));
+        for (int i = 0; i < 9; i++) {
+            linObs.addAll(List.of("o2", "o3"));
+        }
+        linObs.add("o2");
+        assertTrue(RegExLanguages.areEquivalent(BFANetworkSupervisor.linearDiagnosis(d, linObs),
+                summaries.linearDiagnosis(linObs)));
+
+        List<String> notInherent = new ArrayList<>(linObs);
+        notInherent.addAll(List.of("o2", "o3", "o2"));
+        assertThrows(InvalidAlgorithmParameterException.class, () -> summaries.linearDiagnosisRegEx(notInherent));
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> summaries.advance(summaries.initialBelief(), List.of("o2"), 10));
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> summaries.linearDiagnosisRegEx(List.of("unknown")));
+
+        // the transfer function of a repeated segment is the composition of the transfer functions of its repetitions
+        TransferFunction once = summaries.summarize(List.of("o3", "o2"), 1);
+        TransferFunction thrice = summaries.summarize(List.of("o3", "o2"), 3);
+        TransferFunction composed = once.then(once).then(once);
+        assertEquals(composed.getPairsCount(), thrice.getPairsCount());
+        for (int x = 0; x < d.getStatesCount(); x++) {
+            assertEquals(composed.firstPair(x), thrice.firstPair(x));
+            for (int p = composed.firstPair(x); p < composed.firstPair(x + 1); p++) {
+                assertEquals(composed.getPairTarget(p), thrice.getPairTarget(p));
+                assertTrue(RegExLanguages.areEquivalent(composed.getPairDecoration(p).toString(),
+                        thrice.getPairDecoration(p).toString()));
+            }
+        }
+    }
+
+    /**
+     * Check that the linear observations of a batch diagnosed in parallel get the
+     * same diagnoses as diagnosed one at a time, in the same order.
+     */
+    @Test
+    public void itShouldDiagnoseBatchOfObservationsInParallel() throws IOException {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        List<List<String>> batch = new ArrayList<>();
+        List<String> expected = new ArrayList<>();
+        Random random = new Random(45);
+        for (int i = 0; i < 200; i++) {
+            List<String> linObs = new ArrayList<>();
+            int length = random.nextInt(7);
+            for (int j = 0; j < length; j++) {
+                linObs.add(random.nextInt(4) == 0 ? "o2" : j % 2 == 0 ? "o3" : "o2");
+            }
+            batch.add(linObs);
+            try {
+                expected.add(BFANetworkSupervisor.linearDiagnosis(d, linObs));
+            } catch (InvalidAlgorithmParameterException e) {
+                expected.add(BFANetworkSupervisor.NOT_INHERENT);
+            }
+        }
+        assertTrue(expected.contains(BFANetworkSupervisor.NOT_INHERENT));
+
+        for (int parallelism : new int[] { 1, 4 }) {
+            List<Optional<String>> diagnoses = BFANetworkSupervisor.linearDiagnoses(d, batch, parallelism);
+            assertEquals(expected, diagnoses.stream().map(o -> o.orElse(BFANetworkSupervisor.NOT_INHERENT))
+                    .collect(Collectors.toList()));
+        }
+
+        String input = batch.stream().map(linObs -> String.join(" ", linObs)).collect(Collectors.joining("\n"));
+        StringWriter output = new StringWriter();
+        BFANetworkSupervisor.linearDiagnoses(d, new BufferedReader(new StringReader(input)), output, 3);
+        assertEquals(expected, List.of(output.toString().split(System.lineSeparator(), -1)).subList(0, 200));
+        assertTrue(output.toString().endsWith(System.lineSeparator()));
+    }
+
+    /**
+     * Check that the diagnosis of a sliding window is the diagnosis of its
+     * observations from the initial state, while the window covers the whole
+     * stream, and from any state afterwards.
+     */
+    @Test
+    public void itShouldDiagnoseSlidingWindowOfObservations() throws InvalidAlgorithmParameterException {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        int n = d.getStatesCount();
+        for (int windowSize : new int[] { 1, 4, 5 }) {
+            SlidingWindowDiagnosis window = new SlidingWindowDiagnosis(d, windowSize);
+            List<String> stream = new ArrayList<>();
+            for (int i = 0; i < 30; i++) {
+                String label = i % 2 == 0 ? "o3" : "o2";
+                window.observe(label);
+                stream.add(label);
+                assertEquals(Math.min(stream.size(), windowSize), window.size());
+
+                List<String> last = stream.subList(Math.max(0, stream.size() - windowSize), stream.size());
+                RegEx expected;
+                if (stream.size() <= windowSize) {
+                    try {
+                        expected = BFANetworkSupervisor.linearDiagnosisRegEx(d, last);
+                    } catch (InvalidAlgorithmParameterException e) {
+                        expected = RegExes.empty();
+                    }
+                } else {
+                    // advance the belief set from every state, one observation at a time
+                    RegEx[] belief = new RegEx[n];
+                    Arrays.fill(belief, RegExes.epsilon());
+                    for (String o : last) {
+                        belief = TransferFunction.ofLabel(d, d.getLabelId(o)).apply(belief);
+                    }
+                    List<RegEx> alternatives = new ArrayList<>();
+                    for (int x = 0; x < n; x++) {
+                        if (belief[x] != null && d.isAcceptance(x))
+                            alternatives.add(RegExes.concat(belief[x], d.getDiagnosisOf(x)));
+                    }
+                    expected = RegExes.union(alternatives);
+                }
+                String message = "window " + windowSize + " after " + stream.size() + " observations";
+                if (expected.isEmpty())
+                    assertThrows(InvalidAlgorithmParameterException.class, window::currentDiagnosis, message);
+                else
+                    assertTrue(RegExLanguages.areEquivalent(expected, window.currentDiagnosis()), message);
+            }
+            assertThrows(InvalidAlgorithmParameterException.class, () -> window.observe("unknown"));
+            assertEquals(windowSize, window.size());
+            window.reset();
+            assertEquals(0, window.size());
+            assertEquals(BFANetworkSupervisor.linearDiagnosisRegEx(d, List.of()), window.currentDiagnosis());
+        }
+    }
+
+    /**
+     * Check the diagnosability of the faults of the bundled Network2 project and
+     * of the behavioral space of page 38, and that each witness is made of two
+     * trajectories of the diagnostician with the same observation, ending in a
+     * cycle, the second one without the fault.
+     */
+    @Test
+    public void itShouldCheckDiagnosabilityWithTwinPlant() throws IOException {
+        DiagnosabilityChecker page38 = new DiagnosabilityChecker(new FaultSetDiagnostician(behavioralSpaceFromPage38()));
+        assertTrue(page38.isDiagnosable("f"));
+        assertTrue(page38.isDiagnosable("r"));
+        assertThrows(IllegalArgumentException.class, () -> page38.isDiagnosable("unknown"));
+
+        FA<BSState, BSTransition> bs = BFANetworkSupervisor
+                .getBehavioralSpace(new FileUtils("Network2").loadBFANetwork());
+        BFANetworkSupervisor.pruneFA(bs);
+        FaultSetDiagnostician d = new FaultSetDiagnostician(bs);
+        Map<String, Optional<DiagnosabilityChecker.Witness>> witnesses = new DiagnosabilityChecker(d).check();
+        assertEquals(d.getFaults(), new ArrayList<>(witnesses.keySet()));
+        Set<String> notDiagnosable = witnesses.keySet().stream().filter(f -> witnesses.get(f).isPresent())
+                .collect(Collectors.toSet());
+        assertEquals(Set.of("f1", "f2", "f3", "f4"), notDiagnosable);
+
+        for (String fault : notDiagnosable) {
+            DiagnosabilityChecker.Witness witness = witnesses.get(fault).orElseThrow();
+            int f = d.getFaultId(fault);
+            List<String> observation = new ArrayList<>(witness.getPrefix());
+            observation.addAll(witness.getCycle());
+            assertFalse(witness.getCycle().isEmpty());
+            assertEquals(observation.size() + 1, witness.getFaultyStates().size());
+            assertEquals(observation.size() + 1, witness.getNormalStates().size());
+            int p = witness.getPrefix().size();
+            assertEquals(witness.getFaultyStates().get(p), witness.getFaultyStates().get(observation.size()));
+            assertEquals(witness.getNormalStates().get(p), witness.getNormalStates().get(observation.size()));
+            assertEquals(d.getStateName(d.getInitialState()), witness.getFaultyStates().get(0));
+            assertEquals(d.getStateName(d.getInitialState()), witness.getNormalStates().get(0));
+
+            boolean withFault = false;
+            for (int i = 0; i < observation.size(); i++) {
+                int label = d.getLabelId(observation.get(i));
+                boolean faultyStep = false;
+                boolean normalStep = false;
+                int x1 = d.getState(witness.getFaultyStates().get(i));
+                for (int t = d.firstTransition(x1, label); t < d.endTransition(x1, label); t++) {
+                    if (d.getStateName(d.getTransitionTarget(t)).equals(witness.getFaultyStates().get(i + 1))) {
+                        faultyStep = true;
+                        withFault |= d.getTransitionFaults(t).someWith(f);
+                    }
+                }
+                int x2 = d.getState(witness.getNormalStates().get(i));
+                for (int t = d.firstTransition(x2, label); t < d.endTransition(x2, label); t++) {
+                    normalStep |= d.getStateName(d.getTransitionTarget(t)).equals(witness.getNormalStates().get(i + 1))
+                            && d.getTransitionFaults(t).someWithout(f);
+                }
+                assertTrue(faultyStep && normalStep, witness.toString());
+            }
+            assertTrue(withFault, witness.toString());
+        }
+    }
+
+    /**
+     * Check that the networks and the BFAs of the bundled projects, loaded while
+     * parsing their json files, are the ones described by the files.
+     */
+    @Test
+    public void itShouldLoadBundledProjectsWhileParsing() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            FileUtils fileUtils = new FileUtils(project);
+            JsonObject json = parseJson(fileUtils.path() + "bfa_network.json");
+            BFANetwork network = fileUtils.loadBFANetwork();
+
+            Map<String, BFA> bfas = network.getBFAs().stream().collect(Collectors.toMap(BFA::getName, b -> b));
+            assertEquals(json.getAsJsonArray("bfas").size(), bfas.size(), project);
+            for (JsonElement element : json.getAsJsonArray("bfas")) {
+                JsonObject bfa = element.getAsJsonObject();
+                assertEquals(describe(bfa), describe(bfas.get(bfa.get("name").getAsString())), project);
+            }
+            for (String name : fileUtils.getBFAsList()) {
+                assertEquals(describe(parseJson(fileUtils.path() + "BFAs/" + name + ".json")),
+                        describe(fileUtils.loadBFA(name)), project);
+            }
+
+            Set<List<String>> links = new HashSet<>();
+            for (JsonElement element : json.getAsJsonArray("links")) {
+                JsonObject link = element.getAsJsonObject();
+                links.add(List.of(link.get("name").getAsString(), link.get("source").getAsString(),
+                        link.get("target").getAsString()));
+            }
+            assertEquals(links, network.getLinks().stream()
+                    .map(l -> List.of(l.getName(), network.getNetwork().incidentNodes(l).source().getName(),
+                            network.getNetwork().incidentNodes(l).target().getName()))
+                    .collect(Collectors.toSet()), project);
+        }
+    }
+
+    /**
+     * Check that the behavioral space, the decorated space of closures and the
+     * diagnostician of the bundled networks are read back from their binary
+     * format as they were written, and that corrupted artifacts are rejected.
+     */
+    @Test
+    public void itShouldStoreArtifactsInBinaryFormat() throws IOException {
+        for (String project : FileUtils.getProjectsList()) {
+            BFANetwork network = new FileUtils(project).loadBFANetwork();
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(network);
+            BFANetworkSupervisor.pruneFA(bs);
+            FA<FA<DBSState, BSTransition>, DSCTransition> dsc = BFANetworkSupervisor.decoratedSpaceOfClosures(bs);
+            Diagnostician d = BFANetworkSupervisor.diagnostician(dsc);
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            BinaryArtifacts.writeBehavioralSpace(bs, out);
+            byte[] bsBytes = out.toByteArray();
+            FA<BSState, BSTransition> loadedBs = BinaryArtifacts.readBehavioralSpace(new ByteArrayInputStream(bsBytes),
+                    network);
+            Function<BSTransition, Object> bsTransition = t -> Arrays.asList(t.getName(), t.getRelevanceLabel(),
+                    t.getObservabilityLabel());
+            assertEquals(describe(bs, s -> s, bsTransition), describe(loadedBs, s -> s, bsTransition), project);
+
+            out = new ByteArrayOutputStream();
+            BinaryArtifacts.writeDecoratedSpaceOfClosures(dsc, out);
+            FA<FA<DBSState, BSTransition>, DSCTransition> loadedDsc = BinaryArtifacts
+                    .readDecoratedSpaceOfClosures(new ByteArrayInputStream(out.toByteArray()), loadedBs);
+            Function<DBSState, Object> dbsState = s -> Arrays.asList(s.getBSState(), s.getDecoration());
+            Function<FA<DBSState, BSTransition>, Object> closure = c -> describe(c, dbsState, bsTransition);
+            Function<DSCTransition, Object> dscTransition = t -> Arrays.asList(t.getName(), t.getSymbol(),
+                    t.getObservabilityLabel());
+            assertEquals(describe(dsc, closure, dscTransition), describe(loadedDsc, closure, dscTransition), project);
+            for (FA<DBSState, BSTransition> c : loadedDsc.getStates()) {
+                assertTrue(loadedBs.getTransitions().containsAll(c.getTransitions()), project);
+            }
+
+            out = new ByteArrayOutputStream();
+            BinaryArtifacts.writeDiagnostician(d, out);
+            Diagnostician loaded = BinaryArtifacts.readDiagnostician(new ByteArrayInputStream(out.toByteArray()),
+                    loadedBs);
+            Function<Diagnostician, Map<String, Object>> diagnosis = diagnostician -> diagnostician.getDiagnosis()
+                    .entrySet().stream().collect(Collectors.toMap(e -> e.getKey().getName(),
+                            e -> e.getValue().entrySet().stream()
+                                    .map(entry -> Arrays.asList(entry.getKey().getBSState(),
+                                            entry.getKey().getDecoration(), entry.getValue()))
+                                    .collect(Collectors.toSet())));
+            assertEquals(describe(d.getFa(), State::getName, dscTransition),
+                    describe(loaded.getFa(), State::getName, dscTransition), project);
+            assertEquals(diagnosis.apply(d), diagnosis.apply(loaded), project);
+
+            byte[] corrupted = bsBytes.clone();
+            corrupted[0]++;
+            assertThrows(IOException.class,
+                    () -> BinaryArtifacts.readBehavioralSpace(new ByteArrayInputStream(corrupted), network));
+            assertThrows(IOException.class, () -> BinaryArtifacts.readBehavioralSpace(
+                    new ByteArrayInputStream(Arrays.copyOf(bsBytes, bsBytes.length - 1)), network));
+            assertThrows(IOException.class,
+                    () -> BinaryArtifacts.readDiagnostician(new ByteArrayInputStream(bsBytes), loadedBs));
+        }
+    }
+
+    /**
+     * @return the name, the states (with whether they are acceptance and final),
+     *         the initial state and the transitions of {@code fa}, where each
+     *         state and transition is described by {@code state} and
+     *         {@code transition}
+     */
+    private static <S extends State, T extends Transition> List<Object> describe(FA<S, T> fa,
+            Function<S, Object> state, Function<T, Object> transition) {
+        Set<List<Object>> states = fa.getStates().stream()
+                .map(s -> Arrays.asList(state.apply(s), fa.isAcceptance(s), fa.isFinal(s)))
+                .collect(Collectors.toSet());
+        HashMultiset<List<Object>> transitions = HashMultiset.create();
+        for (T t : fa.getTransitions()) {
+            transitions.add(Arrays.asList(state.apply(fa.getNetwork().incidentNodes(t).source()),
+                    transition.apply(t), state.apply(fa.getNetwork().incidentNodes(t).target())));
+        }
+        return Arrays.asList(fa.getName(), states, state.apply(fa.getInitialState()), transitions);
+    }
+
+    private static JsonObject parseJson(String path) throws IOException {
+        try (Reader reader = java.nio.file.Files.newBufferedReader(java.nio.file.Path.of(path),
+                StandardCharsets.UTF_8)) {
+            return JsonParser.parseReader(reader).getAsJsonObject();
+        }
+    }
+
+    /**
+     * @return the states, the initial state and the transitions of a BFA
+     *         described in json
+     */
+    private static List<Object> describe(JsonObject bfa) {
+        Set<String> states = new HashSet<>();
+        bfa.getAsJsonArray("states").forEach(s -> states.add(s.getAsString()));
+        Set<List<Object>> transitions = new HashSet<>();
+        for (JsonElement element : bfa.getAsJsonArray("transitions")) {
+            JsonObject t = element.getAsJsonObject();
+            Set<String> outEvents = new HashSet<>();
+            t.getAsJsonArray("outEvents").forEach(e -> outEvents.add(e.getAsString()));
+            transitions.add(Arrays.asList(t.get("name").getAsString(), t.get("source").getAsString(),
+                    t.get("target").getAsString(), t.has("inEvent") ? t.get("inEvent").getAsString() : null,
+                    outEvents, t.get("observabilityLabel").getAsString(), t.get("relevanceLabel").getAsString()));
+        }
+        return List.of(bfa.get("name").getAsString(), states, bfa.get("initialState").getAsString(), transitions);
+    }
+
+    /**
+     * @return the states, the initial state and the transitions of {@code bfa},
+     *         like {@link #describe(JsonObject)}
+     */
+    private static List<Object> describe(BFA bfa) {
+        Set<String> states = bfa.getStates().stream().map(State::getName).collect(Collectors.toSet());
+        Set<List<Object>> transitions = new HashSet<>();
+        for (EventTransition t : bfa.getTransitions()) {
+            transitions.add(Arrays.asList(t.getName(), bfa.getNetwork().incidentNodes(t).source().getName(),
+                    bfa.getNetwork().incidentNodes(t).target().getName(), t.getInEvent().orElse(null),
+                    t.getOutEvents(), t.getObservabilityLabel(), t.getRelevanceLabel()));
+        }
+        return List.of(bfa.getName(), states, bfa.getInitialState().getName(), transitions);
+    }
+
+    /**
+     * @return the observation automaton with the transitions {@code transitions},
+     *         given as triples of source, label and target, whose initial state is
+     *         "0" and whose acceptance states are {@code acceptance}
+     */
+    private static ObservationAutomaton observationAutomaton(Set<String> acceptance, String... transitions) {
+        Map<String, FAState> states = new HashMap<>();
+        FABuilder<FAState, Transition> builder = new FABuilder<>();
+        builder.putInitialState(states.computeIfAbsent("0", name -> new StateBuilder(name).build()));
+        for (int i = 0; i < transitions.length; i += 3) {
+            FAState source = states.computeIfAbsent(transitions[i], name -> new StateBuilder(name).build());
+            FAState target = states.computeIfAbsent(transitions[i + 2], name -> new StateBuilder(name).build());
+            builder.putState(source).putState(target).putTransition(source, target, new Transition(transitions[i + 1]));
+        }
+        acceptance.forEach(name -> builder.putAcceptanceState(states.get(name)));
+        return new ObservationAutomaton(builder.build());
+    }
+
+    /**
+     * Check that the diagnosis of an uncertain observation is the alternative
+     * between the diagnoses of its linear observations.
+     */
+    @Test
+    public void itShouldDiagnoseUncertainObservations() throws InvalidAlgorithmParameterException {
+        CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor
+                .diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(behavioralSpaceFromPage38())));
+        RegEx o3o2 = BFANetworkSupervisor.linearDiagnosisRegEx(d, List.of("o3", "o2"));
+        RegEx o3o2o3o2 = BFANetworkSupervisor.linearDiagnosisRegEx(d, List.of("o3", "o2", "o3", "o2"));
+
+        // a linear observation
+        ObservationAutomaton linear = observationAutomaton(Set.of("2"), "0", "o3", "1", "1", "o2", "2");
+        assertTrue(RegExLanguages.areEquivalent(o3o2, BFANetworkSupervisor.uncertainDiagnosisRegEx(d, linear)));
+
+        // an optional repetition, through an empty transition, and an alternative label which is not inherent
+        ObservationAutomaton optional = observationAutomaton(Set.of("4"), "0", "o3", "1", "1", "o2", "2", "2", "", "4",
+                "2", "o3", "3", "3", "o2", "4", "1", "o3", "4");
+        assertTrue(RegExLanguages.areEquivalent(RegExes.union(o3o2, o3o2o3o2),
+                BFANetworkSupervisor.uncertainDiagnosisRegEx(d, optional)));
+
+        // any number of repetitions: the diagnosis of each linear observation is included
+        ObservationAutomaton cyclic = observationAutomaton(Set.of("0"), "0", "o3", "1", "1", "o2", "0");
+        RegEx diagnosis = BFANetworkSupervisor.uncertainDiagnosisRegEx(d, cyclic);
+        List<String> linObs = new ArrayList<>();
+        for (int k = 0; k < 4; k++) {
+            RegEx linearDiagnosis = BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs);
+            assertTrue(RegExLanguages.areEquivalent(RegExes.union(diagnosis, linearDiagnosis), diagnosis));
+            linObs.addAll(List.of("o3", "o2"));
+        }
+
+        ObservationAutomaton notInherent = observationAutomaton(Set.of("1"), "0", "o2", "1", "0", "o4", "1");
+        assertThrows(InvalidAlgorithmParameterException.class,
+                () -> BFANetworkSupervisor.uncertainDiagnosisRegEx(d, notInherent));
+    }
+
+    /**
+     * Check that the behavioral space related to a linear observation given as an
+     * observation automaton is the same as the one computed from the list of its
+     * labels.
+     */
+    @Test
+    public void computeBehavioralSpaceOfObservationAutomaton() throws InvalidAlgorithmParameterException {
+        ObservationAutomaton linear = observationAutomaton(Set.of("2"), "0", "o3", "1", "1", "o2", "2");
+        FA<LOBSState, BSTransition> space = BFANetworkSupervisor.getBehavioralSpaceForObservation(bfaNetwork, linear);
+        FA<LOBSState, BSTransition> expected = BFANetworkSupervisor.getBehavioralSpaceForLinearObservation(
+                BFANetworkFromPage26(), List.of("o3", "o2"));
+        assertEquals(expected.getStates().size(), space.getStates().size());
+        assertEquals(expected.getTransitions().size(), space.getTransitions().size());
+        BFANetworkSupervisor.pruneFA(space);
+        assertEquals(8, space.getStates().size());
+        assertEquals(Set.of("", "f", "fr", "frf"), AcceptedLanguages.reduceFAtoMultipleRegex(space));
+    }
+
     /**
      * Check that the BFANetwork can be converted to Json, written to a file, loaded
      * back from the file, and converted again into an equivalent BFANetwork.
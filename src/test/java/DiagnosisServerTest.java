@@ -0,0 +1,159 @@
+import files.FileUtils;
+import graph.BFAnetwork.*;
+import graph.fa.FA;
+import graph.regex.RegExLanguages;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import server.DiagnosisServer;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.InvalidAlgorithmParameterException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DiagnosisServerTest {
+
+    private static final String PROJECT = "test";
+
+    private DiagnosisServer server;
+    private HttpClient client;
+    private CompiledDiagnostician diagnostician;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = new DiagnosisServer(0, 2);
+        server.start();
+        client = HttpClient.newHttpClient();
+        FA<BSState, BSTransition> bs = BFANetworkSupervisor
+                .getBehavioralSpace(new FileUtils(PROJECT).loadBFANetwork());
+        BFANetworkSupervisor.pruneFA(bs);
+        diagnostician = new CompiledDiagnostician(
+                BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs)));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Return the diagnosis of {@code linObs} computed without the server, or "!"
+     * if it isn't inherent to the diagnostician.
+     */
+    private String expectedDiagnosis(List<String> linObs) {
+        try {
+            return BFANetworkSupervisor.linearDiagnosis(diagnostician, linObs);
+        } catch (InvalidAlgorithmParameterException e) {
+            return "!";
+        }
+    }
+
+    private void assertDiagnosis(String expected, String actual) {
+        if (expected.equals("!"))
+            assertEquals(expected, actual);
+        else
+            assertTrue(RegExLanguages.areEquivalent(expected, actual), expected + " != " + actual);
+    }
+
+    @Test
+    public void itShouldDiagnoseBatchOfObservations() throws Exception {
+        List<List<String>> batch = List.of(List.of("o3", "o2"), List.of("o3", "o2", "o3", "o2"), List.of("o2"),
+                List.of("o3", "o2", "o3"));
+        StringBuilder body = new StringBuilder();
+        for (List<String> linObs : batch) {
+            body.append(String.join(" ", linObs)).append('\n');
+        }
+        HttpResponse<String> response = send("POST", "/diagnose/" + PROJECT, body.toString());
+        assertEquals(200, response.statusCode());
+        String[] diagnoses = response.body().split("\n");
+        assertEquals(batch.size(), diagnoses.length);
+        for (int i = 0; i < batch.size(); i++) {
+            assertDiagnosis(expectedDiagnosis(batch.get(i)), diagnoses[i]);
+        }
+    }
+
+    @Test
+    public void itShouldRejectUnknownProjects() throws Exception {
+        assertEquals(404, send("POST", "/diagnose/unknown", "o3 o2").statusCode());
+        assertEquals(404, send("POST", "/diagnose/..%2F" + PROJECT, "o3 o2").statusCode());
+        assertEquals(404, send("POST", "/sessions/unknown", null).statusCode());
+        assertEquals(405, send("GET", "/diagnose/" + PROJECT, null).statusCode());
+    }
+
+    @Test
+    public void itShouldAdvanceSessions() throws Exception {
+        HttpResponse<String> created = send("POST", "/sessions/" + PROJECT, null);
+        assertEquals(201, created.statusCode());
+        String session = "/sessions/" + PROJECT + "/" + created.body().trim();
+
+        HttpResponse<String> response = send("POST", session, "o3 o2");
+        assertEquals(200, response.statusCode());
+        assertDiagnosis(expectedDiagnosis(List.of("o3", "o2")), response.body().trim());
+        response = send("POST", session, "o3\no2");
+        assertDiagnosis(expectedDiagnosis(List.of("o3", "o2", "o3", "o2")), response.body().trim());
+        response = send("GET", session, null);
+        assertDiagnosis(expectedDiagnosis(List.of("o3", "o2", "o3", "o2")), response.body().trim());
+
+        // an observation which is not inherent doesn't change the session
+        assertEquals(422, send("POST", session, "o2").statusCode());
+        response = send("GET", session, null);
+        assertDiagnosis(expectedDiagnosis(List.of("o3", "o2", "o3", "o2")), response.body().trim());
+        // neither does a batch whose first observations are inherent
+        assertNotEquals("!", expectedDiagnosis(List.of("o3", "o2", "o3", "o2", "o3", "o2")));
+        assertEquals("!", expectedDiagnosis(List.of("o3", "o2", "o3", "o2", "o3", "o2", "o2")));
+        assertEquals(422, send("POST", session, "o3 o2 o2").statusCode());
+        response = send("GET", session, null);
+        assertDiagnosis(expectedDiagnosis(List.of("o3", "o2", "o3", "o2")), response.body().trim());
+
+        assertEquals(204, send("DELETE", session, null).statusCode());
+        assertEquals(404, send("GET", session, null).statusCode());
+    }
+
+    @Test
+    public void itShouldExpireIdleSessions() throws Exception {
+        server.stop(0);
+        server = new DiagnosisServer(0, 2, Duration.ofMillis(200));
+        server.start();
+        String idle = "/sessions/" + PROJECT + "/" + send("POST", "/sessions/" + PROJECT, null).body().trim();
+        String active = "/sessions/" + PROJECT + "/" + send("POST", "/sessions/" + PROJECT, null).body().trim();
+        for (int i = 0; i < 6; i++) {
+            Thread.sleep(100);
+            assertEquals(200, send("POST", active, "o3 o2").statusCode());
+        }
+        assertEquals(404, send("GET", idle, null).statusCode());
+        assertEquals(200, send("GET", active, null).statusCode());
+    }
+
+    @Test
+    public void itShouldServeConcurrentRequests() throws Exception {
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            HttpRequest request = HttpRequest
+                    .newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + "/diagnose/" + PROJECT))
+                    .POST(HttpRequest.BodyPublishers.ofString("o3 o2 o3 o2")).build();
+            responses.add(client.sendAsync(request, HttpResponse.BodyHandlers.ofString()));
+        }
+        String expected = expectedDiagnosis(List.of("o3", "o2", "o3", "o2"));
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            assertEquals(200, response.get().statusCode());
+            assertDiagnosis(expected, response.get().body().trim());
+        }
+    }
+}
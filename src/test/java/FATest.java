@@ -1,12 +1,16 @@
 import files.FileUtils;
+import graph.StronglyConnectedComponents;
 import graph.fa.*;
+import graph.regex.RegEx;
+import graph.regex.RegExLanguages;
+import graph.regex.RegExes;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import java.io.IOException;
-import java.util.List;
-import java.util.Set;
+import java.time.Duration;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -143,9 +147,7 @@ public class FATest {
     public void itShouldComputeLanguageAcceptedFromFA() {
         String acceptedLanguage = AcceptedLanguage.reduceFAtoRegex(FAofPage9());
         // check equivalent languages
-        assertTrue(acceptedLanguage.equals("aa*c|ac*ba*c") || acceptedLanguage.equals("a(a*|c*ba*)c")
-                || acceptedLanguage.equals("a(c*b)?a*c") || acceptedLanguage.equals("((a|(a(c)*b))(a)*c)")
-                || acceptedLanguage.equals("(((a(c)*b)|a)(a)*c)"));
+        assertTrue(RegExLanguages.areEquivalent("aa*c|ac*ba*c", acceptedLanguage));
     }
 
     /**
@@ -166,7 +168,7 @@ public class FATest {
         // add the self-loop
         fa.addEdge(fa.getInitialState(), fa.getInitialState(), new Transition("a"));
         String acceptedLanguage = AcceptedLanguage.reduceFAtoRegex(fa);
-        assertEquals("((a)*)", acceptedLanguage);
+        assertTrue(RegExLanguages.areEquivalent("((a)*)", acceptedLanguage));
     }
 
     /**
@@ -178,10 +180,172 @@ public class FATest {
         FA<FAState, Transition> fa = FAofPage21();
         Set<String> acceptedLanguages = AcceptedLanguages.reduceFAtoMultipleRegex(fa);
         System.out.println(acceptedLanguages);
-        Set<String> realAcceptedLanguages1 = Set.of("(a(b)*)", "((b(a)*b)|(a(b)*))", "(b(a)*)");
-        Set<String> realAcceptedLanguages2 = Set.of("(a(b)*)", "((a(b)*)|(b(a)*b))", "(b(a)*)");
-        assertTrue(
-                acceptedLanguages.equals(realAcceptedLanguages1) || acceptedLanguages.equals(realAcceptedLanguages2));
+        List<String> realAcceptedLanguages = List.of("(a(b)*)", "((b(a)*b)|(a(b)*))", "(b(a)*)");
+        assertEquals(realAcceptedLanguages.size(), acceptedLanguages.size());
+        for (String language : realAcceptedLanguages) {
+            assertTrue(acceptedLanguages.stream().anyMatch(l -> RegExLanguages.areEquivalent(language, l)));
+        }
+    }
+
+    /**
+     * Check, on random FAs and with every algorithm, that a word belongs to the
+     * language computed for an acceptance state if and only if it leads from the
+     * initial state to it.
+     */
+    @Test
+    public void itShouldComputeAcceptedLanguagesOfRandomFAs() {
+        List<LanguageExtractor> extractors = new ArrayList<>(
+                List.of(LanguageExtractor.DEFAULT, LanguageExtractor.algebraic()));
+        for (EliminationOrder order : EliminationOrder.values()) {
+            extractors.add(LanguageExtractor.stateElimination(order));
+        }
+        Random random = new Random(42);
+        List<String> symbols = List.of("a", "b", "");
+        for (int i = 0; i < 200; i++) {
+            List<FAState> states = new ArrayList<>();
+            FABuilder<FAState, Transition> builder = new FABuilder<>();
+            for (int j = 0; j < 6; j++) {
+                states.add(new FAState(String.valueOf(j)));
+                builder.putState(states.get(j));
+            }
+            builder.putInitialState(states.get(0)).putAcceptanceState(states.get(random.nextInt(6)))
+                    .putAcceptanceState(states.get(random.nextInt(6)));
+            // connect every state to a previous one, so that there are no isolated states
+            for (int j = 1; j < 6; j++) {
+                builder.putTransition(states.get(random.nextInt(j)), states.get(j),
+                        new Transition(symbols.get(random.nextInt(symbols.size()))));
+            }
+            // half of the FAs are acyclic, having only transitions towards following states
+            for (int j = 0; j < 8; j++) {
+                int source = random.nextInt(i % 2 == 0 ? 5 : 6);
+                int target = i % 2 == 0 ? source + 1 + random.nextInt(5 - source) : random.nextInt(6);
+                builder.putTransition(states.get(source), states.get(target),
+                        new Transition(symbols.get(random.nextInt(symbols.size()))));
+            }
+            FA<FAState, Transition> fa = builder.build();
+
+            // enumerate the words up to length 4, together with the states they reach
+            Map<String, Set<FAState>> reached = new HashMap<>();
+            reached.put("", epsilonClosure(fa, Set.of(fa.getInitialState())));
+            List<String> words = new ArrayList<>(List.of(""));
+            for (int length = 0; length < 4; length++) {
+                List<String> longer = new ArrayList<>();
+                for (String word : words) {
+                    for (String symbol : List.of("a", "b")) {
+                        Set<FAState> next = new HashSet<>();
+                        for (FAState s : reached.get(word)) {
+                            fa.getNetwork().outEdges(s).stream().filter(t -> t.getSymbol().equals(symbol))
+                                    .forEach(t -> next.add(fa.getNetwork().incidentNodes(t).target()));
+                        }
+                        reached.put(word + symbol, epsilonClosure(fa, next));
+                        longer.add(word + symbol);
+                    }
+                }
+                words = longer;
+            }
+
+            for (LanguageExtractor extractor : extractors) {
+                Map<FAState, String> languages = AcceptedLanguages.reduceFAtoMapOfRegex(fa, extractor);
+                for (FAState s : fa.getAcceptanceStates()) {
+                    RegEx language = RegExes.parse(languages.get(s));
+                    for (Map.Entry<String, Set<FAState>> e : reached.entrySet()) {
+                        RegEx d = language;
+                        for (char c : e.getKey().toCharArray()) {
+                            d = RegExLanguages.derivative(d, RegExes.symbol(String.valueOf(c)));
+                        }
+                        assertEquals(e.getValue().contains(s), languages.containsKey(s) && d.isNullable(),
+                                "word '" + e.getKey() + "' and state " + s.getName() + " of FA " + i + " ("
+                                        + extractor + ")");
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<FAState> epsilonClosure(FA<FAState, Transition> fa, Set<FAState> states) {
+        Set<FAState> closure = new HashSet<>(states);
+        Deque<FAState> stack = new ArrayDeque<>(states);
+        while (!stack.isEmpty()) {
+            for (Transition t : fa.getNetwork().outEdges(stack.pop())) {
+                FAState target = fa.getNetwork().incidentNodes(t).target();
+                if (t.getSymbol().isEmpty() && closure.add(target))
+                    stack.push(target);
+            }
+        }
+        return closure;
+    }
+
+    /**
+     * Check that a long chain of states, each one with a self-loop and an
+     * alternative path to the next one, is reduced without rescanning the whole
+     * FA at each step.
+     */
+    @Test
+    public void itShouldReduceLargeFAs() {
+        FABuilder<FAState, Transition> builder = new FABuilder<>();
+        FAState previous = new FAState("0");
+        builder.putInitialState(previous);
+        for (int i = 1; i <= 20000; i++) {
+            FAState next = new FAState(String.valueOf(i));
+            builder.putTransition(previous, next, new Transition("a"));
+            builder.putTransition(previous, next, new Transition("b"));
+            builder.putTransition(next, next, new Transition("c"));
+            previous = next;
+        }
+        FA<FAState, Transition> fa = builder.putAcceptanceState(previous).build();
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            AcceptedLanguages.reduceFAtoMapOfRegex(fa);
+        });
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            AcceptedLanguages.reduceFAtoMapOfRegex(fa, LanguageExtractor.algebraic());
+        });
+    }
+
+    /**
+     * Check that the strongly connected components of the FA of page 9 are
+     * numbered in topological order and that self-loops make them cyclic.
+     */
+    @Test
+    public void itShouldComputeStronglyConnectedComponents() {
+        FA<FAState, Transition> fa = FAofPage9();
+        StronglyConnectedComponents<FAState> components = StronglyConnectedComponents.of(fa.getNetwork());
+        assertEquals(5, components.getComponentsCount());
+        for (Transition t : fa.getTransitions()) {
+            int source = components.getComponent(fa.getNetwork().incidentNodes(t).source());
+            int target = components.getComponent(fa.getNetwork().incidentNodes(t).target());
+            assertTrue(source <= target);
+        }
+        assertTrue(components.isCyclic(components.getComponent(s2)));
+        assertTrue(components.isCyclic(components.getComponent(s3)));
+        assertFalse(components.isCyclic(components.getComponent(s0)));
+        assertEquals(Set.of(s2, s3, s4), components.reachableNodes(s2));
+
+        // without the self-loops, the FA is acyclic
+        StronglyConnectedComponents<FAState> withoutLoops = StronglyConnectedComponents.of(fa.getNetwork(),
+                t -> t != t22 && t != t33);
+        assertTrue(withoutLoops.isAcyclic());
+    }
+
+    /**
+     * Check that a cycle through many states is recognized as a single component,
+     * without overflowing the stack.
+     */
+    @Test
+    public void itShouldComputeLargeStronglyConnectedComponents() {
+        FABuilder<FAState, Transition> builder = new FABuilder<>();
+        FAState first = new FAState("0");
+        FAState previous = first;
+        builder.putInitialState(first);
+        for (int i = 1; i <= 100000; i++) {
+            FAState next = new FAState(String.valueOf(i));
+            builder.putTransition(previous, next, new Transition("a"));
+            previous = next;
+        }
+        builder.putTransition(previous, first, new Transition("b"));
+        FA<FAState, Transition> fa = builder.putAcceptanceState(previous).build();
+        StronglyConnectedComponents<FAState> components = StronglyConnectedComponents.of(fa.getNetwork());
+        assertEquals(1, components.getComponentsCount());
+        assertTrue(components.isCyclic(0));
     }
 
     /**
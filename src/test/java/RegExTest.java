@@ -0,0 +1,164 @@
+import graph.regex.RegEx;
+import graph.regex.RegExLanguages;
+import graph.regex.RegExReverser;
+import graph.regex.RegExSimplifier;
+import graph.regex.RegExes;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Test the construction, the parsing and the rendering of regular expressions.
+ *
+ * @author Pietro Venturini
+ */
+public class RegExTest {
+
+    private static final RegEx a = RegExes.symbol("a");
+    private static final RegEx b = RegExes.symbol("b");
+
+    /**
+     * Check that equal expressions are represented by the same instance
+     */
+    @Test
+    public void itShouldHashConsEqualExpressions() {
+        assertSame(RegExes.concat(a, b), RegExes.concat(RegExes.symbol("a"), RegExes.symbol("b")));
+        assertSame(RegExes.union(a, b), RegExes.union(b, a));
+        assertSame(RegExes.star(RegExes.union(a, b)), RegExes.parse("(b|a)*"));
+        assertSame(RegExes.concat(RegExes.concat(a, b), a), RegExes.concat(a, RegExes.concat(b, a)));
+    }
+
+    /**
+     * Check that the alternatives of a union are sorted by their structure,
+     * whatever the order in which they have been created
+     */
+    @Test
+    public void itShouldSortAlternativesIndependentlyOfTheirCreation() {
+        // symbols used nowhere else, so that they are created here in the given order
+        RegEx alpha = RegExes.symbol("α");
+        RegEx beta = RegExes.symbol("β");
+        RegEx first = RegExes.union(List.of(RegExes.star(beta), RegExes.concat(alpha, beta), beta, alpha));
+        RegEx delta = RegExes.symbol("δ");
+        RegEx gamma = RegExes.symbol("γ");
+        RegEx second = RegExes.union(List.of(gamma, RegExes.concat(gamma, delta), delta, RegExes.star(delta)));
+        assertEquals("α|β|αβ|β*", first.toString());
+        assertEquals("γ|δ|γδ|δ*", second.toString());
+        assertEquals("a|b", RegExes.union(b, a).toString());
+    }
+
+    @Test
+    public void itShouldApplyTrivialIdentities() {
+        assertSame(a, RegExes.concat(RegExes.epsilon(), a));
+        assertSame(a, RegExes.concat(a, RegExes.epsilon()));
+        assertSame(RegExes.empty(), RegExes.concat(a, RegExes.empty()));
+        assertSame(a, RegExes.union(a, a));
+        assertSame(a, RegExes.union(a, RegExes.empty()));
+        assertSame(RegExes.epsilon(), RegExes.star(RegExes.epsilon()));
+        assertSame(RegExes.star(a), RegExes.star(RegExes.star(a)));
+    }
+
+    @Test
+    public void itShouldParseAndRenderRegularExpressions() {
+        assertEquals("ab*", RegExes.parse("(a(b)*)").toString());
+        assertEquals("(ab)*c", RegExes.parse("((ab)*)c").toString());
+        assertEquals("a(|b)", RegExes.parse("a(b|)").toString());
+        assertEquals("", RegExes.parse("").toString());
+        assertEquals("(f1)*", RegExes.star(RegExes.symbol("f1")).toString());
+        assertEquals(RegExes.EMPTY_SET, RegExes.parse(RegExes.EMPTY_SET).toString());
+        assertThrows(IllegalArgumentException.class, () -> RegExes.parse("(ab"));
+        assertThrows(IllegalArgumentException.class, () -> RegExes.parse("*a"));
+    }
+
+    /**
+     * Check that very deep expressions can be rendered
+     */
+    @Test
+    public void itShouldRenderDeepExpressions() {
+        RegEx r = RegExes.epsilon();
+        for (int i = 0; i < 100000; i++) {
+            r = RegExes.concat(r, i % 2 == 0 ? a : b);
+        }
+        assertEquals(100000, r.toString().length());
+    }
+
+    @Test
+    public void itShouldCompareLanguages() {
+        assertTrue(RegExLanguages.areEquivalent("(a|b)*", "(a*b*)*"));
+        assertTrue(RegExLanguages.areEquivalent("a(ba)*", "(ab)*a"));
+        assertTrue(RegExLanguages.areEquivalent("|aa*", "a*"));
+        assertFalse(RegExLanguages.areEquivalent("a*", "aa*"));
+        assertFalse(RegExLanguages.areEquivalent("(ab)*", "a*b*"));
+        assertFalse(RegExLanguages.areEquivalent(RegExes.EMPTY_SET, ""));
+    }
+
+    @Test
+    public void itShouldSimplifyRegularExpressions() {
+        assertEquals("a*", RegExSimplifier.simplify(RegExes.parse("(|a*)")).toString());
+        assertEquals("a*", RegExSimplifier.simplify(RegExes.parse("|aa*")).toString());
+        assertEquals("a*", RegExSimplifier.simplify(RegExes.parse("a|a*")).toString());
+        assertEquals("a*", RegExSimplifier.simplify(RegExes.parse("((a)*)*")).toString());
+        assertEquals("a*", RegExSimplifier.simplify(RegExes.parse("(|a)*")).toString());
+        assertEquals("a*", RegExSimplifier.simplify(RegExes.parse("a*a*")).toString());
+        assertSame(RegExes.parse("(a|b)*"), RegExSimplifier.simplify(RegExes.parse("(a*|b)*")));
+        assertSame(RegExes.parse("(a|b)*"), RegExSimplifier.simplify(RegExes.parse("(a*b*)*")));
+        assertSame(RegExes.parse("a(b|c)"), RegExSimplifier.simplify(RegExes.parse("ab|ac")));
+        assertSame(RegExes.parse("(b|c)a"), RegExSimplifier.simplify(RegExes.parse("ba|ca")));
+    }
+
+    /**
+     * Check that simplified random expressions denote the same language and are
+     * not larger than the original ones
+     */
+    @Test
+    public void itShouldPreserveLanguageWhenSimplifying() {
+        Random random = new Random(42);
+        for (int i = 0; i < 500; i++) {
+            RegEx r = randomRegEx(random, 5);
+            RegEx simplified = RegExSimplifier.simplify(r);
+            assertTrue(RegExLanguages.areEquivalent(r, simplified), r + " != " + simplified);
+            assertTrue(RegExes.size(simplified) <= RegExes.size(r), r + " < " + simplified);
+        }
+    }
+
+    /**
+     * Check that reversing an expression reverses its words, and that deep chains of concatenations can be reversed
+     */
+    @Test
+    public void itShouldReverseRegularExpressions() {
+        assertSame(RegExes.parse("b*a(b|ba)"), RegExReverser.reverse(RegExes.parse("(b|ab)ab*")));
+        assertSame(RegExes.epsilon(), RegExReverser.reverse(RegExes.epsilon()));
+        Random random = new Random(42);
+        for (int i = 0; i < 200; i++) {
+            RegEx r = randomRegEx(random, 5);
+            assertTrue(RegExLanguages.areEquivalent(r, RegExReverser.reverse(RegExReverser.reverse(r))), r.toString());
+        }
+        RegEx r = RegExes.epsilon();
+        StringBuilder word = new StringBuilder();
+        for (int i = 0; i < 100000; i++) {
+            r = RegExes.concat(r, i % 3 == 0 ? a : b);
+            word.append(i % 3 == 0 ? 'a' : 'b');
+        }
+        assertEquals(word.reverse().toString(), RegExReverser.reverse(r).toString());
+    }
+
+    private static RegEx randomRegEx(Random random, int depth) {
+        int choice = depth == 0 ? random.nextInt(3) : random.nextInt(6);
+        switch (choice) {
+            case 0:
+                return RegExes.epsilon();
+            case 1:
+                return a;
+            case 2:
+                return b;
+            case 3:
+                return RegExes.concat(randomRegEx(random, depth - 1), randomRegEx(random, depth - 1));
+            case 4:
+                return RegExes.union(randomRegEx(random, depth - 1), randomRegEx(random, depth - 1));
+            default:
+                return RegExes.star(randomRegEx(random, depth - 1));
+        }
+    }
+}
@@ -1,25 +1,39 @@
+import files.BinaryArtifacts;
 import files.FileUtils;
 import graph.BFAnetwork.BFANetwork;
 import graph.BFAnetwork.BFANetworkSupervisor;
 import graph.BFAnetwork.BSState;
 import graph.BFAnetwork.BSTransition;
+import graph.BFAnetwork.CompiledDiagnostician;
 import graph.BFAnetwork.DBSState;
 import graph.BFAnetwork.DSCTransition;
+import graph.BFAnetwork.DeterministicDiagnostician;
+import graph.BFAnetwork.DiagnosabilityChecker;
+import graph.BFAnetwork.DiagnosisSession;
 import graph.BFAnetwork.Diagnostician;
+import graph.BFAnetwork.FaultSetDiagnostician;
 import graph.BFAnetwork.LOBSState;
+import graph.BFAnetwork.SegmentSummaries;
+import graph.BFAnetwork.SlidingWindowDiagnosis;
 import graph.fa.AcceptedLanguages;
+import graph.fa.EliminationOrder;
 import graph.fa.FA;
+import graph.fa.LanguageExtractor;
 
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.security.InvalidAlgorithmParameterException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.BeforeEach;
 
@@ -84,6 +98,29 @@ public class TemporalComplexityTest {
         assertTrue(true);
     }
 
+    @Test
+    public void computeDecoratedSpaceInParallel() {
+        System.out.println("Computation of decorated spaces in parallel... ");
+        List<Integer> parallelisms = List.of(1, 2, 4, Runtime.getRuntime().availableProcessors());
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            for (int parallelism : parallelisms) {
+                double avg = 0;
+                for (int i = 1; i <= ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    BFANetworkSupervisor.decoratedSpaceOfClosures(bs, parallelism);
+                    long end = System.nanoTime();
+                    avg = avg + ((end - start) - avg) / i;
+                }
+                System.out.println("Average time for " + bfaNetworks.get(bfaNetwork) + " with " + parallelism
+                        + " threads: " + avg / 1000000 + " ms");
+            }
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
     @Test
     public void computeDiagnostician() {
         System.out.println("Computation of diagnosticians... ");
@@ -152,4 +189,273 @@ public class TemporalComplexityTest {
         System.out.println("\n");
         assertTrue(true);
     }
+
+    @Test
+    public void computeDiagnosisiWithCompiledDiagnostician() {
+        System.out.println("Computation of diagnosis with compiled diagnostician... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            double avg = 0;
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            FA<FA<DBSState, BSTransition>, DSCTransition> ds = BFANetworkSupervisor.decoratedSpaceOfClosures(bs);
+            CompiledDiagnostician d = new CompiledDiagnostician(BFANetworkSupervisor.diagnostician(ds));
+            List<String> linObs = generateLinearObservations(bfaNetworks.get(bfaNetwork));
+            for (int i = 1; i <= ITERATIONS; i++) {
+                try {
+                    long start = System.nanoTime();
+                    BFANetworkSupervisor.linearDiagnosis(d, linObs);
+                    long end = System.nanoTime();
+                    avg = avg + ((end - start) - avg) / i;
+                } catch (InvalidAlgorithmParameterException e) {
+                }
+            }
+            System.out.println("Average time for " + bfaNetworks.get(bfaNetwork) + ": " + avg / 1000000 + " ms");
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
+    @Test
+    public void computeDiagnosisWithDeterministicDiagnostician() {
+        System.out.println("Computation of diagnosis with deterministic diagnostician... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            double avg = 0;
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            FA<FA<DBSState, BSTransition>, DSCTransition> ds = BFANetworkSupervisor.decoratedSpaceOfClosures(bs);
+            DeterministicDiagnostician d = new DeterministicDiagnostician(
+                    new CompiledDiagnostician(BFANetworkSupervisor.diagnostician(ds)));
+            List<String> linObs = generateLinearObservations(bfaNetworks.get(bfaNetwork));
+            for (int i = 1; i <= ITERATIONS; i++) {
+                try {
+                    long start = System.nanoTime();
+                    BFANetworkSupervisor.linearDiagnosis(d, linObs);
+                    long end = System.nanoTime();
+                    avg = avg + ((end - start) - avg) / i;
+                } catch (InvalidAlgorithmParameterException e) {
+                }
+            }
+            System.out.println("Average time for " + bfaNetworks.get(bfaNetwork) + ": " + avg / 1000000 + " ms");
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
+    @Test
+    public void computeDiagnosisWithFaultSetDiagnostician() {
+        System.out.println("Computation of diagnosis as fault-sets... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            double avg = 0;
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            FaultSetDiagnostician d = new FaultSetDiagnostician(bs);
+            List<String> linObs = generateLinearObservations(bfaNetworks.get(bfaNetwork));
+            for (int i = 1; i <= ITERATIONS; i++) {
+                try {
+                    long start = System.nanoTime();
+                    BFANetworkSupervisor.linearDiagnosis(d, linObs);
+                    long end = System.nanoTime();
+                    avg = avg + ((end - start) - avg) / i;
+                } catch (InvalidAlgorithmParameterException e) {
+                }
+            }
+            System.out.println("Average time for " + bfaNetworks.get(bfaNetwork) + ": " + avg / 1000000 + " ms");
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
+    @Test
+    public void driveManyDiagnosisSessions() throws InvalidAlgorithmParameterException {
+        final int SESSIONS = 100000;
+        final int ROUNDS = 50;
+        System.out.println("Many diagnosis sessions over a shared diagnostician... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            List<String> linObs = generateLinearObservations(bfaNetworks.get(bfaNetwork));
+            if (linObs == null)
+                continue;
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            CompiledDiagnostician d = new CompiledDiagnostician(
+                    BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs)));
+
+            Runtime runtime = Runtime.getRuntime();
+            System.gc();
+            long before = runtime.totalMemory() - runtime.freeMemory();
+            DiagnosisSession[] sessions = new DiagnosisSession[SESSIONS];
+            for (int i = 0; i < SESSIONS; i++) {
+                sessions[i] = new DiagnosisSession(d);
+            }
+            // the events of the sessions are interleaved, as if they came from different plants
+            long start = System.nanoTime();
+            for (int round = 0; round < ROUNDS; round++) {
+                for (String o : linObs) {
+                    for (DiagnosisSession session : sessions) {
+                        session.observe(o);
+                    }
+                }
+            }
+            long end = System.nanoTime();
+            System.gc();
+            long after = runtime.totalMemory() - runtime.freeMemory();
+
+            long events = (long) SESSIONS * ROUNDS * linObs.size();
+            System.out.println(bfaNetworks.get(bfaNetwork) + ": " + (long) (events / ((end - start) / 1e9))
+                    + " events/s, " + (after - before) / SESSIONS + " bytes per session");
+            assertNotNull(sessions[SESSIONS - 1].currentDiagnosis());
+        }
+        System.out.println("\n");
+    }
+
+    @Test
+    public void computeDiagnosisOfRepetitiveObservations() {
+        System.out.println("Computation of diagnosis of repetitive observations, one at a time and by segments... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            List<String> segment = generateLinearObservations(bfaNetworks.get(bfaNetwork));
+            if (segment == null)
+                continue;
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            CompiledDiagnostician d = new CompiledDiagnostician(
+                    BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs)));
+            SegmentSummaries summaries = new SegmentSummaries(d);
+            for (int repetitions = 10; repetitions <= 1000; repetitions *= 10) {
+                List<String> linObs = new ArrayList<>();
+                for (int i = 0; i < repetitions; i++) {
+                    linObs.addAll(segment);
+                }
+                try {
+                    long start = System.nanoTime();
+                    BFANetworkSupervisor.linearDiagnosisRegEx(d, linObs);
+                    long middle = System.nanoTime();
+                    summaries.linearDiagnosisRegEx(linObs);
+                    long end = System.nanoTime();
+                    System.out.println(bfaNetworks.get(bfaNetwork) + ", " + repetitions + " repetitions: "
+                            + (middle - start) / 1e6 + " ms one at a time, " + (end - middle) / 1e6
+                            + " ms by segments");
+                } catch (InvalidAlgorithmParameterException e) {
+                }
+            }
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
+    @Test
+    public void slideDiagnosisWindow() {
+        final int EVENTS = 100000;
+        System.out.println("Sliding a diagnosis window over a long stream of observations... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            List<String> segment = generateLinearObservations(bfaNetworks.get(bfaNetwork));
+            if (segment == null)
+                continue;
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            CompiledDiagnostician d = new CompiledDiagnostician(
+                    BFANetworkSupervisor.diagnostician(BFANetworkSupervisor.decoratedSpaceOfClosures(bs)));
+            for (int windowSize = 10; windowSize <= 10000; windowSize *= 10) {
+                SlidingWindowDiagnosis window = new SlidingWindowDiagnosis(d, windowSize);
+                try {
+                    long start = System.nanoTime();
+                    for (int i = 0; i < EVENTS; i++) {
+                        window.observe(segment.get(i % segment.size()));
+                    }
+                    long end = System.nanoTime();
+                    System.out.println(bfaNetworks.get(bfaNetwork) + ", window of " + windowSize + ": "
+                            + (end - start) / EVENTS + " ns/event");
+                } catch (InvalidAlgorithmParameterException e) {
+                }
+            }
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
+    @Test
+    public void checkDiagnosability() {
+        System.out.println("Check of the diagnosability of the faults with the twin plant... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            DiagnosabilityChecker checker = new DiagnosabilityChecker(new FaultSetDiagnostician(bs));
+            long start = System.nanoTime();
+            Map<String, Optional<DiagnosabilityChecker.Witness>> witnesses = checker.check();
+            long end = System.nanoTime();
+            System.out.println(bfaNetworks.get(bfaNetwork) + ": " + (end - start) / 1e6 + " ms, not diagnosable: "
+                    + witnesses.values().stream().flatMap(Optional::stream).collect(Collectors.toList()));
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
+    @Test
+    public void loadStoredArtifacts() throws IOException {
+        System.out.println("Computation of the artifacts compared to their loading from the binary format... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            long start = System.nanoTime();
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            FA<FA<DBSState, BSTransition>, DSCTransition> dsc = BFANetworkSupervisor.decoratedSpaceOfClosures(bs);
+            Diagnostician diagnostician = BFANetworkSupervisor.diagnostician(dsc);
+            long end = System.nanoTime();
+            ByteArrayOutputStream[] out = { new ByteArrayOutputStream(), new ByteArrayOutputStream(),
+                    new ByteArrayOutputStream() };
+            BinaryArtifacts.writeBehavioralSpace(bs, out[0]);
+            BinaryArtifacts.writeDecoratedSpaceOfClosures(dsc, out[1]);
+            BinaryArtifacts.writeDiagnostician(diagnostician, out[2]);
+            double avg = 0;
+            for (int i = 1; i <= ITERATIONS; i++) {
+                long loadStart = System.nanoTime();
+                FA<BSState, BSTransition> loadedBs = BinaryArtifacts
+                        .readBehavioralSpace(new ByteArrayInputStream(out[0].toByteArray()), bfaNetwork);
+                BinaryArtifacts.readDecoratedSpaceOfClosures(new ByteArrayInputStream(out[1].toByteArray()), loadedBs);
+                BinaryArtifacts.readDiagnostician(new ByteArrayInputStream(out[2].toByteArray()), loadedBs);
+                long loadEnd = System.nanoTime();
+                avg = avg + ((loadEnd - loadStart) - avg) / i;
+            }
+            System.out.println(bfaNetworks.get(bfaNetwork) + ": computed in " + (end - start) / 1e6 + " ms, loaded in "
+                    + avg / 1e6 + " ms (" + (out[0].size() + out[1].size() + out[2].size()) + " bytes)");
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
+
+    @Test
+    public void compareLanguageExtractors() {
+        List<LanguageExtractor> extractors = new ArrayList<>(
+                List.of(LanguageExtractor.DEFAULT, LanguageExtractor.algebraic()));
+        for (EliminationOrder order : EliminationOrder.values()) {
+            extractors.add(LanguageExtractor.stateElimination(order));
+        }
+        System.out.println("Reduction of silent closures with each algorithm... ");
+        for (BFANetwork bfaNetwork : bfaNetworks.keySet()) {
+            FA<BSState, BSTransition> bs = BFANetworkSupervisor.getBehavioralSpace(bfaNetwork);
+            BFANetworkSupervisor.pruneFA(bs);
+            List<FA<BSState, BSTransition>> closures = bs.getStates().stream()
+                    .filter(s -> bs.isInitial(s) || bs.getNetwork().inEdges(s).stream()
+                            .anyMatch(BSTransition::hasObservabilityLabel))
+                    .map(s -> BFANetworkSupervisor.silentClosure(bs, s)).collect(Collectors.toList());
+            for (LanguageExtractor extractor : extractors) {
+                double avg = 0;
+                for (int i = 1; i <= ITERATIONS; i++) {
+                    long start = System.nanoTime();
+                    for (FA<BSState, BSTransition> closure : closures) {
+                        AcceptedLanguages.reduceFAtoMapOfRegex(closure, extractor);
+                    }
+                    long end = System.nanoTime();
+                    avg = avg + ((end - start) - avg) / i;
+                }
+                int length = 0;
+                for (FA<BSState, BSTransition> closure : closures) {
+                    for (String language : AcceptedLanguages.reduceFAtoMapOfRegex(closure, extractor).values()) {
+                        length += language.length();
+                    }
+                }
+                System.out.println("Average time for " + bfaNetworks.get(bfaNetwork) + " (" + extractor + "): "
+                        + avg / 1000000 + " ms, total length of the languages: " + length);
+            }
+        }
+        System.out.println("\n");
+        assertTrue(true);
+    }
 }